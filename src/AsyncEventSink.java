@@ -0,0 +1,145 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Event sink that hands events to another sink on a background thread.
+ *
+ * Publishers claim a slot in a fixed-size ring buffer with a single
+ * compare-and-set and store the event there; they never wait for the
+ * consumer or take a lock. When the ring is full the event is dropped and
+ * counted instead, so a slow consumer such as a console can never stall
+ * inventory operations. The consumer thread delivers events in the order
+ * their slots were claimed and parks while the ring is empty.
+ */
+public final class AsyncEventSink implements InventoryEventSink, AutoCloseable {
+
+    static final int DEFAULT_CAPACITY = 8192;
+
+    private final InventoryEventSink target;
+    private final AtomicReferenceArray<InventoryEvent> ring;
+    private final int mask;
+    // Next slot to claim; only publishers advance it.
+    private final AtomicLong claimed = new AtomicLong();
+    // Next slot to take from the ring; only the consumer advances it. Slots before it can be reused.
+    private volatile long consumed;
+    // Number of events handed to the target and returned from it; only the consumer advances it.
+    private volatile long delivered;
+    private volatile boolean parked;
+    private volatile boolean closed;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread consumer;
+
+    /**
+     * Creates a sink with the default capacity of 8192 events.
+     *
+     * @param target the sink events are delivered to
+     */
+    public AsyncEventSink(InventoryEventSink target) {
+        this(target, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a sink buffering up to the given number of events.
+     * The capacity is rounded up to a power of two.
+     *
+     * @param target   the sink events are delivered to
+     * @param capacity the maximum number of undelivered events
+     */
+    public AsyncEventSink(InventoryEventSink target, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int slots = Integer.highestOneBit(capacity);
+        if (slots < capacity) slots <<= 1;
+        this.target = target;
+        this.ring = new AtomicReferenceArray<>(slots);
+        this.mask = slots - 1;
+        this.consumer = new Thread(this::consumeLoop, "inventory-event-sink");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Queues an event for delivery, or drops it if the ring is full or the
+     * sink is closed.
+     *
+     * @param event the event
+     */
+    @Override
+    public void publish(InventoryEvent event) {
+        long slot;
+        do {
+            slot = claimed.get();
+            if (closed || slot - consumed > mask) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(slot, slot + 1));
+        ring.set((int) slot & mask, event);
+        if (parked) LockSupport.unpark(consumer);
+    }
+
+    /**
+     * Waits until every event queued before this call has been delivered.
+     */
+    public void flush() {
+        long target = claimed.get();
+        while (delivered < target && consumer.isAlive()) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    /**
+     * Returns the number of events dropped because the ring was full or the
+     * sink was closed.
+     *
+     * @return the dropped event count
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Delivers the queued events and stops the consumer thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Background loop: delivers events in slot order, parking while the next
+     * slot is empty. After close it drains the claimed slots and exits.
+     */
+    private void consumeLoop() {
+        long next = 0;
+        while (true) {
+            int index = (int) next & mask;
+            InventoryEvent event = ring.get(index);
+            if (event == null) {
+                if (closed && next == claimed.get()) return;
+                parked = true;
+                // Recheck after announcing the park, so a publish that missed the flag is still seen.
+                if (ring.get(index) == null) LockSupport.parkNanos(this, 1_000_000);
+                parked = false;
+                continue;
+            }
+            ring.set(index, null);
+            consumed = ++next;
+            try {
+                target.publish(event);
+            } catch (RuntimeException e) {
+                System.err.println("Event sink failed: " + e);
+            }
+            delivered = next;
+        }
+    }
+}
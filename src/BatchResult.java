@@ -0,0 +1,179 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of a batch applied with InventoryManager.applyBatch.
+ * Counts the operations applied and the ones that were rejected, and keeps
+ * the details of the first rejected operations.
+ */
+public class BatchResult {
+
+    /**
+     * Why an operation was rejected.
+     */
+    public enum Reason {
+        /** An ADD named a SKU that is already in the inventory. */
+        DUPLICATE_SKU,
+        /** An ADD named a product that belongs to another inventory. */
+        IN_OTHER_INVENTORY,
+        /** The SKU is not in the inventory. */
+        NOT_FOUND,
+        /** A SET_QUANTITY asked for a negative quantity. */
+        INVALID_QUANTITY,
+        /** An ADJUST_QUANTITY would take the stock below zero or past Integer.MAX_VALUE. */
+        INSUFFICIENT_STOCK
+    }
+
+    /**
+     * A single rejected operation.
+     */
+    public static final class Failure {
+        private final int index;
+        private final InventoryOp op;
+        private final Reason reason;
+
+        Failure(int index, InventoryOp op, Reason reason) {
+            this.index = index;
+            this.op = op;
+            this.reason = reason;
+        }
+
+        /**
+         * @return the operation's 0-based position in the batch
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the rejected operation
+         */
+        public InventoryOp getOp() {
+            return op;
+        }
+
+        /**
+         * @return why the operation was rejected
+         */
+        public Reason getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Op " + index + " " + reason + ": " + op;
+        }
+    }
+
+    static final int MAX_RECORDED_FAILURES = 1000;
+
+    private int added;
+    private int updated;
+    private int removed;
+    private final int[] failureCounts = new int[Reason.values().length];
+    private final List<Failure> failures = new ArrayList<>();
+
+    void added() {
+        added++;
+    }
+
+    void updated() {
+        updated++;
+    }
+
+    void removed() {
+        removed++;
+    }
+
+    void failed(int index, InventoryOp op, Reason reason) {
+        failureCounts[reason.ordinal()]++;
+        failures.add(new Failure(index, op, reason));
+    }
+
+    // Adds the result of part of a batch, mapping its operation indexes back to the whole batch.
+    void merge(BatchResult part, int[] batchIndex) {
+        added += part.added;
+        updated += part.updated;
+        removed += part.removed;
+        for (int i = 0; i < failureCounts.length; i++) {
+            failureCounts[i] += part.failureCounts[i];
+        }
+        for (Failure failure : part.failures) {
+            failures.add(new Failure(batchIndex[failure.index], failure.op, failure.reason));
+        }
+    }
+
+    // Operations are applied grouped by SKU; put recorded failures back in batch order before trimming.
+    void finish() {
+        failures.sort((a, b) -> Integer.compare(a.index, b.index));
+        if (failures.size() > MAX_RECORDED_FAILURES) {
+            failures.subList(MAX_RECORDED_FAILURES, failures.size()).clear();
+        }
+    }
+
+    /**
+     * @return the number of products added
+     */
+    public int getAdded() {
+        return added;
+    }
+
+    /**
+     * @return the number of quantity changes applied
+     */
+    public int getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return the number of products removed
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return the total number of rejected operations
+     */
+    public int getFailureCount() {
+        int total = 0;
+        for (int count : failureCounts) total += count;
+        return total;
+    }
+
+    /**
+     * Returns the number of operations rejected for the given reason.
+     *
+     * @param reason the reason to count
+     * @return the number of operations rejected for that reason
+     */
+    public int getFailureCount(Reason reason) {
+        return failureCounts[reason.ordinal()];
+    }
+
+    /**
+     * Returns the first rejected operations, up to 1000 of them.
+     *
+     * @return an unmodifiable list of failures in batch order
+     */
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Returns a one-line summary of the batch.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return "Added " + added + ", updated " + updated + ", removed " + removed
+                + ", rejected " + getFailureCount()
+                + " (duplicate SKU=" + getFailureCount(Reason.DUPLICATE_SKU)
+                + ", in other inventory=" + getFailureCount(Reason.IN_OTHER_INVENTORY)
+                + ", not found=" + getFailureCount(Reason.NOT_FOUND)
+                + ", invalid quantity=" + getFailureCount(Reason.INVALID_QUANTITY)
+                + ", insufficient stock=" + getFailureCount(Reason.INSUFFICIENT_STOCK) + ")";
+    }
+}
@@ -0,0 +1,182 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Category dictionary and bitmap index, used by InventoryManager.
+ *
+ * Category strings are interned: every product in the same category shares
+ * one String instance, so a catalog holds a few dozen category strings
+ * rather than one per product. Each indexed product gets a dense slot
+ * number, and every case-insensitive category has a CompactBitmap of the
+ * slots of its products. A category filter or count is then a walk over,
+ * or the cardinality of, a single bitmap.
+ *
+ * Slots are reused after removal, so they stay dense. Updates for one
+ * product are made under its SKU lock; each bitmap is guarded by its own
+ * monitor, and slot allocation by the index's.
+ */
+class CategoryIndex {
+
+    private static final Comparator<Product> BY_POSITION = Comparator.comparingLong(p -> p.position);
+
+    private final ConcurrentHashMap<String, String> dictionary = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompactBitmap> bitmaps = new ConcurrentHashMap<>();
+    // Bitmap for each exact spelling seen, so updates skip case folding.
+    private final ConcurrentHashMap<String, CompactBitmap> bySpelling = new ConcurrentHashMap<>();
+    private volatile Product[] slots = new Product[1024];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int nextSlot;
+
+    /**
+     * Returns the shared instance of a category string.
+     *
+     * @param category the category, or null
+     * @return an equal string shared by every product in the category
+     */
+    String intern(String category) {
+        if (category == null) return null;
+        String shared = dictionary.putIfAbsent(category, category);
+        return shared == null ? category : shared;
+    }
+
+    /**
+     * Gives a product a slot and indexes it under its category.
+     */
+    void add(Product product) {
+        int slot = allocate(product);
+        product.slot = slot;
+        if (product.category == null) return;
+        CompactBitmap bitmap = bitmapFor(product.category);
+        synchronized (bitmap) {
+            bitmap.add(slot);
+        }
+    }
+
+    /**
+     * Removes a product from its category and frees its slot.
+     */
+    void remove(Product product) {
+        int slot = product.slot;
+        if (slot < 0) return;
+        unindex(product.category, slot);
+        release(slot);
+        product.slot = -1;
+    }
+
+    /**
+     * Moves a product whose category changed to its new bitmap.
+     */
+    void move(String oldCategory, String newCategory, Product product) {
+        int slot = product.slot;
+        if (slot < 0) return;
+        unindex(oldCategory, slot);
+        if (newCategory == null) return;
+        CompactBitmap bitmap = bitmapFor(newCategory);
+        synchronized (bitmap) {
+            bitmap.add(slot);
+        }
+    }
+
+    /**
+     * Returns the number of products in a category, ignoring case.
+     */
+    int count(String category) {
+        CompactBitmap bitmap = category == null ? null : bitmaps.get(key(category));
+        if (bitmap == null) return 0;
+        synchronized (bitmap) {
+            return bitmap.cardinality();
+        }
+    }
+
+    /**
+     * Returns the products in a category, ignoring case, in display order.
+     * Results of at least {@code parallelThreshold} products are put in
+     * order with a parallel sort.
+     */
+    List<Product> products(String category, int parallelThreshold) {
+        List<Product> products = members(category);
+        if (products.size() < parallelThreshold) {
+            products.sort(BY_POSITION);
+            return products;
+        }
+        Product[] sorted = products.toArray(new Product[0]);
+        Arrays.parallelSort(sorted, BY_POSITION);
+        return new ArrayList<>(Arrays.asList(sorted));
+    }
+
+    /**
+     * Returns the products in a category, ignoring case, in slot order.
+     */
+    List<Product> members(String category) {
+        List<Product> products = new ArrayList<>();
+        CompactBitmap bitmap = category == null ? null : bitmaps.get(key(category));
+        if (bitmap == null) return products;
+        synchronized (bitmap) {
+            Product[] table = slots;
+            bitmap.forEach(slot -> products.add(table[slot]));
+        }
+        return products;
+    }
+
+    /**
+     * Keeps only the products that are in a category, ignoring case,
+     * preserving their order.
+     */
+    List<Product> retain(List<Product> candidates, String category) {
+        List<Product> products = new ArrayList<>();
+        CompactBitmap bitmap = category == null ? null : bitmaps.get(key(category));
+        if (bitmap == null) return products;
+        synchronized (bitmap) {
+            for (Product product : candidates) {
+                int slot = product.slot;
+                if (slot >= 0 && bitmap.contains(slot)) products.add(product);
+            }
+        }
+        return products;
+    }
+
+    private void unindex(String category, int slot) {
+        if (category == null) return;
+        CompactBitmap bitmap = bitmapFor(category);
+        synchronized (bitmap) {
+            bitmap.remove(slot);
+        }
+    }
+
+    private CompactBitmap bitmapFor(String category) {
+        CompactBitmap bitmap = bySpelling.get(category);
+        if (bitmap != null) return bitmap;
+        bitmap = bitmaps.computeIfAbsent(key(category), k -> new CompactBitmap());
+        bySpelling.put(category, bitmap);
+        return bitmap;
+    }
+
+    private synchronized int allocate(Product product) {
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot++;
+        Product[] table = slots;
+        if (slot == table.length) {
+            table = Arrays.copyOf(table, table.length * 2);
+        }
+        table[slot] = product;
+        slots = table;
+        return slot;
+    }
+
+    private synchronized void release(int slot) {
+        slots[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    // Folds case the way equalsIgnoreCase does, so both agree on which categories match.
+    static String key(String category) {
+        return category.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+}
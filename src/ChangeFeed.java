@@ -0,0 +1,211 @@
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An ordered stream of an InventoryManager's changes, for services that keep
+ * their own copy of the catalog up to date without rescanning it.
+ *
+ * Every add, remove and product change is appended with the next offset,
+ * starting at 0. Changes are appended under the product's SKU lock, so the
+ * changes to one SKU appear in the order they were made. The latest
+ * retention changes are kept in a ring; appending claims a slot with one
+ * atomic increment and never waits for subscribers.
+ *
+ * Subscribers follow the java.util.concurrent.Flow protocol and receive
+ * changes only as fast as they request them. Each subscription starts at an
+ * offset, the next one by default, so a consumer that stored the offset of
+ * the last change it applied can resume after a restart. A subscriber that
+ * falls more than retention changes behind, or asks to start from a change
+ * that is no longer kept, gets onError with an IllegalStateException and
+ * should resynchronize from a full scan. The feed never completes.
+ *
+ * Changes are delivered on virtual threads, one drain loop per
+ * subscription at a time, so a slow subscriber delays only itself.
+ */
+public final class ChangeFeed implements Flow.Publisher<InventoryChange> {
+
+    static final int DEFAULT_RETENTION = 1 << 16;
+
+    private final AtomicReferenceArray<InventoryChange> ring;
+    private final int mask;
+    // Offset the next change will take.
+    private final AtomicLong next = new AtomicLong();
+    private final CopyOnWriteArrayList<FeedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Executor executor = task -> Thread.ofVirtual().name("inventory-change-feed").start(task);
+
+    /**
+     * Creates a feed keeping at least the given number of changes. The
+     * retention is rounded up to a power of two.
+     *
+     * @param retention the number of past changes subscribers can resume from
+     */
+    ChangeFeed(int retention) {
+        if (retention < 1) {
+            throw new IllegalArgumentException("retention must be positive: " + retention);
+        }
+        int slots = Integer.highestOneBit(retention);
+        if (slots < retention) slots <<= 1;
+        this.ring = new AtomicReferenceArray<>(slots);
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Subscribes to the changes made from now on.
+     *
+     * @param subscriber the subscriber
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super InventoryChange> subscriber) {
+        subscribe(subscriber, nextOffset());
+    }
+
+    /**
+     * Subscribes to the changes starting at the given offset. Use the offset
+     * after the last change applied to resume, or nextOffset() to follow only
+     * new changes.
+     *
+     * @param subscriber the subscriber
+     * @param fromOffset the offset of the first change to deliver
+     */
+    public void subscribe(Flow.Subscriber<? super InventoryChange> subscriber, long fromOffset) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        FeedSubscription subscription = new FeedSubscription(subscriber, fromOffset);
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        if (fromOffset < 0 || fromOffset > nextOffset()) {
+            subscription.fail(new IllegalArgumentException("Offset " + fromOffset + " is outside the feed, next is "
+                    + nextOffset()));
+        }
+    }
+
+    /**
+     * @return the offset the next change will take
+     */
+    public long nextOffset() {
+        return next.get();
+    }
+
+    /**
+     * @return the oldest offset a subscription can start from
+     */
+    public long oldestOffset() {
+        return Math.max(0, next.get() - ring.length());
+    }
+
+    /**
+     * @return the number of changes kept for resuming subscribers
+     */
+    public int getRetention() {
+        return ring.length();
+    }
+
+    /**
+     * Appends a change to a product. Callers hold the product's SKU lock.
+     */
+    void append(InventoryChange.Type type, Product product) {
+        long offset = next.getAndIncrement();
+        InventoryChange change = new InventoryChange(offset, type, product);
+        int slot = (int) offset & mask;
+        InventoryChange current;
+        do {
+            current = ring.get(slot);
+            // A producer a whole ring ahead already stored a newer change here.
+            if (current != null && current.getOffset() > offset) break;
+        } while (!ring.compareAndSet(slot, current, change));
+        for (FeedSubscription subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * One subscriber's position and outstanding demand. Deliveries run in a
+     * drain loop that at most one thread executes at a time; wip counts the
+     * signals received while it runs, so none is lost.
+     */
+    private final class FeedSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super InventoryChange> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+        // Offset of the next change to deliver; only the drain loop uses it.
+        private long position;
+
+        FeedSubscription(Flow.Subscriber<? super InventoryChange> subscriber, long position) {
+            this.subscriber = subscriber;
+            this.position = position;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("request must be positive: " + n));
+                return;
+            }
+            demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        void fail(Throwable cause) {
+            error = cause;
+            schedule();
+        }
+
+        void signal() {
+            if (demand.get() > 0) schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) executor.execute(this::drain);
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (cancelled) return;
+                if (error != null) {
+                    terminate(error);
+                    return;
+                }
+                long requested = demand.get();
+                long emitted = 0;
+                while (emitted != requested && !cancelled) {
+                    InventoryChange change = ring.get((int) position & mask);
+                    // Either nothing or an older change is in the slot: this offset is not published yet.
+                    if (change == null || change.getOffset() < position) break;
+                    if (change.getOffset() > position) {
+                        terminate(new IllegalStateException("Offset " + position
+                                + " is no longer retained; the oldest is " + oldestOffset()));
+                        return;
+                    }
+                    try {
+                        subscriber.onNext(change);
+                    } catch (RuntimeException e) {
+                        cancel();
+                        return;
+                    }
+                    position++;
+                    emitted++;
+                }
+                if (emitted > 0 && requested != Long.MAX_VALUE) demand.addAndGet(-emitted);
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void terminate(Throwable cause) {
+            cancel();
+            subscriber.onError(cause);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for ChangeFeed: ordering, backpressure, resuming from an offset and
+ * replaying concurrent changes into a consistent copy.
+ */
+public class ChangeFeedTest {
+
+    public static void main(String[] args) throws Exception {
+        checkChangeTypes();
+        checkBackpressure();
+        checkResume();
+        checkReplayUnderConcurrency();
+        System.out.println("Change feed test passed.");
+    }
+
+    private static void checkChangeTypes() throws InterruptedException {
+        InventoryManager manager = newManager(1_024);
+        check(manager.changeFeed().nextOffset() == 0, "empty feed");
+        Collector collector = new Collector(Long.MAX_VALUE);
+        manager.changeFeed().subscribe(collector);
+
+        manager.addProduct(new Product("A1", "Apple", 5, 1.25, "Food"));
+        manager.updateQuantity("A1", 7);
+        Product apple = manager.findBySku("A1");
+        apple.setPrice(1.5);
+        apple.setName("Green apple");
+        apple.setCategory("Fruit");
+        manager.removeProduct("A1");
+        manager.updateQuantity("A1", 3);
+
+        List<InventoryChange> changes = collector.await(6);
+        InventoryChange.Type[] expected = {InventoryChange.Type.ADDED, InventoryChange.Type.QUANTITY_CHANGED,
+                InventoryChange.Type.PRICE_CHANGED, InventoryChange.Type.NAME_CHANGED,
+                InventoryChange.Type.CATEGORY_CHANGED, InventoryChange.Type.REMOVED};
+        for (int i = 0; i < expected.length; i++) {
+            check(changes.get(i).getType() == expected[i] && changes.get(i).getOffset() == i, "change " + i);
+        }
+        InventoryChange removed = changes.get(5);
+        check(removed.getSku().equals("A1") && removed.getQuantity() == 7 && removed.getPrice() == 1.5
+                && removed.getName().equals("Green apple") && removed.getCategory().equals("Fruit"), "full values");
+        check(manager.changeFeed().nextOffset() == 6, "missing product makes no change");
+    }
+
+    private static void checkBackpressure() throws InterruptedException {
+        InventoryManager manager = newManager(1_024);
+        Collector collector = new Collector(0);
+        manager.changeFeed().subscribe(collector, 0);
+        for (int i = 0; i < 100; i++) {
+            manager.addProduct(new Product("P" + i, "Part", i, 1.0, "Parts"));
+        }
+        Thread.sleep(50);
+        check(collector.received().isEmpty(), "nothing delivered without demand");
+        collector.subscription.request(5);
+        check(collector.await(5).size() == 5, "five requested");
+        Thread.sleep(50);
+        check(collector.received().size() == 5, "no more than requested");
+        collector.subscription.request(95);
+        List<InventoryChange> all = collector.await(100);
+        check(all.size() == 100 && all.get(99).getSku().equals("P99"), "rest delivered in order");
+    }
+
+    private static void checkResume() throws InterruptedException {
+        InventoryManager manager = newManager(16);
+        for (int i = 0; i < 40; i++) {
+            manager.addProduct(new Product("P" + i, "Part", i, 1.0, "Parts"));
+        }
+        ChangeFeed feed = manager.changeFeed();
+        check(feed.oldestOffset() == 24, "oldest retained offset");
+
+        Collector resumed = new Collector(Long.MAX_VALUE);
+        feed.subscribe(resumed, 30);
+        List<InventoryChange> changes = resumed.await(10);
+        check(changes.get(0).getOffset() == 30 && changes.get(0).getSku().equals("P30"), "resume from offset");
+
+        Collector tooOld = new Collector(Long.MAX_VALUE);
+        feed.subscribe(tooOld, 3);
+        check(tooOld.awaitError() instanceof IllegalStateException, "expired offset");
+        Collector tooNew = new Collector(Long.MAX_VALUE);
+        feed.subscribe(tooNew, 41);
+        check(tooNew.awaitError() instanceof IllegalArgumentException, "future offset");
+
+        // A subscriber that stops requesting is lapped and told to resynchronize.
+        Collector slow = new Collector(1);
+        feed.subscribe(slow);
+        for (int i = 40; i < 80; i++) {
+            manager.addProduct(new Product("P" + i, "Part", i, 1.0, "Parts"));
+        }
+        slow.await(1);
+        slow.subscription.request(100);
+        check(slow.awaitError() instanceof IllegalStateException, "lapped subscriber");
+    }
+
+    private static void checkReplayUnderConcurrency() throws InterruptedException {
+        int products = 200;
+        int writers = 4;
+        int changesPerWriter = 20_000;
+        InventoryManager manager = newManager(1 << 17);
+        for (int i = 0; i < products; i++) {
+            manager.addProduct(new Product("P" + i, "Part " + i, 0, 1.0, "Parts"));
+        }
+        Collector collector = new Collector(Long.MAX_VALUE);
+        manager.changeFeed().subscribe(collector, 0);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int seed = w;
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                for (int c = 0; c < changesPerWriter; c++) {
+                    Product product = manager.findBySku("P" + random.nextInt(products));
+                    if (random.nextBoolean()) {
+                        manager.updateQuantity(product.getSku(), random.nextInt(1_000));
+                    } else {
+                        product.setPrice(random.nextInt(10_000) / 100.0);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+
+        List<InventoryChange> changes = collector.await(products + writers * changesPerWriter);
+        Map<String, InventoryChange> replica = new HashMap<>();
+        for (int i = 0; i < changes.size(); i++) {
+            check(changes.get(i).getOffset() == i, "offsets are contiguous at " + i);
+            replica.put(changes.get(i).getSku(), changes.get(i));
+        }
+        for (int i = 0; i < products; i++) {
+            Product product = manager.findBySku("P" + i);
+            InventoryChange last = replica.get("P" + i);
+            check(last.getQuantity() == product.getQuantity() && last.getPrice() == product.getPrice(),
+                    "replica of P" + i);
+        }
+    }
+
+    private static InventoryManager newManager(int retention) {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        manager.enableChangeFeed(retention);
+        return manager;
+    }
+
+    /**
+     * Collects changes, requesting an initial amount when subscribed.
+     */
+    private static final class Collector implements Flow.Subscriber<InventoryChange> {
+        private final long initialRequest;
+        private final List<InventoryChange> changes = new ArrayList<>();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private final CountDownLatch failed = new CountDownLatch(1);
+        volatile Flow.Subscription subscription;
+
+        Collector(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) subscription.request(initialRequest);
+        }
+
+        @Override
+        public synchronized void onNext(InventoryChange change) {
+            changes.add(change);
+            notifyAll();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+            failed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            throw new IllegalStateException("The feed never completes");
+        }
+
+        synchronized List<InventoryChange> received() {
+            return new ArrayList<>(changes);
+        }
+
+        synchronized List<InventoryChange> await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (changes.size() < count && System.currentTimeMillis() < deadline) {
+                wait(100);
+            }
+            check(changes.size() >= count, "received " + changes.size() + " of " + count + " changes");
+            return new ArrayList<>(changes);
+        }
+
+        Throwable awaitError() throws InterruptedException {
+            check(failed.await(10, TimeUnit.SECONDS), "no error delivered");
+            return error.get();
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
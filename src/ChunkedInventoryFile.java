@@ -0,0 +1,437 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Binary inventory export split into independently compressed and
+ * checksummed chunks, so large catalogs can be encoded and decoded on
+ * several cores and a damaged block costs only the products in it.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   header   magic "INVC", version byte, compression byte, 2 reserved bytes
+ *   chunk    record count, raw length, stored length, CRC32C, stored bytes
+ *   ...
+ *   end      a chunk header with count and lengths 0
+ * </pre>
+ * The CRC32C covers the chunk's three length fields and its stored bytes.
+ * A chunk's raw bytes hold its records one after another: the SKU and name
+ * as UTF-8 strings prefixed with their byte length (-1 for null), the
+ * quantity as an int, the price as a double, and the category string.
+ *
+ * Writing encodes and compresses chunks on the common fork-join pool while
+ * the caller writes finished chunks in order; reading works the other way
+ * round. At most two chunks per pool thread are in flight, which bounds
+ * memory however large the file is.
+ */
+public final class ChunkedInventoryFile {
+
+    /**
+     * How each chunk's records are stored.
+     */
+    public enum Compression {
+        /** Records are stored as they are. */
+        NONE,
+        /** Records are compressed with raw Deflate. */
+        DEFLATE,
+        /** Each chunk is a GZIP member. */
+        GZIP
+    }
+
+    static final int DEFAULT_RECORDS_PER_CHUNK = 8192;
+
+    private static final int MAGIC = 0x494E5643; // "INVC"
+    private static final int VERSION = 1;
+    private static final int CHUNK_HEADER_SIZE = 16;
+    private static final int NULL_LENGTH = -1;
+    // No chunk the writer produces comes near this; larger lengths mean a damaged header.
+    private static final int MAX_CHUNK_BYTES = 1 << 28;
+
+    private ChunkedInventoryFile() {
+    }
+
+    /**
+     * Writes products to a chunked file with the default chunk size.
+     *
+     * @see #write(String, List, Compression, int)
+     */
+    static void write(String fileName, List<Product> products, Compression compression) throws IOException {
+        write(fileName, products, compression, DEFAULT_RECORDS_PER_CHUNK);
+    }
+
+    /**
+     * Writes products to a chunked file, replacing it if it exists.
+     *
+     * @param fileName        the file to write
+     * @param products        the products to store, in file order
+     * @param compression     how to store each chunk
+     * @param recordsPerChunk the number of products in each chunk
+     * @throws IOException if the file cannot be written
+     */
+    static void write(String fileName, List<Product> products, Compression compression, int recordsPerChunk)
+            throws IOException {
+        writeRecords(fileName, products, (out, p) ->
+                writeRecord(out, p.getSku(), p.getName(), p.getQuantity(), p.getPrice(), p.getCategory()),
+                compression, recordsPerChunk);
+    }
+
+    /**
+     * Writes the products of a snapshot to a chunked file with the default
+     * chunk size, replacing it if it exists.
+     *
+     * @param fileName    the file to write
+     * @param products    the snapshot's products, in file order
+     * @param compression how to store each chunk
+     * @throws IOException if the file cannot be written
+     */
+    static void writeSnapshot(String fileName, List<ProductSnapshot> products, Compression compression)
+            throws IOException {
+        writeRecords(fileName, products, (out, p) ->
+                writeRecord(out, p.getSku(), p.getName(), p.getQuantity(), p.getPrice(), p.getCategory()),
+                compression, DEFAULT_RECORDS_PER_CHUNK);
+    }
+
+    private static <T> void writeRecords(String fileName, List<T> products, RecordWriter<T> writer,
+                                         Compression compression, int recordsPerChunk) throws IOException {
+        if (compression == null) {
+            throw new IllegalArgumentException("compression must not be null");
+        }
+        if (recordsPerChunk < 1) {
+            throw new IllegalArgumentException("recordsPerChunk must be positive: " + recordsPerChunk);
+        }
+        int window = inFlightChunks();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(compression.ordinal());
+            out.writeShort(0);
+
+            ArrayDeque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+            for (int from = 0; from < products.size(); from += recordsPerChunk) {
+                List<T> records = products.subList(from, Math.min(products.size(), from + recordsPerChunk));
+                pending.add(CompletableFuture.supplyAsync(() -> encodeChunk(records, writer, compression)));
+                if (pending.size() >= window) out.write(join(pending.poll()));
+            }
+            while (!pending.isEmpty()) out.write(join(pending.poll()));
+            out.write(frame(0, 0, new byte[0]));
+        }
+    }
+
+    /**
+     * Reads every chunk of the file and hands each product to the sink, in
+     * file order. A chunk whose checksum or contents are wrong is skipped
+     * and reported as CORRUPT_CHUNK; reading stops at a damaged chunk
+     * header or a truncated file, keeping the products already loaded.
+     *
+     * @param fileName the file to read
+     * @param sink     receives each product and returns false if its SKU is a duplicate
+     * @return a report of loaded products and skipped records and chunks
+     * @throws IOException if the file cannot be read or is not a chunked inventory file
+     */
+    static LoadReport read(String fileName, Predicate<Product> sink) throws IOException {
+        LoadReport report = new LoadReport();
+        int window = inFlightChunks();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16))) {
+            Compression compression = readHeader(in);
+            report.bytesRead(8);
+
+            ArrayDeque<CompletableFuture<DecodedChunk>> pending = new ArrayDeque<>();
+            long[] recordNumber = {0};
+            long chunkNumber = 0;
+            // Why reading stopped before the end marker, reported after the chunks before it.
+            String stopped = null;
+            while (true) {
+                chunkNumber++;
+                int count;
+                int rawLength;
+                int storedLength;
+                int checksum;
+                byte[] stored;
+                try {
+                    count = in.readInt();
+                    rawLength = in.readInt();
+                    storedLength = in.readInt();
+                    checksum = in.readInt();
+                    if (count < 0 || rawLength < 0 || storedLength < 0
+                            || rawLength > MAX_CHUNK_BYTES || storedLength > MAX_CHUNK_BYTES) {
+                        stopped = "damaged chunk header, the rest of the file is skipped";
+                        break;
+                    }
+                    stored = new byte[storedLength];
+                    in.readFully(stored);
+                } catch (EOFException e) {
+                    stopped = "file is truncated";
+                    break;
+                }
+                report.bytesRead(CHUNK_HEADER_SIZE + storedLength);
+                if (count == 0 && rawLength == 0 && storedLength == 0
+                        && checksum == checksum(0, 0, stored)) {
+                    break;
+                }
+                long number = chunkNumber;
+                pending.add(CompletableFuture.supplyAsync(() ->
+                        decodeChunk(number, count, rawLength, checksum, stored, compression)));
+                if (pending.size() >= window) deliver(join(pending.poll()), sink, report, recordNumber);
+            }
+            while (!pending.isEmpty()) deliver(join(pending.poll()), sink, report, recordNumber);
+            if (stopped != null) report.error(chunkNumber, LoadReport.Reason.CORRUPT_CHUNK, stopped);
+        }
+        return report;
+    }
+
+    /**
+     * Tells whether a file starts like a chunked inventory file.
+     *
+     * @param fileName the file to check
+     * @return true if the file exists and starts with the chunked file's magic number
+     */
+    static boolean isChunked(String fileName) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(fileName))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Compression readHeader(DataInputStream in) throws IOException {
+        try {
+            if (in.readInt() != MAGIC) throw new IOException("Not a chunked inventory file");
+            int version = in.readUnsignedByte();
+            if (version != VERSION) throw new IOException("Unsupported chunked file version " + version);
+            int compression = in.readUnsignedByte();
+            in.readShort();
+            if (compression >= Compression.values().length) {
+                throw new IOException("Unknown compression " + compression);
+            }
+            return Compression.values()[compression];
+        } catch (EOFException e) {
+            throw new IOException("Not a chunked inventory file");
+        }
+    }
+
+    private static void deliver(DecodedChunk chunk, Predicate<Product> sink, LoadReport report, long[] recordNumber) {
+        if (chunk.error != null) {
+            report.error(chunk.number, LoadReport.Reason.CORRUPT_CHUNK, chunk.error);
+            return;
+        }
+        for (Product product : chunk.products) {
+            recordNumber[0]++;
+            report.lineRead();
+            if (sink.test(product)) {
+                report.productLoaded();
+            } else {
+                report.error(recordNumber[0], LoadReport.Reason.DUPLICATE_SKU, product.getSku());
+            }
+        }
+    }
+
+    private static <T> byte[] encodeChunk(List<T> records, RecordWriter<T> writer, Compression compression) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(records.size() * 48);
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (T record : records) {
+                writer.write(out, record);
+            }
+            byte[] raw = bytes.toByteArray();
+            return frame(records.size(), raw.length, compress(raw, compression));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static DecodedChunk decodeChunk(long number, int count, int rawLength, int checksum, byte[] stored,
+                                            Compression compression) {
+        if (checksum(count, rawLength, stored) != checksum) {
+            return new DecodedChunk(number, null, "checksum mismatch, " + stored.length + " bytes skipped");
+        }
+        try {
+            byte[] raw = decompress(stored, rawLength, compression);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+            List<Product> products = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String sku = readString(in);
+                String name = readString(in);
+                int quantity = in.readInt();
+                double price = in.readDouble();
+                String category = readString(in);
+                products.add(new Product(sku, name, quantity, price, category));
+            }
+            if (in.available() != 0) throw new IOException("unexpected bytes after the last record");
+            return new DecodedChunk(number, products, null);
+        } catch (IOException | DataFormatException | RuntimeException e) {
+            return new DecodedChunk(number, null, "cannot decode: " + e.getMessage());
+        }
+    }
+
+    private static byte[] compress(byte[] raw, Compression compression) throws IOException {
+        switch (compression) {
+            case DEFLATE: {
+                Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+                try {
+                    deflater.setInput(raw);
+                    deflater.finish();
+                    ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+                    byte[] buffer = new byte[1 << 14];
+                    while (!deflater.finished()) {
+                        out.write(buffer, 0, deflater.deflate(buffer));
+                    }
+                    return out.toByteArray();
+                } finally {
+                    deflater.end();
+                }
+            }
+            case GZIP: {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out, 1 << 14)) {
+                    gzip.write(raw);
+                }
+                return out.toByteArray();
+            }
+            default:
+                return raw;
+        }
+    }
+
+    private static byte[] decompress(byte[] stored, int rawLength, Compression compression)
+            throws IOException, DataFormatException {
+        switch (compression) {
+            case DEFLATE: {
+                Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(stored);
+                    byte[] raw = new byte[rawLength];
+                    int length = 0;
+                    while (length < rawLength) {
+                        int inflated = inflater.inflate(raw, length, rawLength - length);
+                        if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        length += inflated;
+                    }
+                    if (length != rawLength) throw new DataFormatException("chunk is shorter than its header says");
+                    return raw;
+                } finally {
+                    inflater.end();
+                }
+            }
+            case GZIP: {
+                try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(stored))) {
+                    byte[] raw = gzip.readNBytes(rawLength);
+                    if (raw.length != rawLength) throw new DataFormatException("chunk is shorter than its header says");
+                    return raw;
+                }
+            }
+            default:
+                if (stored.length != rawLength) throw new DataFormatException("stored and raw lengths differ");
+                return stored;
+        }
+    }
+
+    private static byte[] frame(int count, int rawLength, byte[] stored) {
+        return ByteBuffer.allocate(CHUNK_HEADER_SIZE + stored.length)
+                .putInt(count)
+                .putInt(rawLength)
+                .putInt(stored.length)
+                .putInt(checksum(count, rawLength, stored))
+                .put(stored)
+                .array();
+    }
+
+    private static int checksum(int count, int rawLength, byte[] stored) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(12).putInt(count).putInt(rawLength).putInt(stored.length).flip());
+        crc.update(stored);
+        return (int) crc.getValue();
+    }
+
+    private static void writeRecord(DataOutputStream out, String sku, String name, int quantity, double price,
+                                    String category) throws IOException {
+        writeString(out, sku);
+        writeString(out, name);
+        out.writeInt(quantity);
+        out.writeDouble(price);
+        writeString(out, category);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) return null;
+        if (length < 0 || length > in.available()) throw new IOException("bad string length " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int inFlightChunks() {
+        return 2 * Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Waits for a chunk task, rethrowing its failure unwrapped.
+     */
+    private static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Encodes one record of a list being written: a Product or a ProductSnapshot.
+     */
+    private interface RecordWriter<T> {
+        void write(DataOutputStream out, T record) throws IOException;
+    }
+
+    /**
+     * The products decoded from one chunk, or why it could not be decoded.
+     */
+    private static final class DecodedChunk {
+        final long number;
+        final List<Product> products;
+        final String error;
+
+        DecodedChunk(long number, List<Product> products, String error) {
+            this.number = number;
+            this.products = products;
+            this.error = error;
+        }
+    }
+}
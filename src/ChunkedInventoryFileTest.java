@@ -0,0 +1,163 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests for ChunkedInventoryFile: round trips with every compression, and
+ * that a damaged chunk or a truncated file loses only the products it held.
+ */
+public class ChunkedInventoryFileTest {
+
+    private static final int PRODUCTS = 10_000;
+    private static final int RECORDS_PER_CHUNK = 1_000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        checkRoundTrips();
+        checkCorruptChunk();
+        checkTruncatedFile();
+        checkManagerRoundTrip();
+        checkSnapshotSave();
+        System.out.println("Chunked file test passed.");
+    }
+
+    private static void checkRoundTrips() throws IOException {
+        List<Product> products = products();
+        for (ChunkedInventoryFile.Compression compression : ChunkedInventoryFile.Compression.values()) {
+            File file = tempFile();
+            ChunkedInventoryFile.write(file.getPath(), products, compression, RECORDS_PER_CHUNK);
+            check(ChunkedInventoryFile.isChunked(file.getPath()), "magic for " + compression);
+
+            List<Product> loaded = new ArrayList<>();
+            LoadReport report = ChunkedInventoryFile.read(file.getPath(), loaded::add);
+            check(report.getErrorCount() == 0 && report.getLoaded() == PRODUCTS, compression + ": " + report);
+            check(report.getBytesRead() == file.length(), "bytes read");
+            for (int i = 0; i < PRODUCTS; i++) {
+                check(same(products.get(i), loaded.get(i)), compression + " product " + i + ": " + loaded.get(i));
+            }
+        }
+        File empty = tempFile();
+        ChunkedInventoryFile.write(empty.getPath(), new ArrayList<>(), ChunkedInventoryFile.Compression.GZIP);
+        check(ChunkedInventoryFile.read(empty.getPath(), p -> true).getLinesRead() == 0, "empty file");
+        check(!ChunkedInventoryFile.isChunked(empty.getPath() + ".missing"), "missing file");
+    }
+
+    private static void checkCorruptChunk() throws IOException {
+        List<Product> products = products();
+        File file = tempFile();
+        ChunkedInventoryFile.write(file.getPath(), products, ChunkedInventoryFile.Compression.DEFLATE, RECORDS_PER_CHUNK);
+        // Flip one byte in the middle of the file, inside one chunk's compressed records.
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long position = raf.length() / 2;
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0x40);
+        }
+        List<Product> loaded = new ArrayList<>();
+        LoadReport report = ChunkedInventoryFile.read(file.getPath(), loaded::add);
+        check(report.getErrorCount(LoadReport.Reason.CORRUPT_CHUNK) == 1, "one corrupt chunk: " + report);
+        check(loaded.size() == PRODUCTS - RECORDS_PER_CHUNK, "other chunks load: " + loaded.size());
+        check(report.getErrors().get(0).toString().startsWith("Chunk "), "error names the chunk");
+    }
+
+    private static void checkTruncatedFile() throws IOException {
+        File file = tempFile();
+        ChunkedInventoryFile.write(file.getPath(), products(), ChunkedInventoryFile.Compression.NONE, RECORDS_PER_CHUNK);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() * 3 / 4);
+        }
+        List<Product> loaded = new ArrayList<>();
+        LoadReport report = ChunkedInventoryFile.read(file.getPath(), loaded::add);
+        check(report.getErrorCount(LoadReport.Reason.CORRUPT_CHUNK) == 1, "truncation reported: " + report);
+        check(loaded.size() > 0 && loaded.size() < PRODUCTS && loaded.size() % RECORDS_PER_CHUNK == 0,
+                "whole chunks before the cut load: " + loaded.size());
+    }
+
+    private static void checkManagerRoundTrip() throws IOException {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        for (Product product : products()) manager.addProduct(product);
+        File file = tempFile();
+        manager.saveChunked(file.getPath(), ChunkedInventoryFile.Compression.GZIP);
+
+        InventoryManager restored = new InventoryManager();
+        restored.setEventSink(InventoryEventSink.NONE);
+        restored.addProduct(new Product("P0", "Already here", 1, 1.0, "Misc"));
+        LoadReport report = restored.loadChunked(file.getPath());
+        check(report.getLoaded() == PRODUCTS - 1 && report.getErrorCount(LoadReport.Reason.DUPLICATE_SKU) == 1,
+                "duplicate SKU skipped: " + report);
+        check(restored.searchBySku("P42").getName().equals(manager.searchBySku("P42").getName()), "restored name");
+        check(restored.loadChunked(file.getPath() + ".missing") == null, "missing file");
+    }
+
+    /**
+     * With snapshots on, a chunked save is point-in-time: a writer sets every
+     * product's quantity to the round number in display order, so in any one
+     * snapshot the quantities never rise along that order.
+     */
+    private static void checkSnapshotSave() throws IOException, InterruptedException {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        for (int i = 0; i < PRODUCTS; i++) manager.addProduct(new Product("P" + i, "Item " + i, 0, 1.0, "Misc"));
+        manager.enableSnapshots();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (int round = 1; !done.get(); round++) {
+                for (int i = 0; i < PRODUCTS; i++) manager.updateQuantity("P" + i, round);
+            }
+        });
+        writer.start();
+        File file = tempFile();
+        try {
+            for (int save = 0; save < 5; save++) {
+                manager.saveChunked(file.getPath(), ChunkedInventoryFile.Compression.DEFLATE);
+                List<Product> loaded = new ArrayList<>();
+                ChunkedInventoryFile.read(file.getPath(), loaded::add);
+                check(loaded.size() == PRODUCTS, "saved products: " + loaded.size());
+                for (int i = 1; i < PRODUCTS; i++) {
+                    check(loaded.get(i).getQuantity() <= loaded.get(i - 1).getQuantity(),
+                            "save mixes rounds at product " + i);
+                }
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+    }
+
+    private static List<Product> products() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            String name;
+            switch (i % 5) {
+                case 0: name = "Desk, oak " + i; break;
+                case 1: name = "12\" \"Deluxe\" Pizza"; break;
+                case 2: name = "Two\nlines"; break;
+                case 3: name = "Café № " + i; break;
+                default: name = null; break;
+            }
+            products.add(new Product("P" + i, name, i - 50, i / 100.0, i % 7 == 0 ? null : "Cat" + i % 13));
+        }
+        return products;
+    }
+
+    private static boolean same(Product a, Product b) {
+        return a.getSku().equals(b.getSku()) && Objects.equals(a.getName(), b.getName())
+                && a.getQuantity() == b.getQuantity() && Double.compare(a.getPrice(), b.getPrice()) == 0
+                && Objects.equals(a.getCategory(), b.getCategory());
+    }
+
+    private static File tempFile() throws IOException {
+        File file = File.createTempFile("chunked-test", ".bin");
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
@@ -0,0 +1,584 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Column-oriented storage engine for scan-heavy inventory workloads.
+ *
+ * Instead of one Product object per row, the catalog is kept in parallel
+ * arrays: quantity in an int[], price in a double[], and category as int codes
+ * into a small dictionary. Price and quantity scans, range counts and
+ * aggregates run over contiguous primitive arrays. Product objects are only
+ * created when rows are returned to the caller, and they are detached copies:
+ * changing them does not write back.
+ *
+ * SKUs are found through an open-addressing table of row numbers, and removal
+ * moves the last row into the gap, so point operations stay O(1). Reads share
+ * a read lock and writes take the write lock.
+ *
+ * Obtain one with InventoryManager.toColumnar() or fill it with addProduct.
+ */
+public class ColumnarInventory {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int size;
+    private String[] skus = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private int[] categoryCodes = new int[INITIAL_CAPACITY];
+
+    // Category dictionary: code -> category string; the code of a null category is -1.
+    private String[] categories = new String[INITIAL_CAPACITY];
+    private int categoryCount;
+    private final HashMap<String, Integer> categoryIndex = new HashMap<>();
+
+    // Open-addressing SKU table holding row + 1, or 0 for an empty slot.
+    private int[] skuTable = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the product count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends a row with the product's values if its SKU is not already present.
+     * The Product object itself is not retained.
+     *
+     * @param product the product to copy
+     * @return false if the SKU already exists
+     */
+    public boolean addProduct(Product product) {
+        lock.writeLock().lock();
+        try {
+            String sku = product.getSku();
+            if (findRow(sku) >= 0) return false;
+            ensureCapacity(size + 1);
+            skus[size] = sku;
+            names[size] = product.getName();
+            quantities[size] = product.getQuantity();
+            prices[size] = product.getPrice();
+            categoryCodes[size] = encodeCategory(product.getCategory());
+            tablePut(sku, size);
+            size++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the row with the given SKU by moving the last row into its place.
+     *
+     * @param sku the SKU to remove
+     * @return false if no such SKU exists
+     */
+    public boolean removeProduct(String sku) {
+        lock.writeLock().lock();
+        try {
+            int row = findRow(sku);
+            if (row < 0) return false;
+            tableRemove(sku);
+            int last = --size;
+            if (row != last) {
+                tableMove(skus[last], last, row);
+                skus[row] = skus[last];
+                names[row] = names[last];
+                quantities[row] = quantities[last];
+                prices[row] = prices[last];
+                categoryCodes[row] = categoryCodes[last];
+            }
+            skus[last] = null;
+            names[last] = null;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the quantity of a product.
+     *
+     * @param sku    SKU of the product
+     * @param newQty the new quantity, not negative
+     * @return false if the quantity is negative or the SKU does not exist
+     */
+    public boolean updateQuantity(String sku, int newQty) {
+        if (newQty < 0) return false;
+        lock.writeLock().lock();
+        try {
+            int row = findRow(sku);
+            if (row < 0) return false;
+            quantities[row] = newQty;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds delta to the quantity of a product unless that would bring it below zero.
+     *
+     * @param sku   SKU of the product
+     * @param delta amount to add; negative values take stock out
+     * @return true if the quantity was changed
+     */
+    public boolean adjustQuantity(String sku, int delta) {
+        lock.writeLock().lock();
+        try {
+            int row = findRow(sku);
+            if (row < 0) return false;
+            long adjusted = (long) quantities[row] + delta;
+            if (adjusted < 0 || adjusted > Integer.MAX_VALUE) return false;
+            quantities[row] = (int) adjusted;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the price of a product.
+     *
+     * @param sku   SKU of the product
+     * @param price the new price
+     * @return false if the SKU does not exist
+     */
+    public boolean updatePrice(String sku, double price) {
+        lock.writeLock().lock();
+        try {
+            int row = findRow(sku);
+            if (row < 0) return false;
+            prices[row] = price;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Looks up a product by SKU. Like InventoryManager.searchBySku, the SKU is upper-cased first.
+     *
+     * @param sku the SKU to find
+     * @return a detached copy of the row, or null if there is none
+     */
+    public Product searchBySku(String sku) {
+        lock.readLock().lock();
+        try {
+            int row = findRow(sku.toUpperCase());
+            return row < 0 ? null : materialize(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Filters products whose name contains the query (case-insensitive).
+     *
+     * @param query the text to look for
+     * @return the matching products in row order
+     */
+    public List<Product> filterByName(String query) {
+        query = query.toLowerCase();
+        lock.readLock().lock();
+        try {
+            List<Product> products = new ArrayList<>();
+            for (int row = 0; row < size; row++) {
+                if (names[row] != null && names[row].toLowerCase().contains(query)) {
+                    products.add(materialize(row));
+                }
+            }
+            return products;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Filters products by category (case-insensitive). The query is resolved to
+     * dictionary codes once, then only the int code column is scanned.
+     *
+     * @param query the category to match
+     * @return the matching products in row order
+     */
+    public List<Product> filterByCategory(String query) {
+        lock.readLock().lock();
+        try {
+            boolean[] wanted = new boolean[categoryCount];
+            boolean any = false;
+            for (int code = 0; code < categoryCount; code++) {
+                if (categories[code].equalsIgnoreCase(query)) {
+                    wanted[code] = true;
+                    any = true;
+                }
+            }
+            List<Product> products = new ArrayList<>();
+            if (!any) return products;
+            for (int row = 0; row < size; row++) {
+                int code = categoryCodes[row];
+                if (code >= 0 && wanted[code]) {
+                    products.add(materialize(row));
+                }
+            }
+            return products;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Filters products with exactly the given price.
+     *
+     * @param query the price to match
+     * @return the matching products in row order
+     */
+    public List<Product> filterByExactPrice(double query) {
+        lock.readLock().lock();
+        try {
+            List<Product> products = new ArrayList<>();
+            for (int row = 0; row < size; row++) {
+                if (Double.compare(prices[row], query) == 0) {
+                    products.add(materialize(row));
+                }
+            }
+            return products;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Filters products whose price lies within [min, max].
+     *
+     * @param min minimum price, inclusive
+     * @param max maximum price, inclusive
+     * @return the matching products in row order
+     */
+    public List<Product> filterByPriceRange(double min, double max) {
+        lock.readLock().lock();
+        try {
+            List<Product> products = new ArrayList<>();
+            if (min > max) return products;
+            for (int row = 0; row < size; row++) {
+                double price = prices[row];
+                if (price >= min && price <= max) {
+                    products.add(materialize(row));
+                }
+            }
+            return products;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts products whose price lies within [min, max] without creating any objects.
+     *
+     * @param min minimum price, inclusive
+     * @param max maximum price, inclusive
+     * @return the number of matching rows
+     */
+    public int countByPriceRange(double min, double max) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (int row = 0; row < size; row++) {
+                double price = prices[row];
+                if (price >= min && price <= max) count++;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the total number of units in stock.
+     *
+     * @return the sum of all quantities
+     */
+    public long totalQuantity() {
+        lock.readLock().lock();
+        try {
+            long total = 0;
+            for (int row = 0; row < size; row++) {
+                total += quantities[row];
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the total value of the stock.
+     *
+     * @return the sum of quantity times price over all rows
+     */
+    public double totalValue() {
+        lock.readLock().lock();
+        try {
+            double total = 0;
+            for (int row = 0; row < size; row++) {
+                total += quantities[row] * prices[row];
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sorts the rows by product name. Null names come first in ascending order.
+     *
+     * @param ascending if true, sorts A–Z; if false, Z–A
+     */
+    public void sortByName(boolean ascending) {
+        lock.writeLock().lock();
+        try {
+            String[] keys = new String[size];
+            for (int row = 0; row < size; row++) {
+                keys[row] = names[row] == null ? null : names[row].toLowerCase();
+            }
+            reorder((a, b) -> compareNullable(keys[a], keys[b]), ascending);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sorts the rows by price.
+     *
+     * @param ascending if true, sorts in ascending price order
+     */
+    public void sortByPrice(boolean ascending) {
+        lock.writeLock().lock();
+        try {
+            double[] keys = prices;
+            reorder((a, b) -> Double.compare(keys[a], keys[b]), ascending);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sorts the rows by category. Null categories come first in ascending order.
+     * Categories are compared once per dictionary entry, then rows are sorted by rank.
+     *
+     * @param ascending if true, sorts A–Z; if false, Z–A
+     */
+    public void sortByCategory(boolean ascending) {
+        lock.writeLock().lock();
+        try {
+            Integer[] codes = new Integer[categoryCount];
+            for (int code = 0; code < categoryCount; code++) codes[code] = code;
+            Arrays.sort(codes, (a, b) -> categories[a].toLowerCase().compareTo(categories[b].toLowerCase()));
+            // Categories that differ only in case share a rank, as in InventoryManager.sortByCategory.
+            int[] rank = new int[categoryCount];
+            for (int i = 0; i < categoryCount; i++) {
+                boolean sameAsPrevious = i > 0
+                        && categories[codes[i]].equalsIgnoreCase(categories[codes[i - 1]]);
+                rank[codes[i]] = sameAsPrevious ? rank[codes[i - 1]] : i + 1;
+            }
+            int[] column = categoryCodes;
+            reorder((a, b) -> Integer.compare(column[a] < 0 ? 0 : rank[column[a]],
+                    column[b] < 0 ? 0 : rank[column[b]]), ascending);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sorts the rows by quantity.
+     *
+     * @param ascending if true, sorts in ascending quantity order
+     */
+    public void sortByQuantity(boolean ascending) {
+        lock.writeLock().lock();
+        try {
+            int[] keys = quantities;
+            reorder((a, b) -> Integer.compare(keys[a], keys[b]), ascending);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns every row as a Product, in row order.
+     *
+     * @return detached copies of all rows
+     */
+    public List<Product> toList() {
+        lock.readLock().lock();
+        try {
+            List<Product> products = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                products.add(materialize(row));
+            }
+            return products;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Product materialize(int row) {
+        int code = categoryCodes[row];
+        return new Product(skus[row], names[row], quantities[row], prices[row], code < 0 ? null : categories[code]);
+    }
+
+    private int encodeCategory(String category) {
+        if (category == null) return -1;
+        Integer code = categoryIndex.get(category);
+        if (code != null) return code;
+        if (categoryCount == categories.length) {
+            categories = Arrays.copyOf(categories, categoryCount * 2);
+        }
+        categories[categoryCount] = category;
+        categoryIndex.put(category, categoryCount);
+        return categoryCount++;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= skus.length) return;
+        int capacity = Math.max(needed, skus.length * 2);
+        skus = Arrays.copyOf(skus, capacity);
+        names = Arrays.copyOf(names, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        rebuildTable(capacity * 2);
+    }
+
+    /**
+     * Stable-sorts the row numbers with the comparator, then permutes every column to match.
+     */
+    private void reorder(RowComparator comparator, boolean ascending) {
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) rows[i] = i;
+        RowComparator order = ascending ? comparator : (a, b) -> comparator.compare(b, a);
+        mergeSort(rows, new int[size], 0, size, order);
+
+        String[] newSkus = new String[skus.length];
+        String[] newNames = new String[names.length];
+        int[] newQuantities = new int[quantities.length];
+        double[] newPrices = new double[prices.length];
+        int[] newCodes = new int[categoryCodes.length];
+        for (int i = 0; i < size; i++) {
+            int row = rows[i];
+            newSkus[i] = skus[row];
+            newNames[i] = names[row];
+            newQuantities[i] = quantities[row];
+            newPrices[i] = prices[row];
+            newCodes[i] = categoryCodes[row];
+        }
+        skus = newSkus;
+        names = newNames;
+        quantities = newQuantities;
+        prices = newPrices;
+        categoryCodes = newCodes;
+        rebuildTable(skuTable.length);
+    }
+
+    private static void mergeSort(int[] rows, int[] scratch, int from, int to, RowComparator order) {
+        if (to - from < 2) return;
+        int mid = (from + to) >>> 1;
+        mergeSort(rows, scratch, from, mid, order);
+        mergeSort(rows, scratch, mid, to, order);
+        if (order.compare(rows[mid - 1], rows[mid]) <= 0) return;
+        System.arraycopy(rows, from, scratch, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && order.compare(scratch[left], scratch[right]) <= 0)) {
+                rows[i] = scratch[left++];
+            } else {
+                rows[i] = scratch[right++];
+            }
+        }
+    }
+
+    private static int compareNullable(String a, String b) {
+        if (a == null && b == null) return 0;
+        if (a == null) return -1;
+        if (b == null) return 1;
+        return a.compareTo(b);
+    }
+
+    private int findRow(String sku) {
+        int mask = skuTable.length - 1;
+        int slot = spread(sku.hashCode()) & mask;
+        int entry;
+        while ((entry = skuTable[slot]) != 0) {
+            if (skus[entry - 1].equals(sku)) return entry - 1;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void tablePut(String sku, int row) {
+        int mask = skuTable.length - 1;
+        int slot = spread(sku.hashCode()) & mask;
+        while (skuTable[slot] != 0) slot = (slot + 1) & mask;
+        skuTable[slot] = row + 1;
+    }
+
+    private void tableMove(String sku, int oldRow, int newRow) {
+        int mask = skuTable.length - 1;
+        int slot = spread(sku.hashCode()) & mask;
+        while (skuTable[slot] != oldRow + 1) slot = (slot + 1) & mask;
+        skuTable[slot] = newRow + 1;
+    }
+
+    /**
+     * Deletes a SKU from the table, shifting later entries of the probe chain back into the gap.
+     */
+    private void tableRemove(String sku) {
+        int mask = skuTable.length - 1;
+        int slot = spread(sku.hashCode()) & mask;
+        while (!skus[skuTable[slot] - 1].equals(sku)) slot = (slot + 1) & mask;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (skuTable[next] != 0) {
+            int home = spread(skus[skuTable[next] - 1].hashCode()) & mask;
+            // Move the entry back if its home slot is not between the gap and its current slot.
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                skuTable[gap] = skuTable[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        skuTable[gap] = 0;
+    }
+
+    private void rebuildTable(int slots) {
+        skuTable = new int[slots];
+        for (int row = 0; row < size; row++) {
+            tablePut(skus[row], row);
+        }
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Compares two rows by index.
+     */
+    private interface RowComparator {
+        int compare(int a, int b);
+    }
+}
@@ -0,0 +1,102 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for ColumnarInventory.
+ * Applies the same random adds, removes and updates to an InventoryManager and
+ * a ColumnarInventory, then checks that lookups, filters, sorts and aggregates agree.
+ */
+public class ColumnarInventoryTest {
+
+    private static final String[] CATEGORIES = {"Electronics", "electronics", "Furniture", "Garden", null};
+
+    public static void main(String[] args) {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            Random random = new Random(7);
+            InventoryManager manager = new InventoryManager();
+            ColumnarInventory columnar = new ColumnarInventory();
+
+            for (int i = 0; i < 20_000; i++) {
+                String sku = "S" + random.nextInt(5_000);
+                switch (random.nextInt(4)) {
+                    case 0:
+                    case 1:
+                        Product product = new Product(sku, random.nextInt(10) == 0 ? null : "Item " + random.nextInt(500),
+                                random.nextInt(100), random.nextInt(2_000) / 4.0,
+                                CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                        boolean added = manager.searchBySku(sku) == null;
+                        manager.addProduct(product);
+                        check(columnar.addProduct(product) == added, "add " + sku);
+                        break;
+                    case 2:
+                        boolean present = manager.searchBySku(sku) != null;
+                        manager.removeProduct(sku);
+                        check(columnar.removeProduct(sku) == present, "remove " + sku);
+                        break;
+                    default:
+                        int quantity = random.nextInt(100);
+                        manager.updateQuantity(sku, quantity);
+                        columnar.updateQuantity(sku, quantity);
+                        break;
+                }
+            }
+
+            check(columnar.size() == manager.size(), "size");
+            for (int i = 0; i < 5_000; i++) {
+                Product expected = manager.searchBySku("S" + i);
+                Product actual = columnar.searchBySku("S" + i);
+                check(expected == null ? actual == null : expected.toString().equals(actual.toString()), "lookup S" + i);
+            }
+            checkSame(manager.filterByCategory("ELECTRONICS"), columnar.filterByCategory("ELECTRONICS"), "category");
+            checkSame(manager.filterByName("item 1"), columnar.filterByName("item 1"), "name");
+            checkSame(manager.filterByExactPrice(100.25), columnar.filterByExactPrice(100.25), "exact price");
+            checkSame(manager.filterByPriceRange(50, 150), columnar.filterByPriceRange(50, 150), "price range");
+            check(columnar.countByPriceRange(50, 150) == manager.filterByPriceRange(50, 150).size(), "count");
+
+            long units = 0;
+            for (Product product : manager.orderedProducts()) units += product.getQuantity();
+            check(columnar.totalQuantity() == units, "total quantity");
+
+            columnar.sortByPrice(false);
+            checkSorted(columnar.toList(), (a, b) -> Double.compare(b.getPrice(), a.getPrice()), "price desc");
+            columnar.sortByQuantity(true);
+            checkSorted(columnar.toList(), (a, b) -> Integer.compare(a.getQuantity(), b.getQuantity()), "quantity");
+            columnar.sortByCategory(true);
+            checkSorted(columnar.toList(), (a, b) -> a.getCategory() == null ? (b.getCategory() == null ? 0 : -1)
+                    : b.getCategory() == null ? 1 : a.getCategory().compareToIgnoreCase(b.getCategory()), "category");
+            columnar.sortByName(true);
+            checkSorted(columnar.toList(), (a, b) -> a.getName() == null ? (b.getName() == null ? 0 : -1)
+                    : b.getName() == null ? 1 : a.getName().toLowerCase().compareTo(b.getName().toLowerCase()), "name");
+            check(columnar.searchBySku(manager.orderedProducts().get(0).getSku()) != null, "lookup after sort");
+        } finally {
+            System.setOut(console);
+        }
+        console.println("Columnar inventory test passed.");
+    }
+
+    private static void checkSame(List<Product> expected, List<Product> actual, String what) {
+        List<String> a = new ArrayList<>();
+        List<String> b = new ArrayList<>();
+        for (Product p : expected) a.add(p.toString());
+        for (Product p : actual) b.add(p.toString());
+        a.sort(null);
+        b.sort(null);
+        check(a.equals(b), what + " filter differs");
+    }
+
+    private static void checkSorted(List<Product> products, Comparator<Product> order, String what) {
+        for (int i = 1; i < products.size(); i++) {
+            check(order.compare(products.get(i - 1), products.get(i)) <= 0, what + " not sorted at " + i);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
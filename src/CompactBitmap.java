@@ -0,0 +1,186 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints, laid out like a Roaring bitmap.
+ *
+ * Values are split by their high 16 bits into chunks of 65,536. Each chunk
+ * present in the set has a container: a sorted char array while it holds
+ * at most 4,096 values, and a 1,024-word bit set once it grows past that.
+ * Sparse chunks therefore cost two bytes per value and dense ones one bit,
+ * and membership is a binary search over chunk keys plus a lookup in one
+ * container.
+ *
+ * Not thread-safe; CategoryIndex guards each bitmap with its own monitor.
+ */
+class CompactBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int chunks;
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value the value, which must not be negative
+     */
+    void add(int value) {
+        char high = (char) (value >>> 16);
+        int i = Arrays.binarySearch(keys, 0, chunks, high);
+        if (i < 0) {
+            i = -i - 1;
+            if (chunks == keys.length) {
+                keys = Arrays.copyOf(keys, chunks * 2);
+                containers = Arrays.copyOf(containers, chunks * 2);
+            }
+            System.arraycopy(keys, i, keys, i + 1, chunks - i);
+            System.arraycopy(containers, i, containers, i + 1, chunks - i);
+            keys[i] = high;
+            containers[i] = new Container();
+            chunks++;
+        }
+        containers[i].add((char) value);
+    }
+
+    /**
+     * Removes a value from the set, dropping its container once it is empty.
+     *
+     * @param value the value to remove
+     */
+    void remove(int value) {
+        int i = Arrays.binarySearch(keys, 0, chunks, (char) (value >>> 16));
+        if (i < 0) return;
+        Container container = containers[i];
+        container.remove((char) value);
+        if (container.cardinality == 0) {
+            System.arraycopy(keys, i + 1, keys, i, chunks - i - 1);
+            System.arraycopy(containers, i + 1, containers, i, chunks - i - 1);
+            containers[--chunks] = null;
+        }
+    }
+
+    /**
+     * Returns whether the set holds the value.
+     */
+    boolean contains(int value) {
+        int i = Arrays.binarySearch(keys, 0, chunks, (char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    /**
+     * Returns the number of values in the set.
+     */
+    int cardinality() {
+        int total = 0;
+        for (int i = 0; i < chunks; i++) {
+            total += containers[i].cardinality;
+        }
+        return total;
+    }
+
+    /**
+     * Passes every value to the action in ascending order.
+     */
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < chunks; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * One 65,536-value chunk, held as a sorted array or as a bit set.
+     */
+    private static final class Container {
+        char[] values = new char[4];
+        long[] bits;
+        int cardinality;
+
+        void add(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) == 0) {
+                    bits[low >>> 6] |= mask;
+                    cardinality++;
+                }
+                return;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, low);
+            if (i >= 0) return;
+            if (cardinality == ARRAY_MAX) {
+                toBits();
+                add(low);
+                return;
+            }
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_MAX));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = low;
+            cardinality++;
+        }
+
+        void remove(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) != 0) {
+                    bits[low >>> 6] &= ~mask;
+                    cardinality--;
+                    if (cardinality <= ARRAY_MAX / 2) toArray();
+                }
+                return;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, low);
+            if (i < 0) return;
+            System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+            cardinality--;
+        }
+
+        boolean contains(char low) {
+            if (bits != null) return (bits[low >>> 6] & (1L << low)) != 0;
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        void forEach(int base, IntConsumer action) {
+            if (bits == null) {
+                for (int i = 0; i < cardinality; i++) {
+                    action.accept(base | values[i]);
+                }
+                return;
+            }
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    action.accept(base | (w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private void toBits() {
+            bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        // Converts back at half the array limit, so a chunk hovering near the limit does not flip on every update.
+        private void toArray() {
+            char[] sorted = new char[ARRAY_MAX];
+            int n = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    sorted[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            values = sorted;
+            bits = null;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Tests for CompactProduct and cent-based exact price matching.
+ */
+public class CompactProductTest {
+
+    public static void main(String[] args) {
+        checkRoundTrip();
+        checkExactPrice();
+        System.out.println("Compact product test passed.");
+    }
+
+    private static void checkRoundTrip() {
+        String longSku = "SKU-" + "X".repeat(100);
+        String[][] cases = {
+                {"A1", "Apple"},
+                {"B2", "Crème brûlée"},
+                {"C3", "Gadget ™ 🚀"},
+                {longSku, "Long SKU"},
+                {"D4", null},
+                {"", ""}
+        };
+        for (String[] c : cases) {
+            CompactProduct product = new CompactProduct(c[0], c[1], 7, 1999, "Food");
+            check(product.getSku().equals(c[0]), "sku " + c[0]);
+            check(Objects.equals(product.getName(), c[1]), "name " + c[1]);
+            check(product.getPrice() == 19.99 && product.getPriceCents() == 1999, "price");
+            check(product.withQuantity(3).getSku().equals(c[0]) && product.withQuantity(3).getQuantity() == 3, "withQuantity");
+            check(product.equals(new CompactProduct(c[0], c[1], 7, 1999, "Food")), "equals");
+        }
+        Product product = new Product("P1", "Pen", 4, 0.1 + 0.2, "Office");
+        CompactProduct compact = CompactProduct.of(product);
+        check(compact.getPriceCents() == 30, "rounded to cents");
+        check(compact.getCategory() == CompactProduct.of(new Product("P2", "Pad", 1, 1.0, new String("Office"))).getCategory(),
+                "categories are interned");
+        check(compact.toProduct().toString().equals(new Product("P1", "Pen", 4, 0.3, "Office").toString()), "toProduct");
+        check(compact.toString().equals(compact.toProduct().toString()), "toString matches Product");
+    }
+
+    private static void checkExactPrice() {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        manager.addProduct(new Product("A", "Apple", 5, 0.3, "Food"));
+        manager.addProduct(new Product("B", "Banana", 5, 0.1 + 0.2, "Food"));
+        manager.addProduct(new Product("C", "Cherry", 5, 0.31, "Food"));
+        manager.addProduct(new Product("D", "Date", 5, 0.29, "Food"));
+
+        check(skus(manager.filterByExactPrice(0.3)).equals(List.of("A", "B")), "exact price in cents");
+        check(skus(manager.filterByExactPrice(0.1 + 0.2)).equals(List.of("A", "B")), "query rounded to cents");
+        check(skus(manager.query().priceEquals(0.30000000000000004).list()).equals(List.of("A", "B")), "query priceEquals");
+
+        manager.setQueryCache(16, 1_000);
+        check(manager.filterByExactPrice(0.31).size() == 1, "cached exact price");
+        manager.findBySku("D").setPrice(0.31);
+        check(skus(manager.filterByExactPrice(0.31)).equals(List.of("C", "D")), "exact price result invalidated");
+    }
+
+    private static List<String> skus(List<Product> products) {
+        List<String> skus = new ArrayList<>();
+        for (Product product : products) skus.add(product.getSku());
+        return skus;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
@@ -0,0 +1,349 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Streaming loader for the inventory CSV format: sku,name,quantity,price,category.
+ *
+ * The file is read through a FileChannel into a reusable byte buffer and
+ * scanned for line and field separators directly, without readLine() or
+ * String.split(). Quantity and price are parsed straight from the bytes, and
+ * repeated category values share one String instance. Lines that cannot be
+ * loaded are recorded in a LoadReport instead of being printed.
+ *
+ * A field that starts with a double quote is quoted as in RFC 4180: it runs
+ * to the matching closing quote, may hold commas and line breaks, and
+ * writes a quote as two quotes. Quotes elsewhere in a field are plain
+ * characters, as older files wrote them. Older files may also start a field
+ * with a quote that never closes, as in {@code B1,"Big Widget,3,2.5,Tools}.
+ * When a line break inside a quoted field follows a line that, reading its
+ * quotes as plain characters, is a complete record, the loader looks ahead
+ * to where the quoted reading ends: if that is not a valid record, or the
+ * quote never closes, the quote was a plain character and the line ends at
+ * the break. Files written by InventoryManager always read as valid quoted
+ * records, so their multi-line fields are never split.
+ */
+public class CsvInventoryLoader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int CATEGORY_CACHE_SIZE = 256;
+    private static final int MAX_CACHED_CATEGORY_LENGTH = 64;
+    // Decimals with at most this many significant digits fit exactly in a double's mantissa.
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final int IN_QUOTES = 1;
+    private static final int QUOTE_SEEN = 2;
+
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    // Scan state of load: where the current line starts in the buffer, 0, IN_QUOTES or
+    // QUOTE_SEEN, and the first line break inside quotes if the text before it is a whole
+    // record with its quotes read as plain characters, else -1.
+    private int start;
+    private int quote;
+    private int legacyBreak;
+    private long lineNumber;
+    private final int[] commas = new int[4];
+    // Set by findCommas when the line holds a quoted field.
+    private boolean quotedLine;
+    private final byte[][] categoryKeys = new byte[CATEGORY_CACHE_SIZE][];
+    private final String[] categoryValues = new String[CATEGORY_CACHE_SIZE];
+    private int parsedInt;
+    private double parsedDouble;
+
+    /**
+     * Reads every line of the file and hands each parsed product to the sink.
+     *
+     * @param fileName the CSV file to read
+     * @param sink     receives each product and returns false if its SKU is a duplicate
+     * @return a report of loaded products and skipped lines
+     * @throws IOException if the file cannot be read
+     */
+    public LoadReport load(String fileName, Predicate<Product> sink) throws IOException {
+        LoadReport report = new LoadReport();
+        start = 0;
+        quote = 0;
+        legacyBreak = -1;
+        lineNumber = 0;
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            int limit = 0;
+            while (true) {
+                if (start > 0) {
+                    // Move the unfinished line to the front of the buffer.
+                    System.arraycopy(buffer, start, buffer, 0, limit - start);
+                    limit -= start;
+                    if (legacyBreak >= 0) legacyBreak -= start;
+                    start = 0;
+                } else if (limit == buffer.length) {
+                    // A single line is longer than the buffer.
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+
+                int read = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit));
+                if (read < 0) break;
+                report.bytesRead(read);
+
+                int scanFrom = limit;
+                limit += read;
+                scan(scanFrom, limit, sink, report);
+            }
+            // The last line has no line break, or the file ends inside a quoted field.
+            while (start < limit) {
+                int end = limit;
+                if (legacyBreak >= 0 && (quote == IN_QUOTES || !isRecord(start, limit, true))) end = legacyBreak;
+                parseLine(start, end, ++lineNumber, sink, report);
+                if (end == limit) break;
+                startAfter(end);
+                scan(start, limit, sink, report);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Scans buffer[from, to) and parses every line that ends in it.
+     */
+    private void scan(int from, int to, Predicate<Product> sink, LoadReport report) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer[i];
+            if (quote != 0) {
+                if (quote == IN_QUOTES) {
+                    if (b == '"') {
+                        quote = QUOTE_SEEN;
+                    } else if (b == '\n' && legacyBreak < 0 && isRecord(start, i, false)) {
+                        // Perhaps an older file's unclosed quote; decided where the quoted reading ends.
+                        legacyBreak = i;
+                    }
+                    continue;
+                } else if (b == '"') {
+                    quote = IN_QUOTES;
+                    continue;
+                }
+                quote = 0;
+            }
+            if (b == '\n') {
+                int end = i;
+                // Read with its quoted field the line is not a record, so the quote was a plain character.
+                if (legacyBreak >= 0 && !isRecord(start, i, true)) end = legacyBreak;
+                parseLine(start, end, ++lineNumber, sink, report);
+                startAfter(end);
+                // After a split the lines following the break are scanned again.
+                i = end;
+            } else if (b == '"' && (i == start || buffer[i - 1] == ',')) {
+                quote = IN_QUOTES;
+            }
+        }
+    }
+
+    private void startAfter(int lineEnd) {
+        start = lineEnd + 1;
+        quote = 0;
+        legacyBreak = -1;
+    }
+
+    /**
+     * Parses one line held in buffer[from, to) and passes the product to the sink.
+     */
+    private void parseLine(int from, int to, long lineNumber, Predicate<Product> sink, LoadReport report) {
+        report.lineRead();
+        if (to > from && buffer[to - 1] == '\r') to--;
+
+        int found = findCommas(from, to, true);
+        boolean quoted = quotedLine;
+        if (found < 0) {
+            // A quote opened a field and never closed: an older file's plain quote character.
+            found = findCommas(from, to, false);
+            quoted = false;
+        }
+        if (found != commas.length) {
+            report.error(lineNumber, LoadReport.Reason.MALFORMED_LINE, text(from, to));
+            return;
+        }
+
+        if (!parseInt(commas[1] + 1, commas[2]) || !parseDouble(commas[2] + 1, commas[3])) {
+            report.error(lineNumber, LoadReport.Reason.INVALID_NUMBER, text(from, to));
+            return;
+        }
+
+        Product product;
+        if (quoted) {
+            String category = commas[3] + 1 < to && buffer[commas[3] + 1] == '"'
+                    ? field(commas[3] + 1, to) : category(commas[3] + 1, to);
+            product = new Product(field(from, commas[0]), field(commas[0] + 1, commas[1]),
+                    parsedInt, parsedDouble, category);
+        } else {
+            product = new Product(text(from, commas[0]), text(commas[0] + 1, commas[1]),
+                    parsedInt, parsedDouble, category(commas[3] + 1, to));
+        }
+        if (sink.test(product)) {
+            report.productLoaded();
+        } else {
+            report.error(lineNumber, LoadReport.Reason.DUPLICATE_SKU, text(from, to));
+        }
+    }
+
+    /**
+     * Finds the field separators in buffer[from, to) and stores them in commas.
+     *
+     * @param quotes whether a field starting with a quote is quoted; sets quotedLine if one is
+     * @return the number of separators, commas.length + 1 if there are more,
+     *         or -1 if a quoted field is not closed
+     */
+    private int findCommas(int from, int to, boolean quotes) {
+        int found = 0;
+        int quote = 0;
+        quotedLine = false;
+        for (int i = from; i < to; i++) {
+            byte b = buffer[i];
+            if (quote != 0) {
+                if (quote == IN_QUOTES) {
+                    if (b == '"') quote = QUOTE_SEEN;
+                    continue;
+                }
+                if (b == '"') {
+                    quote = IN_QUOTES;
+                    continue;
+                }
+                quote = 0;
+            }
+            if (b == ',') {
+                if (found == commas.length) return found + 1;
+                commas[found++] = i;
+            } else if (quotes && b == '"' && (i == from || buffer[i - 1] == ',')) {
+                quote = IN_QUOTES;
+                quotedLine = true;
+            }
+        }
+        return quote == IN_QUOTES ? -1 : found;
+    }
+
+    /**
+     * Tells whether buffer[from, to) is a whole record with a valid quantity
+     * and price.
+     *
+     * @param quotes whether a field starting with a quote is quoted, or the quote is a plain character
+     */
+    private boolean isRecord(int from, int to, boolean quotes) {
+        if (to > from && buffer[to - 1] == '\r') to--;
+        return findCommas(from, to, quotes) == commas.length
+                && parseInt(commas[1] + 1, commas[2]) && parseDouble(commas[2] + 1, commas[3]);
+    }
+
+    /**
+     * Parses a decimal int from buffer[from, to) into parsedInt.
+     *
+     * @return false if the field is empty, not a number or out of range
+     */
+    private boolean parseInt(int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        if (i == to) return false;
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) return false;
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) return false;
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) return false;
+        parsedInt = (int) value;
+        return true;
+    }
+
+    /**
+     * Parses a double from buffer[from, to) into parsedDouble.
+     * Plain decimals with up to 15 significant digits are converted exactly by
+     * dividing the digits by a power of ten; anything else (exponents, long
+     * mantissas, surrounding spaces) falls back to Double.parseDouble.
+     *
+     * @return false if the field is not a valid number
+     */
+    private boolean parseDouble(int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int scale = 0;
+        boolean dot = false;
+        boolean anyDigit = false;
+        for (; i < to; i++) {
+            byte c = buffer[i];
+            if (c >= '0' && c <= '9') {
+                if (mantissa != 0 || c != '0') {
+                    if (++significantDigits > MAX_FAST_DIGITS) return parseDoubleSlow(from, to);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (dot) scale++;
+                anyDigit = true;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return parseDoubleSlow(from, to);
+            }
+        }
+        if (!anyDigit || scale >= POWERS_OF_TEN.length) return parseDoubleSlow(from, to);
+        double value = mantissa / POWERS_OF_TEN[scale];
+        parsedDouble = negative ? -value : value;
+        return true;
+    }
+
+    private boolean parseDoubleSlow(int from, int to) {
+        try {
+            parsedDouble = Double.parseDouble(new String(buffer, from, to - from, StandardCharsets.ISO_8859_1));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the category in buffer[from, to), reusing the String from an
+     * earlier line when the bytes are the same.
+     */
+    private String category(int from, int to) {
+        int length = to - from;
+        if (length > MAX_CACHED_CATEGORY_LENGTH) return text(from, to);
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (CATEGORY_CACHE_SIZE - 1);
+        byte[] key = categoryKeys[slot];
+        if (key != null && Arrays.equals(key, 0, key.length, buffer, from, to)) {
+            return categoryValues[slot];
+        }
+        String value = text(from, to);
+        categoryKeys[slot] = Arrays.copyOfRange(buffer, from, to);
+        categoryValues[slot] = value;
+        return value;
+    }
+
+    /**
+     * Returns the text field in buffer[from, to), removing its quotes if it is quoted.
+     */
+    private String field(int from, int to) {
+        if (to - from < 2 || buffer[from] != '"' || buffer[to - 1] != '"') return text(from, to);
+        return text(from + 1, to - 1).replace("\"\"", "\"");
+    }
+
+    private String text(int from, int to) {
+        return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+    }
+}
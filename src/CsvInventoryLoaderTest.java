@@ -0,0 +1,163 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for CsvInventoryLoader.
+ * Checks field parsing, error reporting, lines that span buffer refills,
+ * quoted fields and that the byte-level price parser agrees with
+ * Double.parseDouble.
+ */
+public class CsvInventoryLoaderTest {
+
+    public static void main(String[] args) throws IOException {
+        checkParsingAndErrors();
+        checkPricesMatchDoubleParse();
+        checkQuotedFields();
+        System.out.println("CSV loader test passed.");
+    }
+
+    private static void checkParsingAndErrors() throws IOException {
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) longName.append('x');
+
+        String csv = "A123,Keyboard,10,29.99,Electronics\n"
+                + "B456,Mouse,5,15.99,Electronics\r\n"
+                + "bad line without commas\n"
+                + "C789,Desk,ten,199.00,Furniture\n"
+                + "A123,Duplicate,1,1.0,Electronics\n"
+                + "D012,Café Table,-3,1e2,Furniture\n"
+                + "E345," + longName + ",1,0.5,Misc\n"
+                + "\n"
+                + "F678,Lamp,2,-0.25,Furniture";
+
+        File file = File.createTempFile("loader-test", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), csv.getBytes(StandardCharsets.UTF_8));
+
+        List<Product> loaded = new ArrayList<>();
+        LoadReport report = new CsvInventoryLoader().load(file.getPath(),
+                p -> loaded.stream().noneMatch(q -> q.getSku().equals(p.getSku())) && loaded.add(p));
+
+        check(report.getLinesRead() == 9, "lines read " + report.getLinesRead());
+        check(report.getLoaded() == 5, "loaded " + report.getLoaded());
+        check(report.getErrorCount(LoadReport.Reason.MALFORMED_LINE) == 2, "malformed count");
+        check(report.getErrorCount(LoadReport.Reason.INVALID_NUMBER) == 1, "invalid number count");
+        check(report.getErrorCount(LoadReport.Reason.DUPLICATE_SKU) == 1, "duplicate count");
+        check(report.getErrors().get(0).getLineNumber() == 3, "first error line");
+
+        Product mouse = loaded.get(1);
+        check(mouse.getCategory().equals("Electronics"), "CR not stripped: " + mouse.getCategory());
+        check(mouse.getCategory() == loaded.get(0).getCategory(), "category strings not shared");
+        Product table = loaded.get(2);
+        check(table.getName().equals("Café Table"), "UTF-8 name: " + table.getName());
+        check(table.getQuantity() == -3 && table.getPrice() == 100.0, "numbers: " + table);
+        check(loaded.get(3).getName().length() == longName.length(), "long line truncated");
+        check(loaded.get(4).getPrice() == -0.25, "last line without newline: " + loaded.get(4));
+    }
+
+    private static void checkPricesMatchDoubleParse() throws IOException {
+        Random random = new Random(42);
+        List<String> prices = new ArrayList<>();
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            String price;
+            switch (i % 4) {
+                case 0: price = (random.nextInt(100_000) / 100.0) + ""; break;
+                case 1: price = random.nextInt(1000) + "." + String.format("%02d", random.nextInt(100)); break;
+                case 2: price = Long.toString(random.nextLong() >>> 20) + "." + random.nextInt(10_000); break;
+                default: price = "0.000" + random.nextInt(1_000_000); break;
+            }
+            prices.add(price);
+            csv.append('S').append(i).append(",Item,1,").append(price).append(",Cat\n");
+        }
+
+        File file = File.createTempFile("loader-prices", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<Product> loaded = new ArrayList<>();
+        new CsvInventoryLoader().load(file.getPath(), loaded::add);
+        check(loaded.size() == prices.size(), "loaded " + loaded.size());
+        for (int i = 0; i < prices.size(); i++) {
+            double expected = Double.parseDouble(prices.get(i));
+            check(Double.compare(loaded.get(i).getPrice(), expected) == 0,
+                    prices.get(i) + " parsed as " + loaded.get(i).getPrice());
+        }
+    }
+
+    private static void checkQuotedFields() throws IOException {
+        String[][] products = {
+                {"Q1", "Desk, oak", "Furniture"},
+                {"Q2", "12\" \"Deluxe\" Pizza", "Food, frozen"},
+                {"Q3", "Two\nlines", "Misc"},
+                {"Q4", "Ends with CR\r", "\"Quoted\""},
+                {"Q5", "Plain", "Misc"},
+                // Fields whose first line on its own reads as a whole record.
+                {"Q7", "a,1,2.0,cat\nmore", "Misc"},
+                {"Q8", "Spans,3,4.5,Tools\r\nthree\nlines", "x,1,2.0,y\nz"},
+        };
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        for (String[] p : products) {
+            manager.addProduct(new Product(p[0], p[1], 1, 2.5, p[2]));
+        }
+        File file = File.createTempFile("loader-quoted", ".txt");
+        file.deleteOnExit();
+        manager.saveToFile(file.getPath());
+        // Lines written before fields were quoted keep their quotes as plain characters.
+        Files.write(file.toPath(), "Q6,12\" Pizza,1,2.5,Food\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        List<Product> loaded = new ArrayList<>();
+        LoadReport report = new CsvInventoryLoader().load(file.getPath(), loaded::add);
+        check(report.getErrorCount() == 0 && loaded.size() == products.length + 1, "quoted load: " + report);
+        for (int i = 0; i < products.length; i++) {
+            Product p = loaded.get(i);
+            check(p.getSku().equals(products[i][0]) && p.getName().equals(products[i][1])
+                    && p.getCategory().equals(products[i][2]) && p.getPrice() == 2.5, "quoted product " + p);
+        }
+        check(loaded.get(products.length).getName().equals("12\" Pizza"), "unquoted quote");
+        checkUnclosedLegacyQuotes();
+    }
+
+    private static void checkUnclosedLegacyQuotes() throws IOException {
+        String csv = "B1,\"Big Widget,3,2.5,Tools\n"
+                + "B2,Bolt,7,0.1,Tools\r\n"
+                + "B3,Nut,9,0.05,\"Hardware\n"
+                + "B4,\"Quoted, closed\",1,1.0,Tools\n"
+                + "B5,Washer,4,0.02,\"Parts";
+        File file = File.createTempFile("loader-legacy-quotes", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), csv.getBytes(StandardCharsets.UTF_8));
+
+        List<Product> loaded = new ArrayList<>();
+        LoadReport report = new CsvInventoryLoader().load(file.getPath(), loaded::add);
+        check(report.getErrorCount() == 0 && report.getLinesRead() == 5 && loaded.size() == 5,
+                "unclosed quotes swallowed lines: " + report);
+        check(loaded.get(0).getName().equals("\"Big Widget") && loaded.get(0).getQuantity() == 3, "legacy name " + loaded.get(0));
+        check(loaded.get(1).getCategory().equals("Tools"), "line after an unclosed quote " + loaded.get(1));
+        check(loaded.get(2).getCategory().equals("\"Hardware"), "legacy category " + loaded.get(2));
+        check(loaded.get(3).getName().equals("Quoted, closed"), "quoted name " + loaded.get(3));
+        check(loaded.get(4).getCategory().equals("\"Parts"), "unclosed quote at end of file " + loaded.get(4));
+
+        // The same two cases on the file's last line, which has no line break.
+        for (String last : new String[]{"E1,\"a,1,2.0,cat\nmore\",1,2.5,Misc", "E1,\"a,1,2.0,cat\nE2,b,1,2.0,c"}) {
+            Files.write(file.toPath(), last.getBytes(StandardCharsets.UTF_8));
+            loaded.clear();
+            report = new CsvInventoryLoader().load(file.getPath(), loaded::add);
+            boolean quoted = last.endsWith("Misc");
+            check(report.getErrorCount() == 0 && loaded.size() == (quoted ? 1 : 2), "last line: " + report);
+            check(loaded.get(0).getName().equals(quoted ? "a,1,2.0,cat\nmore" : "\"a"), "last line name " + loaded.get(0));
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
@@ -0,0 +1,262 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals over an InventoryManager's products, kept current by the
+ * manager's add, remove and field-change paths so reports never scan.
+ *
+ * Unit counts and stock value are LongAdders, updated by a delta on every
+ * change; value is kept in cents (price rounded to the cent, times quantity)
+ * so it adds up exactly. Each case-insensitive category has its own unit and
+ * value totals.
+ *
+ * Products whose quantity is below their reorder threshold are kept in an
+ * indexed min-heap on quantity: each product records its heap slot, so a
+ * change moves it in O(log n), and the k lowest are read in O(k log k)
+ * without copying the heap. Thresholds are set per category, with a default
+ * for the rest; changing one rebuilds the heap from the products. Changes to
+ * products that are neither low nor in the heap skip its monitor, so writes
+ * stay lock-free when no threshold is set.
+ *
+ * Hooks are called under the product's SKU lock. Totals read while changes
+ * are in flight may reflect some of them and not others.
+ */
+class InventoryAggregates {
+
+    private final LongAdder units = new LongAdder();
+    private final LongAdder valueCents = new LongAdder();
+    private final ConcurrentHashMap<String, CategoryTotals> categories = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Integer> thresholds = new ConcurrentHashMap<>();
+    private volatile int defaultThreshold;
+    // True while setThreshold rebuilds the heap; writers take the monitor rather than skip it.
+    private volatile boolean rebuilding;
+    // Min-heap of low-stock products on the quantity each had when last placed; guarded by this.
+    private Product[] heap = new Product[16];
+    private int[] heapKeys = new int[16];
+    private int heapSize;
+
+    /**
+     * Units and value of one category.
+     */
+    static final class CategoryTotals {
+        final String name;
+        final LongAdder units = new LongAdder();
+        final LongAdder valueCents = new LongAdder();
+
+        CategoryTotals(String name) {
+            this.name = name;
+        }
+    }
+
+    void added(Product product) {
+        apply(product.category, product.quantity, cents(product.price) * product.quantity);
+        checkLowStock(product);
+    }
+
+    void removed(Product product) {
+        apply(product.category, -product.quantity, -cents(product.price) * product.quantity);
+        if (product.lowStockSlot < 0 && !rebuilding) return;
+        synchronized (this) {
+            if (product.lowStockSlot >= 0) heapRemove(product);
+        }
+    }
+
+    void quantityChanged(Product product, int oldQuantity) {
+        int delta = product.quantity - oldQuantity;
+        apply(product.category, delta, cents(product.price) * delta);
+        checkLowStock(product);
+    }
+
+    void priceChanged(Product product, double oldPrice) {
+        long delta = (cents(product.price) - cents(oldPrice)) * product.quantity;
+        apply(product.category, 0, delta);
+    }
+
+    void categoryChanged(Product product, String oldCategory) {
+        long value = cents(product.price) * product.quantity;
+        apply(oldCategory, -product.quantity, -value);
+        apply(product.category, product.quantity, value);
+        checkLowStock(product);
+    }
+
+    long units() {
+        return units.sum();
+    }
+
+    long valueCents() {
+        return valueCents.sum();
+    }
+
+    /**
+     * Returns the totals for a category, ignoring case, or null if it never had products.
+     */
+    CategoryTotals category(String category) {
+        return category == null ? null : categories.get(CategoryIndex.key(category));
+    }
+
+    /**
+     * Returns the units held in each category, by the first spelling seen.
+     */
+    Map<String, Long> unitsPerCategory() {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (CategoryTotals category : categories.values()) {
+            long categoryUnits = category.units.sum();
+            if (categoryUnits != 0) totals.put(category.name, categoryUnits);
+        }
+        return totals;
+    }
+
+    /**
+     * Sets the reorder threshold for a category, or the default one when category is null.
+     * The low-stock heap is rebuilt from the given products.
+     */
+    synchronized void setThreshold(String category, int threshold, Iterable<Product> products) {
+        rebuilding = true;
+        try {
+            if (category == null) {
+                defaultThreshold = threshold;
+            } else {
+                thresholds.put(CategoryIndex.key(category), threshold);
+            }
+            for (int i = 0; i < heapSize; i++) {
+                heap[i].lowStockSlot = -1;
+                heap[i] = null;
+            }
+            heapSize = 0;
+            for (Product product : products) {
+                if (isLow(product)) heapAdd(product);
+            }
+        } finally {
+            rebuilding = false;
+        }
+    }
+
+    synchronized int lowStockCount() {
+        return heapSize;
+    }
+
+    /**
+     * Returns up to limit low-stock products, lowest quantity first. Walks the
+     * heap best-first, so only about limit entries are visited.
+     */
+    synchronized List<Product> lowStock(int limit) {
+        List<Product> lowest = new ArrayList<>(Math.min(limit, heapSize));
+        if (heapSize == 0 || limit == 0) return lowest;
+        PriorityQueue<Integer> frontier = new PriorityQueue<>((a, b) -> Integer.compare(heapKeys[a], heapKeys[b]));
+        frontier.add(0);
+        while (!frontier.isEmpty() && lowest.size() < limit) {
+            int slot = frontier.poll();
+            lowest.add(heap[slot]);
+            if (2 * slot + 1 < heapSize) frontier.add(2 * slot + 1);
+            if (2 * slot + 2 < heapSize) frontier.add(2 * slot + 2);
+        }
+        return lowest;
+    }
+
+    private void apply(String category, long unitDelta, long valueDelta) {
+        units.add(unitDelta);
+        valueCents.add(valueDelta);
+        if (category == null) return;
+        CategoryTotals totals = categories.get(CategoryIndex.key(category));
+        if (totals == null) {
+            totals = categories.computeIfAbsent(CategoryIndex.key(category), k -> new CategoryTotals(category));
+        }
+        totals.units.add(unitDelta);
+        totals.valueCents.add(valueDelta);
+    }
+
+    private boolean isLow(Product product) {
+        String category = product.category;
+        Integer threshold = category == null ? null : thresholds.get(CategoryIndex.key(category));
+        return product.quantity < (threshold == null ? defaultThreshold : threshold);
+    }
+
+    /**
+     * Adds, moves or removes a product in the heap after its quantity or
+     * category changed. Callers hold the product's SKU lock, so only this
+     * call or a rebuild can put it in the heap: a product that is neither
+     * low nor in the heap is skipped without taking the monitor, which
+     * keeps writes lock-free while low-stock tracking is off.
+     */
+    private void checkLowStock(Product product) {
+        // The quantity was written before rebuilding is read, so a rebuild that
+        // starts after the check sees the new quantity.
+        if (product.lowStockSlot < 0 && !rebuilding && !isLow(product)) return;
+        synchronized (this) {
+            boolean low = isLow(product);
+            if (product.lowStockSlot >= 0) {
+                if (low) {
+                    heapKeys[product.lowStockSlot] = product.quantity;
+                    siftDown(siftUp(product.lowStockSlot));
+                } else {
+                    heapRemove(product);
+                }
+            } else if (low) {
+                heapAdd(product);
+            }
+        }
+    }
+
+    private void heapAdd(Product product) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+        }
+        place(product, product.quantity, heapSize);
+        siftUp(heapSize++);
+    }
+
+    private void heapRemove(Product product) {
+        int slot = product.lowStockSlot;
+        product.lowStockSlot = -1;
+        Product last = heap[--heapSize];
+        heap[heapSize] = null;
+        if (slot == heapSize) return;
+        place(last, heapKeys[heapSize], slot);
+        siftDown(siftUp(slot));
+    }
+
+    private int siftUp(int slot) {
+        Product product = heap[slot];
+        int key = heapKeys[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) / 2;
+            if (heapKeys[parent] <= key) break;
+            place(heap[parent], heapKeys[parent], slot);
+            slot = parent;
+        }
+        place(product, key, slot);
+        return slot;
+    }
+
+    private void siftDown(int slot) {
+        Product product = heap[slot];
+        int key = heapKeys[slot];
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+            if (key <= heapKeys[child]) break;
+            place(heap[child], heapKeys[child], slot);
+            slot = child;
+        }
+        place(product, key, slot);
+    }
+
+    private void place(Product product, int key, int slot) {
+        heap[slot] = product;
+        heapKeys[slot] = key;
+        product.lowStockSlot = slot;
+    }
+
+    private static long cents(double price) {
+        return Math.round(price * 100);
+    }
+}
@@ -0,0 +1,162 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToIntFunction;
+
+/**
+ * Tests for InventoryManager's running aggregates and low-stock list,
+ * checked against totals recomputed from the products.
+ */
+public class InventoryAggregatesTest {
+
+    private static final String[] CATEGORIES = {"Food", "FOOD", "Toys", "Tools", null};
+
+    public static void main(String[] args) throws InterruptedException {
+        checkRandomChanges();
+        checkThresholds();
+        checkConcurrentAdjustments();
+        System.out.println("Aggregates test passed.");
+    }
+
+    private static void checkRandomChanges() {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        manager.setLowStockThreshold(10);
+        manager.setLowStockThreshold("toys", 25);
+        Random random = new Random(17);
+        List<Product> products = new ArrayList<>();
+        for (int step = 0; step < 20_000; step++) {
+            int op = random.nextInt(6);
+            if (op == 0 || products.isEmpty()) {
+                Product product = new Product("S" + step, "Item " + step, random.nextInt(50),
+                        random.nextInt(10_000) / 100.0, CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                manager.addProduct(product);
+                products.add(product);
+                continue;
+            }
+            Product product = products.get(random.nextInt(products.size()));
+            switch (op) {
+                case 1: manager.removeProduct(product.getSku()); products.remove(product); break;
+                case 2: manager.updateQuantity(product.getSku(), random.nextInt(50)); break;
+                case 3: manager.adjustQuantity(product.getSku(), random.nextInt(21) - 10); break;
+                case 4: product.setPrice(random.nextInt(10_000) / 100.0); break;
+                default: product.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]); break;
+            }
+            if (step % 1000 == 0) verify(manager, products, InventoryAggregatesTest::threshold);
+        }
+        verify(manager, products, InventoryAggregatesTest::threshold);
+        manager.clearInventory();
+        check(manager.totalUnits() == 0, "units after clear");
+        check(manager.totalValue().signum() == 0, "value after clear");
+        check(manager.lowStockCount() == 0, "low stock after clear");
+        check(manager.unitsPerCategory().isEmpty(), "categories after clear");
+    }
+
+    private static void checkThresholds() {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        manager.addProduct(new Product("A", "Apple", 3, 1.0, "Food"));
+        manager.addProduct(new Product("B", "Ball", 8, 2.0, "Toys"));
+        manager.addProduct(new Product("C", "Clamp", 1, 3.0, "Tools"));
+        check(manager.lowStockCount() == 0, "no threshold reports nothing");
+
+        manager.setLowStockThreshold(5);
+        check(skus(manager.lowStock(10)).equals(List.of("C", "A")), "default threshold " + skus(manager.lowStock(10)));
+        manager.setLowStockThreshold("TOYS", 10);
+        check(skus(manager.lowStock(10)).equals(List.of("C", "A", "B")), "category threshold");
+        check(skus(manager.lowStock(2)).equals(List.of("C", "A")), "limit");
+
+        manager.updateQuantity("C", 20);
+        check(skus(manager.lowStock(10)).equals(List.of("A", "B")), "restocked product leaves");
+        manager.findBySku("B").setCategory("Food");
+        check(skus(manager.lowStock(10)).equals(List.of("A")), "category change applies its threshold");
+        manager.removeProduct("A");
+        check(manager.lowStockCount() == 0, "removed product leaves");
+        check(manager.totalValue().compareTo(new BigDecimal("76.00")) == 0, "value " + manager.totalValue());
+    }
+
+    private static void checkConcurrentAdjustments() throws InterruptedException {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        manager.setLowStockThreshold(500);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Product product = new Product("P" + i, "Part " + i, 1000, 0.25, i % 2 == 0 ? "Even" : "Odd");
+            manager.addProduct(product);
+            products.add(product);
+        }
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 20_000; i++) {
+                    manager.adjustQuantity("P" + random.nextInt(200), random.nextInt(11) - 6);
+                }
+            });
+            threads[t].start();
+        }
+        // Rebuilds the heap with the same threshold while writers skip its monitor.
+        AtomicBoolean done = new AtomicBoolean();
+        Thread rebuilder = new Thread(() -> {
+            while (!done.get()) manager.setLowStockThreshold(500);
+        });
+        rebuilder.start();
+        for (Thread thread : threads) thread.join();
+        done.set(true);
+        rebuilder.join();
+        verify(manager, products, product -> 500);
+    }
+
+    private static int threshold(Product product) {
+        return "toys".equalsIgnoreCase(product.getCategory()) ? 25 : 10;
+    }
+
+    private static void verify(InventoryManager manager, List<Product> products, ToIntFunction<Product> threshold) {
+        long units = 0;
+        long cents = 0;
+        Map<String, Long> categoryUnits = new HashMap<>();
+        List<Integer> lowQuantities = new ArrayList<>();
+        for (Product product : products) {
+            units += product.getQuantity();
+            cents += Math.round(product.getPrice() * 100) * product.getQuantity();
+            if (product.getCategory() != null) {
+                categoryUnits.merge(product.getCategory().toLowerCase(Locale.ROOT), (long) product.getQuantity(), Long::sum);
+            }
+            if (product.getQuantity() < threshold.applyAsInt(product)) lowQuantities.add(product.getQuantity());
+        }
+        check(manager.totalUnits() == units, "units " + manager.totalUnits() + " != " + units);
+        check(manager.totalValue().equals(BigDecimal.valueOf(cents, 2)), "value " + manager.totalValue());
+        for (Map.Entry<String, Long> entry : categoryUnits.entrySet()) {
+            check(manager.unitsByCategory(entry.getKey()) == entry.getValue(), "units in " + entry.getKey());
+        }
+        long listed = 0;
+        for (long categoryTotal : manager.unitsPerCategory().values()) listed += categoryTotal;
+        long expected = 0;
+        for (long categoryTotal : categoryUnits.values()) expected += categoryTotal;
+        check(listed == expected, "units per category " + listed + " != " + expected);
+
+        lowQuantities.sort(null);
+        check(manager.lowStockCount() == lowQuantities.size(),
+                "low stock count " + manager.lowStockCount() + " != " + lowQuantities.size());
+        List<Product> lowest = manager.lowStock(lowQuantities.size());
+        for (int i = 0; i < lowest.size(); i++) {
+            check(lowest.get(i).getQuantity() == lowQuantities.get(i), "low stock order at " + i);
+        }
+    }
+
+    private static List<String> skus(List<Product> products) {
+        List<String> skus = new ArrayList<>();
+        for (Product product : products) skus.add(product.getSku());
+        return skus;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
@@ -1,3 +1,5 @@
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Scanner;
 
@@ -11,17 +13,28 @@ public class InventoryApp {
 
     private static final Scanner scanner = new Scanner(System.in);
     private static final InventoryManager manager = new InventoryManager();
+    // Prints events from a background thread so inventory operations never wait on the console.
+    private static final AsyncEventSink events = new AsyncEventSink(InventoryEventSink.CONSOLE);
+    private static final int PAGE_SIZE = 10;
 
     /**
      * Entry point of the application.
      * Displays a menu and handles user interactions for inventory operations.
+     * With {@code --server [port]}, serves the inventory over HTTP instead.
      *
-     * @param args command-line arguments (not used)
+     * @param args command-line arguments: none, or --server and an optional port (default 8080)
      */
     public static void main(String[] args) {
+        manager.setEventSink(events);
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args.length > 1 ? Integer.parseInt(args[1]) : 8080);
+            return;
+        }
         boolean running = true;
 
         while (running) {
+            // Let the last operation's messages print before the menu.
+            events.flush();
             System.out.println("========= Inventory Menu =========");
             System.out.println("1. Add a product");
             System.out.println("2. Remove a product");
@@ -61,10 +74,10 @@ public class InventoryApp {
                         sortMenu();
                         break;
                     case 7:
-                        manager.saveToFile();
+                        saveMenu();
                         break;
                     case 8:
-                        manager.loadFromFile();
+                        loadMenu();
                         break;
                     case 9:
                         running = false;
@@ -77,9 +90,28 @@ public class InventoryApp {
             }
 
         }
+        events.close();
     }
 
 
+    /**
+     * Loads inventory.txt if it exists and serves the inventory as JSON over
+     * HTTP until the process is stopped. Events are printed from a background
+     * thread so request threads never wait on the console.
+     */
+    private static void runServer(int port) {
+        if (new File("inventory.txt").exists()) {
+            manager.loadFromFile();
+        }
+        try {
+            InventoryServer server = new InventoryServer(manager, port);
+            server.start();
+            System.out.println("Inventory server listening on port " + server.getPort());
+        } catch (IOException e) {
+            System.out.println("Error starting server: " + e.getMessage());
+        }
+    }
+
     /**
      * Prompts the user for product information through the console.
      * Allows manual SKU entry or auto-generates one if left blank.
@@ -132,9 +164,78 @@ public class InventoryApp {
         }
     }
 
+    /**
+     * Prints a query's results one page at a time, asking before each further page.
+     * One extra result is fetched per page to tell whether another page exists.
+     *
+     * @param query the query to page through
+     */
+    private static void printPages(InventoryQuery query){
+        for (long page = 0; ; page++) {
+            List<Product> products = query.offset(page * PAGE_SIZE).limit(PAGE_SIZE + 1).list();
+            if (page == 0 && products.isEmpty()) {
+                System.out.println("No products found.");
+                return;
+            }
+            printProductsList(products.subList(0, Math.min(PAGE_SIZE, products.size())));
+            if (products.size() <= PAGE_SIZE) return;
+            System.out.println("Show more? (y/n)");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("y")) return;
+        }
+    }
+
+    /**
+     * Asks for a file name and a format and saves the inventory to it.
+     * Chunked files can be compressed and are checked for damage on load.
+     */
+    private static void saveMenu(){
+        String fileName = promptFileName();
+        System.out.println("Select file format");
+        System.out.println("1. CSV text");
+        System.out.println("2. Chunked binary");
+        System.out.println("3. Chunked binary, Deflate compressed");
+        System.out.println("4. Chunked binary, GZIP compressed");
+        switch (scanner.nextLine().trim()) {
+            case "1":
+                manager.saveToFile(fileName);
+                break;
+            case "2":
+                manager.saveChunked(fileName, ChunkedInventoryFile.Compression.NONE);
+                break;
+            case "3":
+                manager.saveChunked(fileName, ChunkedInventoryFile.Compression.DEFLATE);
+                break;
+            case "4":
+                manager.saveChunked(fileName, ChunkedInventoryFile.Compression.GZIP);
+                break;
+            default:
+                System.out.println("Invalid input.");
+        }
+    }
+
+    /**
+     * Asks for a file name and loads it, as CSV or chunked binary depending
+     * on how the file starts.
+     */
+    private static void loadMenu(){
+        String fileName = promptFileName();
+        if (ChunkedInventoryFile.isChunked(fileName)) {
+            manager.loadChunked(fileName);
+        } else {
+            manager.loadFromFile(fileName);
+        }
+    }
+
+    private static String promptFileName(){
+        System.out.print("Enter file name (leave blank for inventory.txt): ");
+        String fileName = scanner.nextLine().trim();
+        return fileName.isEmpty() ? "inventory.txt" : fileName;
+    }
+
     /**
      * Displays filtering options to the user and handles filter input.
-     * Supports filtering by category, name, exact price, and price range.
+     * Supports filtering by category, name, exact price, and price range,
+     * and pages through the results.
      */
     private static void filterMenu(){
         System.out.println("Select filtering method");
@@ -148,24 +249,24 @@ public class InventoryApp {
                 case 1:
                     System.out.println("Enter Category:");
                     String userCategory = scanner.nextLine().trim();
-                    manager.filterByCategory(userCategory);
+                    printPages(manager.query().category(userCategory));
                     break;
                 case 2:
                     System.out.println("Enter Name:");
                     String userName = scanner.nextLine().trim();
-                    manager.filterByName(userName);
+                    printPages(manager.query().nameContains(userName));
                     break;
                 case 3:
                     System.out.println("Enter Exact Price:");
                     double userExactPrice = Double.parseDouble(scanner.nextLine().trim());
-                    manager.filterByExactPrice(userExactPrice);
+                    printPages(manager.query().priceEquals(userExactPrice));
                     break;
                 case 4:
                     System.out.println("Enter Minimum:");
                     double min = Double.parseDouble(scanner.nextLine().trim());
                     System.out.println("Enter Maximum:");
                     double max = Double.parseDouble(scanner.nextLine().trim());
-                    manager.filterByPriceRange(min, max);
+                    printPages(manager.query().priceBetween(min, max));
                     break;
                 default:
                     System.out.println("Invalid input.");
@@ -215,16 +316,16 @@ public class InventoryApp {
 
                 switch(sortChoice){
                     case 1:
-                        manager.sortByName(ascending);
+                        printProductsList(manager.sortByName(ascending));
                         break;
                     case 2:
-                        manager.sortByPrice(ascending);
+                        printProductsList(manager.sortByPrice(ascending));
                         break;
                     case 3:
-                        manager.sortByCategory(ascending);
+                        printProductsList(manager.sortByCategory(ascending));
                         break;
                     case 4:
-                        manager.sortByQuantity(ascending);
+                        printProductsList(manager.sortByQuantity(ascending));
                         break;
                     default:
                         System.out.println("Invalid sorting method");
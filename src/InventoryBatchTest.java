@@ -0,0 +1,120 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for InventoryManager.applyBatch.
+ * A random batch is applied in one call and, operation by operation, through
+ * the single-item methods on a second manager; both must end up with the same
+ * products and quantities, and the batch result must count every rejection.
+ */
+public class InventoryBatchTest {
+
+    public static void main(String[] args) {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            checkMatchesSingleOps();
+            checkFailures();
+        } finally {
+            System.setOut(console);
+        }
+        console.println("Batch test passed.");
+    }
+
+    private static void checkMatchesSingleOps() {
+        Random random = new Random(3);
+        InventoryManager batched = new InventoryManager();
+        InventoryManager single = new InventoryManager();
+        for (int i = 0; i < 500; i++) {
+            batched.addProduct(new Product("S" + i, "Item " + i, 10, 1.0, "Toys"));
+            single.addProduct(new Product("S" + i, "Item " + i, 10, 1.0, "Toys"));
+        }
+
+        List<InventoryOp> ops = new ArrayList<>();
+        int rejected = 0;
+        for (int i = 0; i < 20_000; i++) {
+            String sku = "S" + random.nextInt(1_000);
+            InventoryOp op;
+            boolean applied;
+            switch (random.nextInt(4)) {
+                case 0:
+                    op = InventoryOp.add(new Product(sku, "New " + i, random.nextInt(20), 2.0, "Garden"));
+                    applied = single.searchBySku(sku) == null;
+                    single.addProduct(new Product(sku, "New " + i, op.getProduct().getQuantity(), 2.0, "Garden"));
+                    break;
+                case 1:
+                    op = InventoryOp.remove(sku);
+                    applied = single.searchBySku(sku) != null;
+                    single.removeProduct(sku);
+                    break;
+                case 2:
+                    op = InventoryOp.setQuantity(sku, random.nextInt(30) - 5);
+                    applied = single.searchBySku(sku) != null && op.getAmount() >= 0;
+                    single.updateQuantity(sku, op.getAmount());
+                    break;
+                default:
+                    op = InventoryOp.adjustQuantity(sku, random.nextInt(20) - 10);
+                    applied = single.adjustQuantity(sku, op.getAmount());
+                    break;
+            }
+            if (!applied) rejected++;
+            ops.add(op);
+        }
+
+        BatchResult result = batched.applyBatch(ops);
+        check(result.getFailureCount() == rejected,
+                "expected " + rejected + " rejections, got " + result.getFailureCount());
+        check(result.getAdded() + result.getUpdated() + result.getRemoved() + rejected == ops.size(),
+                "every op counted once: " + result);
+        check(batched.size() == single.size(), "size " + batched.size() + " vs " + single.size());
+        for (Product expected : single.orderedProducts()) {
+            Product actual = batched.searchBySku(expected.getSku());
+            check(actual != null, "missing " + expected.getSku());
+            check(actual.getQuantity() == expected.getQuantity(), expected.getSku() + " quantity "
+                    + actual.getQuantity() + " vs " + expected.getQuantity());
+            check(actual.getName().equals(expected.getName()), expected.getSku() + " name");
+        }
+        List<Product> indexed = batched.filterByQuantityRange(0, Integer.MAX_VALUE);
+        check(indexed.size() == batched.size(), "quantity index size");
+        for (Product product : indexed) {
+            check(batched.filterByQuantityRange(product.getQuantity(), product.getQuantity()).contains(product),
+                    "quantity index entry for " + product.getSku());
+        }
+    }
+
+    private static void checkFailures() {
+        InventoryManager manager = new InventoryManager();
+        InventoryManager other = new InventoryManager();
+        Product owned = new Product("OWNED", "Owned", 1, 1.0, "Toys");
+        other.addProduct(owned);
+
+        List<InventoryOp> ops = new ArrayList<>();
+        ops.add(InventoryOp.add(new Product("A", "Apple", 5, 1.0, "Food")));
+        ops.add(InventoryOp.setQuantity("B", 3));
+        ops.add(InventoryOp.add(new Product("A", "Apple again", 5, 1.0, "Food")));
+        ops.add(InventoryOp.adjustQuantity("A", -6));
+        ops.add(InventoryOp.add(owned));
+        ops.add(InventoryOp.setQuantity("A", -1));
+        ops.add(InventoryOp.adjustQuantity("A", -5));
+        BatchResult result = manager.applyBatch(ops);
+
+        check(result.getAdded() == 1 && result.getUpdated() == 1 && result.getRemoved() == 0, result.toString());
+        check(manager.searchBySku("A").getQuantity() == 0, "folded quantity");
+        check(result.getFailureCount(BatchResult.Reason.NOT_FOUND) == 1, "not found");
+        check(result.getFailureCount(BatchResult.Reason.DUPLICATE_SKU) == 1, "duplicate");
+        check(result.getFailureCount(BatchResult.Reason.INSUFFICIENT_STOCK) == 1, "insufficient stock");
+        check(result.getFailureCount(BatchResult.Reason.IN_OTHER_INVENTORY) == 1, "other inventory");
+        check(result.getFailureCount(BatchResult.Reason.INVALID_QUANTITY) == 1, "invalid quantity");
+        int[] expectedIndexes = {1, 2, 3, 4, 5};
+        for (int i = 0; i < expectedIndexes.length; i++) {
+            check(result.getFailures().get(i).getIndex() == expectedIndexes[i], "failures in batch order");
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
@@ -0,0 +1,270 @@
+import com.sun.management.ThreadMXBean;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Micro-benchmark harness for InventoryManager.
+ *
+ * Measures addProduct, applyBatch, searchBySku, updateQuantity, filterByName,
+ * filterByNamePrefix, filterByPriceRange with and without the query cache, a
+ * paged query, the stock dashboard (total value, units in a category and the
+ * 20 lowest-stock products), the four sortBy* methods, saveToFile,
+ * loadFromFile, and saveChunked and loadChunked with Deflate at several
+ * catalog sizes, and reports throughput, average
+ * latency, allocated bytes per operation, allocation rate and GC activity for
+ * each one. Managers report to
+ * InventoryEventSink.NONE, so no console output is measured.
+ *
+ * Usage: java InventoryBenchmark [size ...]   (defaults to 1000 100000 1000000)
+ */
+public class InventoryBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {1_000, 100_000, 1_000_000};
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 500_000_000L;
+
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final PrintStream CONSOLE = System.out;
+
+    // Results are folded into this field so the JIT cannot drop the benchmarked calls.
+    private static volatile long sink;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        File file = File.createTempFile("inventory-bench", ".txt");
+        file.deleteOnExit();
+        String path = file.getPath();
+
+        CONSOLE.printf("%-20s %10s %14s %14s %14s %12s %8s%n",
+                "Benchmark", "Size", "ops/s", "avg us/op", "alloc B/op", "alloc MB/s", "GCs");
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (int size : sizes) {
+                benchmarkSize(size, path);
+            }
+        } finally {
+            System.setOut(CONSOLE);
+        }
+    }
+
+    /**
+     * Runs every benchmark against a catalog of the given size.
+     *
+     * @param size the number of products in the catalog
+     * @param path the scratch file used by the save and load benchmarks
+     */
+    private static void benchmarkSize(int size, String path) {
+        Product[] products = generateProducts(size);
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        for (Product product : products) {
+            manager.addProduct(product);
+        }
+
+        // A product belongs to one manager at a time, so the add benchmark uses its own copies.
+        Product[] copies = generateProducts(size);
+        InventoryManager target = new InventoryManager();
+        target.setEventSink(InventoryEventSink.NONE);
+        run("addProduct", size, size, () -> {
+            target.clearInventory();
+            for (Product product : copies) {
+                target.addProduct(product);
+            }
+            return target.size();
+        });
+        List<InventoryOp> adds = new ArrayList<>(size);
+        List<InventoryOp> updates = new ArrayList<>(size);
+        for (Product product : copies) {
+            adds.add(InventoryOp.add(product));
+            updates.add(InventoryOp.adjustQuantity(product.getSku(), 1));
+        }
+        run("applyBatch(add)", size, size, () -> {
+            target.clearInventory();
+            return target.applyBatch(adds).getAdded();
+        });
+        run("applyBatch(adjust)", size, size, () -> target.applyBatch(updates).getUpdated());
+
+        int[] next = {0};
+        run("searchBySku", size, 1, () -> {
+            int i = next[0]++;
+            if (next[0] == size) next[0] = 0;
+            return manager.searchBySku(products[i].getSku()).getQuantity();
+        });
+        run("updateQuantity", size, 1, () -> {
+            int i = next[0]++;
+            if (next[0] == size) next[0] = 0;
+            manager.updateQuantity(products[i].getSku(), i & 255);
+            return 0;
+        });
+        run("filterByName", size, 1, () -> count(manager.filterByName("item 12")));
+        run("filterByNamePrefix(10)", size, 1, () -> count(manager.filterByNamePrefix("item 12", 10)));
+        run("filterByPriceRange", size, 1, () -> count(manager.filterByPriceRange(100.0, 200.0)));
+        run("query(page of 20)", size, 1, () -> count(manager.query().category("Category 7")
+                .priceBetween(100.0, 200.0).orderBy(SortOrder.byDescending(SortOrder.Key.PRICE))
+                .offset(20).limit(20).list()));
+        manager.setLowStockThreshold(10);
+        run("dashboard", size, 1, () -> manager.totalValue().longValue()
+                + manager.unitsByCategory("Category 7") + count(manager.lowStock(20)));
+        manager.setQueryCache(256, 1_000_000);
+        run("filterByPriceRange(cache)", size, 1, () -> count(manager.filterByPriceRange(100.0, 200.0)));
+        manager.setQueryCache(0, 0);
+
+        // Each sort follows a quantity update, so it misses the sorted-view cache.
+        boolean[] ascending = {true};
+        run("sortByName", size, 1, () -> {
+            touch(manager, products, next);
+            return manager.sortByName(ascending[0] = !ascending[0]).size();
+        });
+        run("sortByCategory", size, 1, () -> {
+            touch(manager, products, next);
+            return manager.sortByCategory(ascending[0] = !ascending[0]).size();
+        });
+        run("sortByPrice", size, 1, () -> {
+            touch(manager, products, next);
+            return manager.sortByPrice(ascending[0] = !ascending[0]).size();
+        });
+        run("sortByQuantity", size, 1, () -> {
+            touch(manager, products, next);
+            return manager.sortByQuantity(ascending[0] = !ascending[0]).size();
+        });
+
+        run("saveToFile", size, 1, () -> {
+            manager.saveToFile(path);
+            return 0;
+        });
+        run("loadFromFile", size, 1, () -> {
+            target.clearInventory();
+            target.loadFromFile(path);
+            return target.size();
+        });
+        run("saveChunked", size, 1, () -> {
+            manager.saveChunked(path, ChunkedInventoryFile.Compression.DEFLATE);
+            return 0;
+        });
+        run("loadChunked", size, 1, () -> {
+            target.clearInventory();
+            target.loadChunked(path);
+            return target.size();
+        });
+    }
+
+    /**
+     * Warms up and then measures one operation, printing a result row.
+     *
+     * @param name       the benchmark name
+     * @param size       the catalog size
+     * @param opsPerCall how many logical operations one call performs
+     * @param operation  the operation to measure
+     */
+    private static void run(String name, int size, int opsPerCall, Operation operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iterate(operation);
+        }
+
+        long calls = 0;
+        long nanos = 0;
+        long allocated = 0;
+        long gcBefore = gcCount();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            calls += iterate(operation);
+            nanos += System.nanoTime() - start;
+            allocated += THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        }
+        long gcs = gcCount() - gcBefore;
+
+        double ops = (double) calls * opsPerCall;
+        double seconds = nanos / 1e9;
+        CONSOLE.printf("%-20s %10d %14.1f %14.3f %14.1f %12.1f %8d%n",
+                name, size, ops / seconds, nanos / 1e3 / ops, allocated / ops,
+                allocated / (1024.0 * 1024.0) / seconds, gcs);
+    }
+
+    /**
+     * Calls the operation repeatedly until one iteration's time budget is used up.
+     *
+     * @param operation the operation to call
+     * @return the number of calls made
+     */
+    private static long iterate(Operation operation) {
+        long calls = 0;
+        long result = 0;
+        long deadline = System.nanoTime() + ITERATION_NANOS;
+        do {
+            try {
+                result += operation.call();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            calls++;
+        } while (System.nanoTime() < deadline);
+        sink += result;
+        return calls;
+    }
+
+    /**
+     * Returns the total number of collections across all garbage collectors.
+     *
+     * @return the collection count so far
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long count(List<Product> products) {
+        return products == null ? 0 : products.size();
+    }
+
+    /**
+     * Changes one product's quantity, so the next sorted view cannot come
+     * from the cache and the sort benchmarks measure a real sort.
+     */
+    private static void touch(InventoryManager manager, Product[] products, int[] next) {
+        int i = next[0]++;
+        if (next[0] == products.length) next[0] = 0;
+        manager.updateQuantity(products[i].getSku(), i & 255);
+    }
+
+    /**
+     * Builds a deterministic catalog with varied names, prices, quantities and categories.
+     *
+     * @param size the number of products
+     * @return the generated products
+     */
+    private static Product[] generateProducts(int size) {
+        Product[] products = new Product[size];
+        for (int i = 0; i < size; i++) {
+            int h = i * 0x9E3779B1;
+            products[i] = new Product("S" + i, "Item " + (h >>> 12), (h >>> 8) % 500,
+                    ((h >>> 4) % 100_000) / 100.0, "Category " + (i % 40));
+        }
+        return products;
+    }
+
+    /**
+     * A benchmarked operation. The returned value is consumed so the call cannot be optimized away.
+     */
+    private interface Operation {
+        long call() throws IOException;
+    }
+}
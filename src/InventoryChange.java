@@ -0,0 +1,106 @@
+/**
+ * One change to an InventoryManager's products, as published by its
+ * ChangeFeed. Each change carries the product's values after the change
+ * (before it, for REMOVED), so applying a change is an upsert or delete by
+ * SKU and applying the same change twice does no harm.
+ */
+public final class InventoryChange {
+
+    /**
+     * The kind of change.
+     */
+    public enum Type {
+        /** A product was added. */
+        ADDED,
+        /** A product was removed. */
+        REMOVED,
+        /** A product's quantity changed. */
+        QUANTITY_CHANGED,
+        /** A product's price changed. */
+        PRICE_CHANGED,
+        /** A product's name changed. */
+        NAME_CHANGED,
+        /** A product's category changed. */
+        CATEGORY_CHANGED
+    }
+
+    private final long offset;
+    private final Type type;
+    private final String sku;
+    private final String name;
+    private final int quantity;
+    private final double price;
+    private final String category;
+
+    InventoryChange(long offset, Type type, Product product) {
+        this.offset = offset;
+        this.type = type;
+        this.sku = product.sku;
+        this.name = product.name;
+        this.quantity = product.quantity;
+        this.price = product.price;
+        this.category = product.category;
+    }
+
+    /**
+     * @return the change's position in the feed; each change is one past the previous one
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the kind of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the product's SKU
+     */
+    public String getSku() {
+        return sku;
+    }
+
+    /**
+     * @return the product's name after the change
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the product's quantity after the change
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * @return the product's price after the change
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * @return the product's category after the change
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    @Override
+    public String toString() {
+        return "InventoryChange{" +
+                "Offset=" + offset +
+                ", Type=" + type +
+                ", SKU='" + sku + '\'' +
+                ", Name='" + name + '\'' +
+                ", Quantity=" + quantity +
+                ", Price=$" + price +
+                ", Category='" + category + '\'' +
+                '}';
+    }
+}
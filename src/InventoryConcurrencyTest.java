@@ -0,0 +1,149 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency test for InventoryManager.
+ * Several threads add, adjust and remove products at the same time and the
+ * final stock levels are checked against the number of successful operations.
+ */
+public class InventoryConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int STOCK = 100_000;
+    private static final int SKUS_PER_THREAD = 10_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            checkNoOversell();
+            checkConcurrentAddsAndRemoves();
+            checkOrderedViewDuringAdds();
+            checkSortDuringPriceChanges();
+        } finally {
+            System.setOut(console);
+        }
+        console.println("Concurrency test passed.");
+    }
+
+    /**
+     * Drains one SKU from many threads, asking for more units than exist.
+     */
+    private static void checkNoOversell() throws InterruptedException {
+        InventoryManager manager = new InventoryManager();
+        manager.addProduct(new Product("HOT1", "Hot Item", STOCK, 9.99, "Sale"));
+        AtomicInteger taken = new AtomicInteger();
+
+        runThreads(t -> {
+            for (int i = 0; i < STOCK / THREADS * 2; i++) {
+                if (manager.adjustQuantity("HOT1", -1)) taken.incrementAndGet();
+            }
+        });
+
+        check(taken.get() == STOCK, "took " + taken.get() + " units out of " + STOCK);
+        check(manager.searchBySku("HOT1").getQuantity() == 0, "stock left after draining");
+    }
+
+    /**
+     * Each thread adds its own SKUs, removes every other one, and
+     * competes with the others to add a shared SKU.
+     */
+    private static void checkConcurrentAddsAndRemoves() throws InterruptedException {
+        InventoryManager manager = new InventoryManager();
+
+        runThreads(t -> {
+            for (int i = 0; i < SKUS_PER_THREAD; i++) {
+                manager.addProduct(new Product("T" + t + "-" + i, "Item", 1, 1.0, "Test"));
+                manager.addProduct(new Product("SHARED", "Shared", 1, 1.0, "Test"));
+            }
+            for (int i = 0; i < SKUS_PER_THREAD; i += 2) {
+                manager.removeProduct("T" + t + "-" + i);
+            }
+        });
+
+        int expected = THREADS * SKUS_PER_THREAD / 2 + 1;
+        check(manager.size() == expected, "expected " + expected + " products, found " + manager.size());
+        check(manager.filterByCategory("Test").size() == expected, "ordered view out of sync with SKU map");
+    }
+
+    /**
+     * Readers rebuild the cached display order while products are added; the
+     * writer must find each product it added in the view right afterwards.
+     */
+    private static void checkOrderedViewDuringAdds() throws InterruptedException {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            readers.add(new Thread(() -> {
+                while (!done.get()) manager.orderedProducts();
+            }));
+        }
+        for (Thread reader : readers) reader.start();
+        // Removing each product again keeps the views small, so readers rebuild them constantly.
+        int missing = 0;
+        for (int i = 0; i < STOCK; i++) {
+            manager.addProduct(new Product("V" + i, "Item", 1, 1.0, "Test"));
+            if (manager.orderedProducts().size() != 1) missing++;
+            manager.removeProduct("V" + i);
+        }
+        done.set(true);
+        for (Thread reader : readers) reader.join();
+        check(missing == 0, "ordered view missed " + missing + " new products");
+    }
+
+    /**
+     * Sorts and ordered queries run while another thread keeps repricing
+     * products; every result must still be a complete, well-formed order.
+     */
+    private static void checkSortDuringPriceChanges() throws InterruptedException {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < STOCK; i++) {
+            Product product = new Product("S" + i, "Item " + i, i % 100, i % 1000, "C" + i % 10);
+            products.add(product);
+            manager.addProduct(product);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; !done.get(); i = (i + 7919) % STOCK) {
+                products.get(i).setPrice((i * 31 + System.nanoTime()) % 1000);
+            }
+        });
+        writer.start();
+        try {
+            for (int round = 0; round < 10; round++) {
+                check(manager.sortByPrice(round % 2 == 0).size() == STOCK, "sorted view lost products");
+                check(manager.query().category("C3").orderBy(SortOrder.by(SortOrder.Key.PRICE)).limit(50).list().size()
+                        == 50, "query page");
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+    }
+
+    private static void runThreads(ThreadBody body) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int id = t;
+            threads.add(new Thread(() -> body.run(id)));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+
+    private interface ThreadBody {
+        void run(int threadId);
+    }
+}
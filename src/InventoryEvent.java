@@ -0,0 +1,102 @@
+/**
+ * Something that happened in an InventoryManager, delivered to its
+ * InventoryEventSink. Events are immutable; toString gives the message the
+ * manager used to print to the console.
+ */
+public final class InventoryEvent {
+
+    /**
+     * The kind of event.
+     */
+    public enum Type {
+        /** A product was added. */
+        ADDED,
+        /** An add was refused because the SKU is already in the inventory. */
+        DUPLICATE_SKU,
+        /** A product was removed. */
+        REMOVED,
+        /** A remove or quantity change named a SKU that is not in the inventory. */
+        NOT_FOUND,
+        /** A quantity update asked for a negative quantity. */
+        INVALID_QUANTITY,
+        /** A product's quantity was set or adjusted. */
+        QUANTITY_UPDATED,
+        /** A quantity adjustment was refused because there is not enough stock. */
+        ADJUST_REJECTED,
+        /** The journal could not be written. */
+        JOURNAL_ERROR
+    }
+
+    private final Type type;
+    private final String sku;
+    private final String name;
+    private final int quantity;
+    private final int delta;
+    private final String detail;
+
+    InventoryEvent(Type type, String sku, String name, int quantity, int delta, String detail) {
+        this.type = type;
+        this.sku = sku;
+        this.name = name;
+        this.quantity = quantity;
+        this.delta = delta;
+        this.detail = detail;
+    }
+
+    /**
+     * @return the kind of event
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the SKU involved, or null for events not about one product
+     */
+    public String getSku() {
+        return sku;
+    }
+
+    /**
+     * @return the product name, for quantity events
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the new quantity, or the stock on hand for ADJUST_REJECTED
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * @return the requested change, for ADJUST_REJECTED
+     */
+    public int getDelta() {
+        return delta;
+    }
+
+    /**
+     * @return the error message, for JOURNAL_ERROR
+     */
+    public String getDetail() {
+        return detail;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case ADDED: return "Product with SKU " + sku + " added.";
+            case DUPLICATE_SKU: return "Product with SKU " + sku + " already exist.";
+            case REMOVED: return "Product with SKU " + sku + " removed.";
+            case NOT_FOUND: return "No product with SKU: " + sku + " found.";
+            case INVALID_QUANTITY: return "Quantity cannot be under than 0";
+            case QUANTITY_UPDATED: return "Updated: " + name + " quantity to " + quantity;
+            case ADJUST_REJECTED:
+                return "Cannot adjust " + name + " quantity by " + delta + ", only " + quantity + " in stock.";
+            default: return "Error writing journal: " + detail;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * Receives the events an InventoryManager reports for its operations.
+ *
+ * publish is called on the thread performing the operation, often while it
+ * holds a SKU lock, so implementations should return quickly. Use
+ * AsyncEventSink to move slow work such as console or file output to a
+ * background thread.
+ */
+public interface InventoryEventSink {
+
+    /**
+     * Prints each event to System.out on the calling thread, as the manager
+     * always has. Output stays in order with other console output, which
+     * suits interactive use.
+     */
+    InventoryEventSink CONSOLE = event -> System.out.println(event);
+
+    /**
+     * Discards every event. A manager using this sink does not build events at all.
+     */
+    InventoryEventSink NONE = event -> { };
+
+    /**
+     * Handles one event.
+     *
+     * @param event the event
+     */
+    void publish(InventoryEvent event);
+}
@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests for InventoryManager's event reporting and AsyncEventSink.
+ */
+public class InventoryEventTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        checkManagerEvents();
+        checkAsyncOrder();
+        checkAsyncDropsWhenFull();
+        checkFlushWaitsForDelivery();
+        System.out.println("Event test passed.");
+    }
+
+    private static void checkManagerEvents() {
+        List<InventoryEvent> events = new ArrayList<>();
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(events::add);
+        manager.addProduct(new Product("A1", "Apple", 5, 1.0, "Food"));
+        manager.addProduct(new Product("A1", "Apple", 5, 1.0, "Food"));
+        manager.updateQuantity("A1", -1);
+        manager.updateQuantity("A1", 7);
+        manager.adjustQuantity("A1", -10);
+        manager.removeProduct("A1");
+        manager.removeProduct("A1");
+
+        String[] expected = {
+                "Product with SKU A1 added.",
+                "Product with SKU A1 already exist.",
+                "Quantity cannot be under than 0",
+                "Updated: Apple quantity to 7",
+                "Cannot adjust Apple quantity by -10, only 7 in stock.",
+                "Product with SKU A1 removed.",
+                "No product with SKU: A1 found."
+        };
+        check(events.size() == expected.length, "expected " + expected.length + " events, got " + events.size());
+        for (int i = 0; i < expected.length; i++) {
+            check(events.get(i).toString().equals(expected[i]), "event " + i + ": " + events.get(i));
+        }
+        check(events.get(4).getType() == InventoryEvent.Type.ADJUST_REJECTED, "adjust event type");
+
+        events.clear();
+        manager.setEventSink(InventoryEventSink.NONE);
+        manager.addProduct(new Product("B1", "Banana", 5, 1.0, "Food"));
+        check(events.isEmpty(), "events after switching to NONE");
+    }
+
+    private static void checkAsyncOrder() throws InterruptedException {
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        AsyncEventSink sink = new AsyncEventSink(event -> delivered.add(event.getSku()), 1 << 16);
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(sink);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    manager.addProduct(new Product("T" + id + "-" + i, "Item", 1, 1.0, "Toys"));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        sink.flush();
+        check(delivered.size() == 20_000, "delivered " + delivered.size() + " events");
+        check(sink.getDropped() == 0, "dropped " + sink.getDropped());
+        // Each thread's events arrive in the order it published them.
+        int[] last = new int[threads.length];
+        Arrays.fill(last, -1);
+        for (String sku : delivered) {
+            int thread = sku.charAt(1) - '0';
+            int i = Integer.parseInt(sku.substring(3));
+            check(i == last[thread] + 1, "out of order: " + sku);
+            last[thread] = i;
+        }
+        sink.close();
+        sink.publish(new InventoryEvent(InventoryEvent.Type.ADDED, "LATE", null, 0, 0, null));
+        check(sink.getDropped() == 1, "publish after close is dropped");
+    }
+
+    private static void checkAsyncDropsWhenFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        AsyncEventSink sink = new AsyncEventSink(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.add(event.getSku());
+        }, 8);
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            sink.publish(new InventoryEvent(InventoryEvent.Type.ADDED, "S" + i, null, 0, 0, null));
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        check(elapsedMillis < 1_000, "publishing blocked on a stalled consumer for " + elapsedMillis + "ms");
+        release.countDown();
+        sink.close();
+        // The consumer holds one event while stalled, so at most 8 + 1 get through.
+        check(delivered.size() >= 8 && delivered.size() <= 9, "delivered " + delivered.size());
+        check(sink.getDropped() == 100 - delivered.size(), "dropped " + sink.getDropped());
+        check(delivered.get(0).equals("S0"), "first event kept");
+    }
+
+    private static void checkFlushWaitsForDelivery() {
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        AsyncEventSink sink = new AsyncEventSink(event -> {
+            try {
+                // A slow target: flush must not return while this event is still being delivered.
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.add(event.getSku());
+        });
+        for (int i = 0; i < 3; i++) {
+            sink.publish(new InventoryEvent(InventoryEvent.Type.ADDED, "F" + i, null, 0, 0, null));
+            sink.flush();
+            check(delivered.size() == i + 1, "flush returned with " + delivered.size() + " of " + (i + 1) + " delivered");
+        }
+        sink.close();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
@@ -0,0 +1,299 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Tests for InventoryManager's secondary indexes.
+ * Random adds, removes, quantity updates and direct setter calls are applied,
+ * and every indexed query is compared with a brute-force scan of the products.
+ */
+public class InventoryIndexTest {
+
+    private static final String[] CATEGORIES = {"Electronics", "Furniture", "Garden", "Toys"};
+
+    public static void main(String[] args) {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            Random random = new Random(11);
+            InventoryManager manager = new InventoryManager();
+            for (int i = 0; i < 30_000; i++) {
+                String sku = "S" + random.nextInt(3_000);
+                Product existing = manager.searchBySku(sku);
+                switch (random.nextInt(7)) {
+                    case 0:
+                    case 1:
+                        manager.addProduct(new Product(sku, "Item " + random.nextInt(1_000), random.nextInt(50),
+                                random.nextInt(400) / 4.0, CATEGORIES[random.nextInt(CATEGORIES.length)]));
+                        break;
+                    case 2:
+                        manager.removeProduct(sku);
+                        break;
+                    case 3:
+                        manager.updateQuantity(sku, random.nextInt(50));
+                        break;
+                    case 4:
+                        if (existing != null) existing.setPrice(random.nextInt(400) / 4.0);
+                        break;
+                    case 5:
+                        if (existing != null) existing.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                        break;
+                    default:
+                        if (existing != null) existing.setName("Renamed " + random.nextInt(1_000));
+                        break;
+                }
+            }
+
+            List<Product> all = new ArrayList<>(manager.orderedProducts());
+            checkSame(manager.filterByPriceRange(10, 30), filter(all, p -> p.getPrice() >= 10 && p.getPrice() <= 30),
+                    "price range");
+            checkSame(manager.filterByExactPrice(12.25), filter(all, p -> p.getPrice() == 12.25), "exact price");
+            checkSame(manager.filterByQuantityRange(5, 9),
+                    filter(all, p -> p.getQuantity() >= 5 && p.getQuantity() <= 9), "quantity range");
+
+            checkSame(manager.filterByName("item 12"), filter(all, p -> p.getName().toLowerCase().contains("item 12")),
+                    "name");
+            checkSame(manager.filterByName("D 4"), filter(all, p -> p.getName().toLowerCase().contains("d 4")),
+                    "renamed name");
+            checkSame(manager.filterByName("7"), filter(all, p -> p.getName().contains("7")), "short name");
+            checkSame(manager.filterByName("no such item"), new ArrayList<>(), "missing name");
+            List<Product> prefixed = filter(all, p -> p.getName().toLowerCase().startsWith("item 3"));
+            checkSame(manager.filterByNamePrefix("ITEM 3", Integer.MAX_VALUE), prefixed, "name prefix");
+            check(manager.filterByNamePrefix("item 3", 5).equals(prefixed.subList(0, 5)), "name prefix top 5");
+            check(manager.filterByName("item", 0).isEmpty(), "name limit 0");
+
+            for (String category : CATEGORIES) {
+                List<Product> expected = filter(all, p -> p.getCategory().equalsIgnoreCase(category));
+                check(manager.filterByCategory(category.toUpperCase()).equals(expected), category + " filter order");
+                check(manager.countByCategory(category.toLowerCase()) == expected.size(), category + " count");
+                checkSame(manager.filterByCategoryAndPriceRange(category, 20, 60),
+                        filter(expected, p -> p.getPrice() >= 20 && p.getPrice() <= 60), category + " and price");
+            }
+            check(manager.countByCategory("Nothing") == 0, "unknown category count");
+            check(manager.filterByCategory("Nothing").isEmpty(), "unknown category filter");
+            Product first = manager.filterByCategory("Toys").get(0);
+            Product second = manager.filterByCategory("Toys").get(1);
+            check(first.getCategory() == second.getCategory(), "category strings interned");
+
+            List<Product> displayOrder = new ArrayList<>(manager.orderedProducts());
+            List<Product> byPrice = manager.sortByPrice(false);
+            checkSorted(byPrice, Comparator.comparingDouble(Product::getPrice).reversed(), "price");
+            checkSorted(manager.sortByQuantity(true), Comparator.comparingInt(Product::getQuantity), "quantity");
+            check(byPrice.size() == manager.size(), "sorted view size");
+            check(manager.orderedProducts().equals(displayOrder), "sorting must not reorder the inventory");
+            check(manager.sortByPrice(false) == byPrice, "unchanged data reuses the cached view");
+
+            // Category ascending, then price descending; ties keep display order.
+            SortOrder order = SortOrder.by(SortOrder.Key.CATEGORY).thenDescending(SortOrder.Key.PRICE);
+            check(order.equals(SortOrder.by(SortOrder.Key.CATEGORY).thenDescending(SortOrder.Key.PRICE)), "order equality");
+            List<Product> multi = manager.sorted(order);
+            List<Product> expected = new ArrayList<>(displayOrder);
+            expected.sort(Comparator.comparing(Product::getCategory, String.CASE_INSENSITIVE_ORDER)
+                    .thenComparing(Comparator.comparingDouble(Product::getPrice).reversed()));
+            check(multi.equals(expected), "category then price descending");
+            try {
+                multi.set(0, null);
+                check(false, "sorted view must be unmodifiable");
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+            Product cheapest = byPrice.get(byPrice.size() - 1);
+            cheapest.setPrice(1_000);
+            check(manager.sortByPrice(false).get(0) == cheapest, "price change invalidates the cached view");
+            check(manager.cachedSortedViews() == 1, "stale views dropped: " + manager.cachedSortedViews());
+
+            try {
+                SortOrder.by(SortOrder.Key.PRICE).thenDescending(SortOrder.Key.PRICE);
+                check(false, "repeated sort key accepted");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            SortOrder.Key[] keys = SortOrder.Key.values();
+            for (SortOrder.Key major : keys) {
+                for (SortOrder.Key minor : keys) {
+                    if (major != minor) manager.sorted(SortOrder.by(major).then(minor));
+                }
+            }
+            check(manager.cachedSortedViews() == InventoryManager.MAX_SORTED_VIEWS,
+                    "sorted view cache bounded: " + manager.cachedSortedViews());
+        } finally {
+            System.setOut(console);
+        }
+        checkBitmap();
+        checkRangeIndexChurn();
+        checkParallelMatchesSequential();
+        console.println("Index test passed.");
+    }
+
+    /**
+     * Moves products between values from several threads, each owning its
+     * products as a SKU lock would, and checks that every product is indexed
+     * once and that emptied values are dropped.
+     */
+    private static void checkRangeIndexChurn() {
+        RangeIndex index = new RangeIndex();
+        int threads = 4;
+        int perThread = 50;
+        Product[][] owned = new Product[threads][perThread];
+        double[][] values = new double[threads][perThread];
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                owned[t][i] = new Product("R" + t + "-" + i, "Item", 1, 1.0, "Misc");
+                index.add(0, owned[t][i]);
+            }
+        }
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers.add(new Thread(() -> {
+                Random random = new Random(thread);
+                for (int step = 0; step < 200_000; step++) {
+                    int i = random.nextInt(perThread);
+                    // Mostly a few shared values, so adds race with removes emptying the same bucket.
+                    double value = step < 100_000 ? random.nextInt(4) : random.nextInt(1_000_000) / 100.0;
+                    index.move(values[thread][i], value, owned[thread][i]);
+                    values[thread][i] = value;
+                }
+            }));
+        }
+        for (Thread worker : workers) worker.start();
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        List<Product> all = index.range(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        check(all.size() == threads * perThread && new HashSet<>(all).size() == all.size(),
+                "every product indexed once: " + all.size());
+        Set<Double> live = new HashSet<>();
+        for (double[] row : values) for (double value : row) live.add(value);
+        check(index.distinctValues() == live.size(), "empty buckets kept: " + index.distinctValues() + " vs " + live.size());
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) index.remove(values[t][i], owned[t][i]);
+        }
+        check(index.distinctValues() == 0, "index empty after removing everything");
+    }
+
+    /**
+     * Runs the same sorts and filters with parallel execution forced on and off
+     * and checks that the results agree.
+     */
+    private static void checkParallelMatchesSequential() {
+        InventoryManager sequential = new InventoryManager();
+        InventoryManager parallel = new InventoryManager();
+        sequential.setEventSink(InventoryEventSink.NONE);
+        parallel.setEventSink(InventoryEventSink.NONE);
+        sequential.setParallelThreshold(Integer.MAX_VALUE);
+        parallel.setParallelThreshold(1);
+        Random random = new Random(17);
+        for (int i = 0; i < 20_000; i++) {
+            String name = random.nextInt(50) == 0 ? null : "Item " + random.nextInt(5_000);
+            String category = random.nextInt(50) == 0 ? null : CATEGORIES[random.nextInt(CATEGORIES.length)];
+            sequential.addProduct(new Product("P" + i, name, 1, 1.0, category));
+            parallel.addProduct(new Product("P" + i, name, 1, 1.0, category));
+        }
+
+        checkSameOrder(parallel.filterByName("item 12"), sequential.filterByName("item 12"), "parallel name filter");
+        checkSameOrder(parallel.filterByName("4", 25), sequential.filterByName("4", 25), "parallel short name filter");
+        checkSameOrder(parallel.filterByCategory("toys"), sequential.filterByCategory("toys"),
+                "parallel category filter");
+
+        for (boolean ascending : new boolean[] {true, false}) {
+            List<String> a = new ArrayList<>();
+            List<String> b = new ArrayList<>();
+            for (Product p : parallel.sortByName(ascending)) a.add(p.getName());
+            for (Product p : sequential.sortByName(ascending)) b.add(p.getName());
+            check(a.equals(b), "parallel name sort, ascending=" + ascending);
+            check(ascending ? a.get(0) == null : a.get(a.size() - 1) == null, "null names placed first when ascending");
+
+            List<Product> byCategory = parallel.sortByCategory(ascending);
+            Comparator<Product> order = Comparator.comparing(Product::getCategory,
+                    Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+            checkSorted(byCategory, ascending ? order : order.reversed(), "category, ascending=" + ascending);
+            check(byCategory.size() == parallel.size(), "category sort size");
+        }
+    }
+
+    private static void checkSameOrder(List<Product> actual, List<Product> expected, String what) {
+        check(actual.size() == expected.size(), what + ": expected " + expected.size() + " products, got " + actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+            check(actual.get(i).getSku().equals(expected.get(i).getSku()), what + " differs at " + i);
+        }
+    }
+
+    /**
+     * Drives a CompactBitmap through both container kinds and compares it with a BitSet.
+     */
+    private static void checkBitmap() {
+        Random random = new Random(5);
+        CompactBitmap bitmap = new CompactBitmap();
+        BitSet expected = new BitSet();
+        for (int i = 0; i < 200_000; i++) {
+            // Values cluster in the first chunk so its container crosses the array limit both ways.
+            int value = random.nextInt(4) == 0 ? random.nextInt(1 << 20) : random.nextInt(12_000);
+            if (random.nextInt(3) == 0 && i > 100_000) {
+                bitmap.remove(value);
+                expected.clear(value);
+            } else {
+                bitmap.add(value);
+                expected.set(value);
+            }
+            if (i % 50_000 == 0) check(bitmap.cardinality() == expected.cardinality(), "bitmap cardinality at " + i);
+        }
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextInt(12_000);
+            bitmap.remove(value);
+            expected.clear(value);
+        }
+        check(bitmap.cardinality() == expected.cardinality(), "bitmap cardinality");
+        BitSet seen = new BitSet();
+        int[] last = {-1};
+        bitmap.forEach(value -> {
+            check(value > last[0], "bitmap order");
+            last[0] = value;
+            seen.set(value);
+        });
+        check(seen.equals(expected), "bitmap contents");
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(1 << 20);
+            check(bitmap.contains(value) == expected.get(value), "bitmap contains " + value);
+        }
+    }
+
+    private static List<Product> filter(List<Product> products, Predicate<Product> test) {
+        List<Product> matches = new ArrayList<>();
+        for (Product product : products) {
+            if (test.test(product)) matches.add(product);
+        }
+        return matches;
+    }
+
+    private static void checkSame(List<Product> actual, List<Product> expected, String what) {
+        List<String> a = new ArrayList<>();
+        List<String> b = new ArrayList<>();
+        for (Product p : actual) a.add(p.getSku());
+        for (Product p : expected) b.add(p.getSku());
+        a.sort(null);
+        b.sort(null);
+        check(a.equals(b), what + ": expected " + b.size() + " products, got " + a.size());
+    }
+
+    private static void checkSorted(List<Product> products, Comparator<Product> order, String what) {
+        for (int i = 1; i < products.size(); i++) {
+            check(order.compare(products.get(i - 1), products.get(i)) <= 0, what + " not sorted at " + i);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
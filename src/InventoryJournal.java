@@ -0,0 +1,482 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of inventory changes.
+ *
+ * Every add, remove, clear and field change is appended as a small record.
+ * A background thread writes pending records and fsyncs them in batches
+ * (group commit): callers that wait for durability share one fsync with
+ * everything appended before it.
+ *
+ * Once enough records have accumulated, the journal is compacted: the
+ * current file is set aside, the full inventory is written as a
+ * MappedInventory snapshot, and the old journal is deleted. Recovery loads
+ * the snapshot and replays the journal tail on top of it. Records hold
+ * absolute values, so replaying records the snapshot already reflects is
+ * harmless.
+ *
+ * Each record is framed as [length][crc32][payload]. Replay stops at the
+ * first torn or corrupt record, which can only be the tail of a crash.
+ */
+public class InventoryJournal implements AutoCloseable {
+
+    static final int DEFAULT_COMPACT_THRESHOLD = 100_000;
+
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte QUANTITY = 3;
+    private static final byte PRICE = 4;
+    private static final byte NAME = 5;
+    private static final byte CATEGORY = 6;
+    private static final byte CLEAR = 7;
+
+    private final Path journalPath;
+    private final Path previousPath;
+    private final Path snapshotPath;
+    private final Supplier<List<Product>> state;
+    private final int compactThreshold;
+
+    // Guards the pending buffer and the sequence counters. Never held while waiting on ioLock.
+    private final Object lock = new Object();
+    // Held while writing to the channel, so batches reach the file in append order.
+    private final Object ioLock = new Object();
+    private final Thread flusher;
+
+    private FileChannel channel;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appended;
+    private long durable;
+    private long sinceCompaction;
+    private boolean compacting;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Opens a journal for appending. Use recover first to restore its contents.
+     *
+     * @param journalFile      the journal file, created if missing
+     * @param snapshotFile     the snapshot written by compaction
+     * @param state            supplies the products to write when compacting
+     * @param compactThreshold the number of records that triggers a compaction
+     * @throws IOException if the journal cannot be opened
+     */
+    InventoryJournal(String journalFile, String snapshotFile, Supplier<List<Product>> state,
+                     int compactThreshold) throws IOException {
+        this.journalPath = Path.of(journalFile);
+        this.previousPath = Path.of(journalFile + ".old");
+        this.snapshotPath = Path.of(snapshotFile);
+        this.state = state;
+        this.compactThreshold = compactThreshold;
+        this.channel = openForAppend(journalPath);
+        this.flusher = new Thread(this::flushLoop, "inventory-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Loads the snapshot and replays the journal files into the manager.
+     * A journal left over from an interrupted compaction is replayed first.
+     * A torn tail at the end of the live journal is cut off so new records
+     * are not appended after it.
+     *
+     * @param journalFile  the journal file
+     * @param snapshotFile the snapshot file
+     * @param manager      the manager to restore into
+     * @return the number of journal records replayed
+     * @throws IOException if a file cannot be read
+     */
+    static long recover(String journalFile, String snapshotFile, InventoryManager manager) throws IOException {
+        Path snapshot = Path.of(snapshotFile);
+        if (Files.exists(snapshot)) {
+            try (MappedInventory mapped = MappedInventory.open(snapshotFile)) {
+                for (int row = 0; row < mapped.size(); row++) {
+                    manager.restoreProduct(mapped.get(row));
+                }
+            }
+        }
+
+        long records = 0;
+        Path previous = Path.of(journalFile + ".old");
+        if (Files.exists(previous)) {
+            records += replay(previous, manager, false);
+        }
+        Path journal = Path.of(journalFile);
+        if (Files.exists(journal)) {
+            records += replay(journal, manager, true);
+        }
+        return records;
+    }
+
+    long logAdd(Product product) {
+        return append(out -> {
+            out.writeByte(ADD);
+            writeString(out, product.sku);
+            writeString(out, product.name);
+            out.writeInt(product.quantity);
+            out.writeDouble(product.price);
+            writeString(out, product.category);
+        });
+    }
+
+    long logRemove(String sku) {
+        return append(out -> {
+            out.writeByte(REMOVE);
+            writeString(out, sku);
+        });
+    }
+
+    long logQuantity(String sku, int quantity) {
+        return append(out -> {
+            out.writeByte(QUANTITY);
+            writeString(out, sku);
+            out.writeInt(quantity);
+        });
+    }
+
+    long logPrice(String sku, double price) {
+        return append(out -> {
+            out.writeByte(PRICE);
+            writeString(out, sku);
+            out.writeDouble(price);
+        });
+    }
+
+    long logName(String sku, String name) {
+        return append(out -> {
+            out.writeByte(NAME);
+            writeString(out, sku);
+            writeString(out, name);
+        });
+    }
+
+    long logCategory(String sku, String category) {
+        return append(out -> {
+            out.writeByte(CATEGORY);
+            writeString(out, sku);
+            writeString(out, category);
+        });
+    }
+
+    long logClear() {
+        return append(out -> out.writeByte(CLEAR));
+    }
+
+    /**
+     * Blocks until every record appended so far is on disk.
+     *
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    void sync() {
+        long target;
+        synchronized (lock) {
+            target = appended;
+            while (durable < target && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (failure != null) throw new UncheckedIOException("Journal write failed", failure);
+        }
+    }
+
+    /**
+     * Sets the current journal aside, writes a full snapshot and then deletes
+     * the old journal. Appends continue into a fresh journal meanwhile.
+     *
+     * @throws IOException if the snapshot or journal cannot be written
+     */
+    void compact() throws IOException {
+        synchronized (ioLock) {
+            synchronized (lock) {
+                writePending();
+                channel.close();
+                Files.move(journalPath, previousPath, StandardCopyOption.REPLACE_EXISTING);
+                channel = openForAppend(journalPath);
+                sinceCompaction = 0;
+            }
+        }
+
+        Path temp = Path.of(snapshotPath + ".tmp");
+        MappedInventory.write(temp.toString(), state.get());
+        try (FileChannel file = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            file.force(true);
+        }
+        Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(previousPath);
+    }
+
+    /**
+     * Flushes pending records and closes the journal file.
+     *
+     * @throws IOException if the final flush fails
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (ioLock) {
+            synchronized (lock) {
+                writePending();
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * Frames one record and adds it to the pending batch.
+     *
+     * @return the record's sequence number
+     */
+    private long append(RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            writer.write(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        long sequence;
+        boolean startCompaction = false;
+        synchronized (lock) {
+            if (closed) throw new IllegalStateException("Journal is closed");
+            DataOutputStream out = new DataOutputStream(pending);
+            try {
+                out.writeInt(payload.length);
+                out.writeInt((int) crc.getValue());
+                out.write(payload);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            sequence = ++appended;
+            if (++sinceCompaction >= compactThreshold && !compacting) {
+                compacting = true;
+                startCompaction = true;
+            }
+            lock.notifyAll();
+        }
+        if (startCompaction) {
+            Thread compactor = new Thread(this::compactInBackground, "inventory-journal-compactor");
+            compactor.setDaemon(true);
+            compactor.start();
+        }
+        return sequence;
+    }
+
+    private void compactInBackground() {
+        try {
+            compact();
+        } catch (IOException e) {
+            synchronized (lock) {
+                failure = e;
+                lock.notifyAll();
+            }
+        } finally {
+            synchronized (lock) {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Background loop: waits for pending records, then writes and fsyncs
+     * everything that has accumulated as one batch.
+     */
+    private void flushLoop() {
+        while (true) {
+            synchronized (lock) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.size() == 0) return;
+            }
+            synchronized (ioLock) {
+                byte[] batch;
+                long upTo;
+                synchronized (lock) {
+                    batch = pending.toByteArray();
+                    pending.reset();
+                    upTo = appended;
+                }
+                try {
+                    writeFully(batch);
+                    channel.force(false);
+                    synchronized (lock) {
+                        durable = Math.max(durable, upTo);
+                        lock.notifyAll();
+                    }
+                } catch (IOException e) {
+                    synchronized (lock) {
+                        failure = e;
+                        lock.notifyAll();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes and fsyncs the pending batch on the calling thread.
+     * Callers hold both ioLock and lock.
+     */
+    private void writePending() throws IOException {
+        if (pending.size() > 0) {
+            writeFully(pending.toByteArray());
+            pending.reset();
+        }
+        channel.force(false);
+        durable = appended;
+        lock.notifyAll();
+    }
+
+    private void writeFully(byte[] batch) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(batch);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Applies every intact record in the file to the manager.
+     *
+     * @param truncateTail if true, cut the file after the last intact record
+     * @return the number of records applied
+     */
+    private static long replay(Path path, InventoryManager manager, boolean truncateTail) throws IOException {
+        long records = 0;
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0) break;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) break;
+
+                apply(new DataInputStream(new ByteArrayInputStream(payload)), manager);
+                records++;
+                validLength += 2 * Integer.BYTES + length;
+            }
+        }
+        if (truncateTail && validLength < Files.size(path)) {
+            try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                file.truncate(validLength);
+                file.force(true);
+            }
+        }
+        return records;
+    }
+
+    private static void apply(DataInputStream in, InventoryManager manager) throws IOException {
+        byte type = in.readByte();
+        if (type == CLEAR) {
+            manager.clearInventory();
+            return;
+        }
+        String sku = readString(in);
+        if (type == ADD) {
+            String name = readString(in);
+            int quantity = in.readInt();
+            double price = in.readDouble();
+            manager.restoreProduct(new Product(sku, name, quantity, price, readString(in)));
+            return;
+        }
+        if (type == REMOVE) {
+            manager.delete(sku);
+            return;
+        }
+        Product product = manager.findBySku(sku);
+        if (product == null) return;
+        switch (type) {
+            case QUANTITY:
+                product.setQuantity(in.readInt());
+                break;
+            case PRICE:
+                product.setPrice(in.readDouble());
+                break;
+            case NAME:
+                product.setName(readString(in));
+                break;
+            case CATEGORY:
+                product.setCategory(readString(in));
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static FileChannel openForAppend(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Writes one record's payload.
+     */
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
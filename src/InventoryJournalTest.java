@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the write-ahead journal.
+ * Changes made with a journal enabled must be recovered by a fresh manager,
+ * both from the journal alone and from a compacted snapshot plus journal tail,
+ * including when the journal ends in a torn record.
+ */
+public class InventoryJournalTest {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        PrintStream console = System.out;
+        Path dir = Files.createTempDirectory("journal-test");
+        String journal = dir.resolve("inventory.journal").toString();
+        String snapshot = dir.resolve("inventory.snap").toString();
+
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            InventoryManager first = new InventoryManager();
+            first.enableJournal(journal, snapshot);
+            first.addProduct(new Product("A1", "Keyboard", 10, 29.99, "Electronics"));
+            first.addProduct(new Product("B2", "Mouse", 5, 15.99, "Electronics"));
+            first.addProduct(new Product("C3", "Desk", 2, 199.0, "Furniture"));
+            first.updateQuantity("A1", 7);
+            first.adjustQuantity("B2", -2);
+            first.searchBySku("C3").setPrice(149.5);
+            first.searchBySku("C3").setName("Standing Desk");
+            first.removeProduct("B2");
+            String expected = describe(first);
+            first.closeJournal();
+
+            check(describe(recover(journal, snapshot)).equals(expected), "journal replay");
+
+            InventoryManager second = recover(journal, snapshot);
+            second.compactJournal();
+            runConcurrentUpdates(second);
+            second.searchBySku("A1").setCategory("Peripherals");
+            expected = describe(second);
+            second.closeJournal();
+
+            Files.write(Path.of(journal), new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+            InventoryManager third = recover(journal, snapshot);
+            check(describe(third).equals(expected), "snapshot plus journal tail");
+            third.addProduct(new Product("D4", "Lamp", 1, 9.99, "Furniture"));
+            expected = describe(third);
+            third.closeJournal();
+
+            check(describe(recover(journal, snapshot)).equals(expected), "append after torn tail");
+        } finally {
+            System.setOut(console);
+        }
+        console.println("Journal test passed.");
+    }
+
+    /**
+     * Several threads update their own SKUs at once, sharing fsyncs.
+     */
+    private static void runConcurrentUpdates(InventoryManager manager) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            String sku = "T" + t;
+            manager.addProduct(new Product(sku, "Item " + t, 0, 1.0, "Test"));
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    manager.adjustQuantity(sku, 1);
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+    }
+
+    private static InventoryManager recover(String journal, String snapshot) {
+        InventoryManager manager = new InventoryManager();
+        manager.enableJournal(journal, snapshot);
+        return manager;
+    }
+
+    private static String describe(InventoryManager manager) {
+        List<String> rows = new ArrayList<>();
+        for (Product product : manager.orderedProducts()) {
+            rows.add(product.toString());
+        }
+        rows.sort(null);
+        return rows.toString();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
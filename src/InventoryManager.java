@@ -1,28 +1,190 @@
 import java.io.*;
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The InventoryManager class handles all core inventory operations such as
  * adding, removing, searching, filtering, sorting, and managing products.
  *
- * It maintains a list of Product objects and provides utility methods
- * to interact with the inventory data.
+ * It maintains a map of Product objects keyed by SKU and provides utility
+ * methods to interact with the inventory data. SKU lookups, inserts and
+ * removals stay O(1); each product carries a position stamp that defines the
+ * ordered view used for printing and sorting.
+ *
+ * The manager is safe for concurrent use. The SKU map is a ConcurrentHashMap,
+ * and read-modify-write operations on a product take a lock chosen by the
+ * SKU's hash, so writers working on different SKUs do not contend.
+ *
+ * Products added to a manager keep a reference to it, so changes made through
+ * their setters go through the same locks, keep the secondary indexes current
+ * and are recorded in the journal when one is enabled.
+ *
+ * Sorted secondary indexes on price and quantity answer range filters in
+ * O(log n + k) and give the price and quantity sorts a presorted order. A
+ * trigram index over names narrows substring and prefix searches to the
+ * products sharing the query's rarest trigram. Category strings are interned,
+ * and each category keeps a compressed bitmap of its products for filters
+ * and counts. Stock totals, per-category units and the low-stock list are
+ * kept as running aggregates, so reports do not scan the inventory. An
+ * optional query cache keeps filter results until a change affects them.
+ *
+ * With snapshots enabled, every change is also published to an immutable,
+ * structurally shared map of product copies, so readers such as printing and
+ * saving get a consistent point-in-time view without taking any lock.
+ *
+ * With the change feed enabled, every add, remove and product change is also
+ * appended to an ordered ChangeFeed that other services can subscribe to.
+ *
+ * Sorts and filters over at least parallelThreshold products run on the
+ * common fork/join pool, using Arrays.parallelSort and parallel streams.
+ *
+ * Outcomes of adds, removes and quantity changes are reported as
+ * InventoryEvents to a pluggable sink. The default sink prints them to the
+ * console as before; AsyncEventSink moves that output off the calling thread
+ * and InventoryEventSink.NONE turns it off.
  *
  * This class serves as the backend logic for the inventory system,
  * separate from the CLI or user interface.
  */
 public class InventoryManager {
-    List<Product> inventory;
-    private Random random = new Random();
+    private static final int DEFAULT_LOCK_STRIPES = 64;
+    private static final String DEFAULT_FILE = "inventory.txt";
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 50_000;
+    // Each cached sorted view holds a reference to every product, so only a few orders are kept.
+    static final int MAX_SORTED_VIEWS = 8;
+
+    ConcurrentHashMap<String, Product> inventory;
+    private final Object[] locks;
+    // New products take the bumped value as their position. The shards of a
+    // ShardedInventoryManager share one, so positions order products across shards.
+    private final AtomicLong sequence;
+    // Bumped by every add and remove, after the SKU map has changed; versions the
+    // ordered view. Each manager has its own, so one shard's changes keep the others' views.
+    private final AtomicLong orderVersion = new AtomicLong();
+    private volatile OrderedView orderedView;
+    // Bumped by every add, remove and field change; versions the cached sorted views.
+    private final AtomicLong modifications = new AtomicLong();
+    // Sorted views of the current version, least recently used first; guarded by its own monitor.
+    private final LinkedHashMap<SortOrder, OrderedView> sortedViews =
+            new LinkedHashMap<SortOrder, OrderedView>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<SortOrder, OrderedView> eldest) {
+                    return size() > MAX_SORTED_VIEWS;
+                }
+            };
+    private volatile InventoryJournal journal;
+    private final RangeIndex priceIndex = new RangeIndex();
+    private final RangeIndex quantityIndex = new RangeIndex();
+    private final NgramIndex nameIndex = new NgramIndex();
+    private final CategoryIndex categoryIndex = new CategoryIndex();
+    private final InventoryAggregates aggregates = new InventoryAggregates();
+    private volatile QueryCache queryCache;
+    // The latest published snapshot, or null while snapshots are off.
+    private final AtomicReference<InventorySnapshot> snapshots = new AtomicReference<>();
+    // Set once enableSnapshots has published every product; until then snapshots are partial.
+    private volatile boolean snapshotsReady;
+    // The feed every change is appended to, or null while the change feed is off.
+    private final AtomicReference<ChangeFeed> changeFeed = new AtomicReference<>();
+    private volatile InventoryEventSink events = InventoryEventSink.CONSOLE;
+    private volatile SkuGenerator skuGenerator = new SnowflakeSkuGenerator(0);
+    private volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
 
     /**
-     * Initializes an empty inventory list.
+     * Initializes an empty inventory.
      */
     public InventoryManager() {
-        inventory = new ArrayList<>();
+        this(DEFAULT_LOCK_STRIPES);
+    }
+
+    /**
+     * Initializes an empty inventory guarded by the given number of SKU locks.
+     * The count is rounded up to a power of two.
+     *
+     * @param lockStripes the number of locks SKUs are hashed across
+     */
+    public InventoryManager(int lockStripes) {
+        this(lockStripes, new AtomicLong());
+    }
+
+    /**
+     * Initializes an empty inventory that takes product positions from the
+     * given counter, which may be shared with other managers.
+     *
+     * @param lockStripes the number of locks SKUs are hashed across
+     * @param sequence    the counter new products take their positions from
+     */
+    InventoryManager(int lockStripes, AtomicLong sequence) {
+        if (lockStripes < 1) {
+            throw new IllegalArgumentException("lockStripes must be positive: " + lockStripes);
+        }
+        int stripes = Integer.highestOneBit(lockStripes);
+        if (stripes < lockStripes) stripes <<= 1;
+        locks = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new Object();
+        }
+        this.sequence = sequence;
+        inventory = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Sets the sink that receives this manager's events.
+     *
+     * @param sink the event sink; InventoryEventSink.NONE to discard events
+     */
+    public void setEventSink(InventoryEventSink sink){
+        if (sink == null) throw new IllegalArgumentException("sink must not be null; use InventoryEventSink.NONE");
+        events = sink;
+    }
+
+    /**
+     * Sets the number of products from which sorts and filters run in parallel
+     * on the common fork/join pool. Smaller inputs are handled on the calling
+     * thread, where splitting the work costs more than it saves.
+     *
+     * @param threshold the minimum input size for parallel execution;
+     *                  Integer.MAX_VALUE to always run sequentially
+     */
+    public void setParallelThreshold(int threshold){
+        if (threshold < 1) throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        parallelThreshold = threshold;
+    }
+
+    /**
+     * Puts a read-through cache in front of the name, category, price and
+     * quantity filters, replacing any previous cache and its contents. Cached
+     * results are dropped only when a change could alter them, and the least
+     * recently used ones are evicted to stay within both limits. The sorts
+     * keep their own cache of sorted views regardless.
+     *
+     * @param maxEntries the maximum number of cached results; 0 removes the cache
+     * @param maxWeight  the maximum total size of the cached results, counting one
+     *                   per product plus one per result
+     */
+    public void setQueryCache(int maxEntries, long maxWeight){
+        if (maxEntries < 0) throw new IllegalArgumentException("maxEntries must not be negative: " + maxEntries);
+        if (maxWeight < 0) throw new IllegalArgumentException("maxWeight must not be negative: " + maxWeight);
+        queryCache = maxEntries == 0 ? null : new QueryCache(maxEntries, maxWeight);
+    }
+
+    /**
+     * Returns the hit, miss, eviction and invalidation counters of the query cache.
+     *
+     * @return the cache's counters, or null if no cache is set
+     */
+    public QueryCacheStats getQueryCacheStats(){
+        QueryCache cache = queryCache;
+        return cache == null ? null : cache.stats();
     }
 
     /**
@@ -42,20 +204,20 @@ public class InventoryManager {
 
     /**
      * Adds a new product to the inventory if its SKU is not already present.
+     * A product belongs to one inventory at a time; add a copy to put the
+     * same values in a second manager.
      *
      * @param product the Product to add
+     * @throws IllegalArgumentException if the product already belongs to an inventory
      */
     public void addProduct(Product product){
         String newSku = product.getSku();
-        for (int i = 0; i < inventory.size(); i++) {
-            Product existingProduct = inventory.get(i);
-            if (existingProduct.getSku().equals(newSku)) {
-                System.out.println("Product with SKU " + newSku + " already exist.");
-                return;
-            }
+        if (!insert(product)) {
+            emit(InventoryEvent.Type.DUPLICATE_SKU, newSku, null, 0, 0, null);
+            return;
         }
-        inventory.add(product);
-        System.out.println("Product with SKU " + newSku + " added.");
+        syncJournal();
+        emit(InventoryEvent.Type.ADDED, newSku, null, 0, 0, null);
     }
 
     /**
@@ -64,15 +226,12 @@ public class InventoryManager {
      * @param sku the SKU to remove
      */
     public void removeProduct(String sku) {
-        for (int i = 0; i < inventory.size(); i++) {
-            Product product = inventory.get(i);
-            if (product.getSku().equals(sku)) {
-                inventory.remove(i);
-                System.out.println("Product with SKU " + sku + " removed.");
-                return;
-            }
+        if (delete(sku) != null) {
+            syncJournal();
+            emit(InventoryEvent.Type.REMOVED, sku, null, 0, 0, null);
+            return;
         }
-        System.out.println("No product with SKU: " + sku + " found.");
+        emit(InventoryEvent.Type.NOT_FOUND, sku, null, 0, 0, null);
     }
 
     /**
@@ -83,18 +242,163 @@ public class InventoryManager {
      */
     public void updateQuantity(String sku, int newQty){
         if(newQty < 0){
-            System.out.println("Quantity cannot be under than 0");
+            emit(InventoryEvent.Type.INVALID_QUANTITY, sku, null, newQty, 0, null);
             return;
         }
-        for (int i = 0; i < inventory.size(); i++) {
-            Product product = inventory.get(i);
-            if (product.getSku().equals(sku)) {
-                product.setQuantity(newQty);
-                System.out.println("Updated: " + product.getName() + " quantity to " + newQty);
-                return;
+        Product product;
+        synchronized (lockFor(sku)) {
+            product = inventory.get(sku);
+            if (product != null) setQuantityOutright(product, newQty);
+        }
+        if (product != null) {
+            syncJournal();
+            emit(InventoryEvent.Type.QUANTITY_UPDATED, sku, product.getName(), newQty, 0, null);
+            return;
+        }
+        emit(InventoryEvent.Type.NOT_FOUND, sku, null, 0, 0, null);
+    }
+
+    /**
+     * Atomically adds delta to the quantity of a product.
+     * The change is rejected if it would bring the stock below zero.
+     *
+     * @param sku   SKU of Product to be updated
+     * @param delta amount to add; negative values take stock out
+     * @return true if the quantity was changed
+     */
+    public boolean adjustQuantity(String sku, int delta){
+        Product product;
+        int newQty = 0;
+        synchronized (lockFor(sku)) {
+            product = inventory.get(sku);
+            if (product != null) {
+                long adjusted = (long) product.getQuantity() + delta;
+                if (adjusted < 0 || adjusted > Integer.MAX_VALUE) {
+                    emit(InventoryEvent.Type.ADJUST_REJECTED, sku, product.getName(), product.getQuantity(), delta,
+                            null);
+                    return false;
+                }
+                newQty = (int) adjusted;
+                changeQuantity(product, newQty);
+            }
+        }
+        if (product != null) {
+            syncJournal();
+            emit(InventoryEvent.Type.QUANTITY_UPDATED, sku, product.getName(), newQty, 0, null);
+            return true;
+        }
+        emit(InventoryEvent.Type.NOT_FOUND, sku, null, 0, 0, null);
+        return false;
+    }
+
+    /**
+     * Applies a batch of changes without printing anything.
+     *
+     * Operations are grouped by SKU in a single pass, and each SKU's lock is
+     * taken once for all of its operations, which run in batch order. Quantity
+     * changes to the same product are folded together, so only the final
+     * quantity is written to the index and the journal. The journal, if
+     * enabled, is synced once for the whole batch. Invalid operations are
+     * rejected and counted in the result without stopping the batch.
+     *
+     * @param ops the operations to apply
+     * @return a summary of what was applied and rejected
+     */
+    public BatchResult applyBatch(List<InventoryOp> ops){
+        BatchResult result = new BatchResult();
+        int n = ops.size();
+        InventoryOp[] batch = ops.toArray(new InventoryOp[0]);
+        // Each SKU maps to {first, last} op index; next[] chains the rest of its ops in batch order.
+        int[] next = new int[n];
+        LinkedHashMap<String, int[]> groups = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            next[i] = -1;
+            int[] group = groups.get(batch[i].getSku());
+            if (group == null) {
+                groups.put(batch[i].getSku(), new int[] {i, i});
+            } else {
+                next[group[1]] = i;
+                group[1] = i;
+            }
+        }
+        for (Map.Entry<String, int[]> group : groups.entrySet()) {
+            applyGroup(group.getKey(), group.getValue()[0], batch, next, result);
+        }
+        syncJournal();
+        result.finish();
+        return result;
+    }
+
+    /**
+     * Applies one SKU's operations from a batch under that SKU's lock.
+     */
+    private void applyGroup(String sku, int first, InventoryOp[] batch, int[] next, BatchResult result) {
+        synchronized (lockFor(sku)) {
+            Product current = inventory.get(sku);
+            int quantity = current == null ? 0 : current.quantity;
+            boolean quantityChanged = false;
+            boolean quantitySet = false;
+            for (int i = first; i >= 0; i = next[i]) {
+                InventoryOp op = batch[i];
+                switch (op.getType()) {
+                    case ADD:
+                        if (current != null) {
+                            result.failed(i, op, BatchResult.Reason.DUPLICATE_SKU);
+                        } else if (op.getProduct().owner != null) {
+                            result.failed(i, op, BatchResult.Reason.IN_OTHER_INVENTORY);
+                        } else {
+                            insert(op.getProduct());
+                            current = op.getProduct();
+                            quantity = current.quantity;
+                            result.added();
+                        }
+                        break;
+                    case REMOVE:
+                        if (current == null) {
+                            result.failed(i, op, BatchResult.Reason.NOT_FOUND);
+                        } else {
+                            delete(sku);
+                            current = null;
+                            quantityChanged = false;
+                            quantitySet = false;
+                            result.removed();
+                        }
+                        break;
+                    case SET_QUANTITY:
+                        if (op.getAmount() < 0) {
+                            result.failed(i, op, BatchResult.Reason.INVALID_QUANTITY);
+                        } else if (current == null) {
+                            result.failed(i, op, BatchResult.Reason.NOT_FOUND);
+                        } else {
+                            quantity = op.getAmount();
+                            quantityChanged = true;
+                            quantitySet = true;
+                            result.updated();
+                        }
+                        break;
+                    default:
+                        if (current == null) {
+                            result.failed(i, op, BatchResult.Reason.NOT_FOUND);
+                            break;
+                        }
+                        long adjusted = (long) quantity + op.getAmount();
+                        if (adjusted < 0 || adjusted > Integer.MAX_VALUE) {
+                            result.failed(i, op, BatchResult.Reason.INSUFFICIENT_STOCK);
+                        } else {
+                            quantity = (int) adjusted;
+                            quantityChanged = true;
+                            result.updated();
+                        }
+                        break;
+                }
+            }
+            // A removal drops any folded quantity, so only the surviving product's final quantity is written.
+            if (quantitySet) {
+                setQuantityOutright(current, quantity);
+            } else if (quantityChanged && current.quantity != quantity) {
+                changeQuantity(current, quantity);
             }
         }
-        System.out.println("No product with SKU: " + sku + " found.");
     }
 
     /**
@@ -105,13 +409,7 @@ public class InventoryManager {
      */
     public Product searchBySku(String sku){
         sku = sku.toUpperCase();
-        for (int i = 0; i < inventory.size(); i++) {
-            Product product = inventory.get(i);
-            if (product.getSku().equals(sku)){
-                return product;
-            }
-        }
-        return null;
+        return inventory.get(sku);
     }
 
     /**
@@ -121,17 +419,42 @@ public class InventoryManager {
      * @return a list of products matching the name
      */
     public List<Product> filterByName(String query) {
+        return filterByName(query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Filters products whose name contains the query (case-insensitive),
+     * returning at most {@code limit} of them in display order.
+     *
+     * @param query the text to look for in product names
+     * @param limit the maximum number of products to return
+     * @return a list of the first products matching the name
+     */
+    public List<Product> filterByName(String query, int limit) {
         if (inventory == null || inventory.size() == 0) return null;
-        query = query.toLowerCase();
-        List<Product> products = new ArrayList<>();
-        for (int i = 0; i < inventory.size(); i++) {
-            Product product = inventory.get(i);
-            if (product.getName() == null) continue;
-            if (product.getName().toLowerCase().contains(query)) {
-                products.add(product);
-            }
-        }
-        return products;
+        if (limit < 0) throw new IllegalArgumentException("limit must not be negative: " + limit);
+        QueryCache cache = queryCache;
+        if (cache == null) return nameIndex.search(query, false, limit, parallelThreshold);
+        return cache.get(QueryCache.Key.name(query, false, limit),
+                () -> nameIndex.search(query, false, limit, parallelThreshold));
+    }
+
+    /**
+     * Filters products whose name starts with the query (case-insensitive),
+     * returning at most {@code limit} of them in display order. Intended for
+     * type-ahead search.
+     *
+     * @param prefix the start of the product name
+     * @param limit  the maximum number of products to return
+     * @return a list of the first products whose name starts with the prefix
+     */
+    public List<Product> filterByNamePrefix(String prefix, int limit) {
+        if (limit < 0) throw new IllegalArgumentException("limit must not be negative: " + limit);
+        if (inventory == null || inventory.size() == 0) return new ArrayList<>();
+        QueryCache cache = queryCache;
+        if (cache == null) return nameIndex.search(prefix, true, limit, parallelThreshold);
+        return cache.get(QueryCache.Key.name(prefix, true, limit),
+                () -> nameIndex.search(prefix, true, limit, parallelThreshold));
     }
 
     /**
@@ -142,168 +465,716 @@ public class InventoryManager {
      */
     public List<Product> filterByCategory(String query){
         if (inventory == null || inventory.size() == 0) return new ArrayList<>();
-        List<Product> products = new ArrayList<>();
-        for (int i = 0; i < inventory.size(); i++) {
-            Product product = inventory.get(i);
-            if (product.getCategory() == null) continue;
-            if (product.getCategory().equalsIgnoreCase(query)) {
-                products.add(product);
-            }
-        }
-        return products;
+        QueryCache cache = queryCache;
+        if (cache == null) return categoryIndex.products(query, parallelThreshold);
+        return cache.get(QueryCache.Key.category(query), () -> categoryIndex.products(query, parallelThreshold));
     }
 
     /**
-     * Filters products based on matching Exact Price.
+     * Starts a query that combines predicates, ordering and paging. The query
+     * is planned against this manager's indexes each time it runs.
+     *
+     * @return a new query matching every product
+     */
+    public InventoryQuery query(){
+        return new InventoryQuery(this, nameIndex, categoryIndex, priceIndex, quantityIndex);
+    }
+
+    /**
+     * Counts the products in a category (case-insensitive).
+     *
+     * @param category the category to count
+     * @return the number of products in the category
+     */
+    public int countByCategory(String category){
+        return categoryIndex.count(category);
+    }
+
+    /**
+     * Returns the total number of units in stock, kept as products change.
+     *
+     * @return the sum of every product's quantity
+     */
+    public long totalUnits(){
+        return aggregates.units();
+    }
+
+    /**
+     * Returns the value of all stock, kept as products change. Each price is
+     * rounded to the cent, so the total is exact.
+     *
+     * @return the sum of price times quantity over every product
+     */
+    public BigDecimal totalValue(){
+        return BigDecimal.valueOf(aggregates.valueCents(), 2);
+    }
+
+    /**
+     * Returns the number of units in a category (case-insensitive).
+     *
+     * @param category the category
+     * @return the sum of the quantities of its products
+     */
+    public long unitsByCategory(String category){
+        InventoryAggregates.CategoryTotals totals = aggregates.category(category);
+        return totals == null ? 0 : totals.units.sum();
+    }
+
+    /**
+     * Returns the value of the stock in a category (case-insensitive).
+     *
+     * @param category the category
+     * @return the sum of price times quantity over its products
+     */
+    public BigDecimal valueByCategory(String category){
+        InventoryAggregates.CategoryTotals totals = aggregates.category(category);
+        return BigDecimal.valueOf(totals == null ? 0 : totals.valueCents.sum(), 2);
+    }
+
+    /**
+     * Returns the number of units held in each category that has stock.
+     *
+     * @return units per category, keyed by the first spelling of each category
+     */
+    public Map<String, Long> unitsPerCategory(){
+        return aggregates.unitsPerCategory();
+    }
+
+    /**
+     * Sets the reorder threshold used for products whose category has none of
+     * its own. Products with a quantity below their threshold are low on stock.
+     *
+     * @param threshold the reorder threshold; 0 reports nothing
+     */
+    public void setLowStockThreshold(int threshold){
+        aggregates.setThreshold(null, threshold, inventory.values());
+    }
+
+    /**
+     * Sets the reorder threshold for a category (case-insensitive).
+     *
+     * @param category  the category
+     * @param threshold the reorder threshold for its products
+     */
+    public void setLowStockThreshold(String category, int threshold){
+        if (category == null) throw new IllegalArgumentException("category must not be null");
+        aggregates.setThreshold(category, threshold, inventory.values());
+    }
+
+    /**
+     * Returns products below their reorder threshold, lowest quantity first.
+     *
+     * @param limit the maximum number of products to return
+     * @return up to limit low-stock products
+     */
+    public List<Product> lowStock(int limit){
+        if (limit < 0) throw new IllegalArgumentException("limit must not be negative: " + limit);
+        return aggregates.lowStock(limit);
+    }
+
+    /**
+     * Returns the number of products below their reorder threshold.
+     *
+     * @return the low-stock product count
+     */
+    public int lowStockCount(){
+        return aggregates.lowStockCount();
+    }
+
+    /**
+     * Filters products that are in a category (case-insensitive) and within a
+     * price range. The price index supplies the range, and the category
+     * bitmap is probed for each product in it.
+     *
+     * @param category the category to filter by
+     * @param min      minimum price, inclusive
+     * @param max      maximum price, inclusive
+     * @return the matching products, in ascending price order
+     */
+    public List<Product> filterByCategoryAndPriceRange(String category, double min, double max){
+        if (min > max || categoryIndex.count(category) == 0) return new ArrayList<>();
+        return categoryIndex.retain(priceIndex.range(min, max), category);
+    }
+
+    /**
+     * Filters products based on matching Exact Price. Prices are compared in
+     * whole cents, so 0.1 + 0.2 matches a product priced 0.30.
      *
      * @param query the exact price to filter by
      * @return a list of products matching the exact price
      */
     public List<Product> filterByExactPrice(Double query){
         if (inventory == null || inventory.size() == 0) return new ArrayList<>();
-        List<Product> products = new ArrayList<>();
-        for (int i = 0; i < inventory.size(); i++) {
-            Product product = inventory.get(i);
-            if (Double.compare(product.getPrice(), query) == 0) {
-                products.add(product);
-            }
-        }
-        return products;
+        long cents = CompactProduct.toCents(query);
+        QueryCache cache = queryCache;
+        if (cache == null) return priceIndex.hundredths(cents);
+        return cache.get(QueryCache.Key.exactPrice(cents), () -> priceIndex.hundredths(cents));
     }
 
     /**
-     * Filters products based on price range.
+     * Filters products based on price range, using the price index.
      *
      * @param min minimum price range to be filtered by
      * @param max maximum price range to be filtered by
-     * @return a list of products matching the price range
+     * @return a list of products matching the price range, in ascending price order
      */
     public List<Product> filterByPriceRange(double min, double max){
         if(min > max) return new ArrayList<>();
         if (inventory == null || inventory.size() == 0) return new ArrayList<>();
-        List<Product> products = new ArrayList<>();
-        for (int i = 0; i < inventory.size(); i++) {
-            Product product = inventory.get(i);
-            if (product.getPrice() >= min && product.getPrice() <= max) {
-                products.add(product);
-            }
-        }
-        return products;
+        QueryCache cache = queryCache;
+        if (cache == null) return priceIndex.range(min, max);
+        return cache.get(QueryCache.Key.price(min, max), () -> priceIndex.range(min, max));
+    }
+
+    /**
+     * Filters products based on quantity range, using the quantity index.
+     *
+     * @param min minimum quantity to be filtered by
+     * @param max maximum quantity to be filtered by
+     * @return a list of products matching the quantity range, in ascending quantity order
+     */
+    public List<Product> filterByQuantityRange(int min, int max){
+        if(min > max) return new ArrayList<>();
+        QueryCache cache = queryCache;
+        if (cache == null) return quantityIndex.range(min, max);
+        return cache.get(QueryCache.Key.quantity(min, max), () -> quantityIndex.range(min, max));
+    }
+
+    /**
+     * Returns the number of products in the inventory.
+     *
+     * @return the product count
+     */
+    public int size() {
+        return inventory.size();
     }
 
     /**
      * Clears inventory.
      */
     public void clearInventory() {
-        inventory.clear();
+        for (Product product : inventory.values()) {
+            detach(product.getSku());
+        }
+        InventoryJournal current = journal;
+        if (current != null) {
+            current.logClear();
+            syncJournal();
+        }
     }
 
     /**
-     * Prints all Products in the inventory.
+     * Prints all Products in the inventory. With snapshots enabled, the
+     * products are printed as of one snapshot.
      */
     public void printAllProducts() {
-        for (Product p : inventory) {
+        InventorySnapshot snapshot = snapshot();
+        if (snapshot != null) {
+            for (ProductSnapshot p : snapshot.products()) {
+                System.out.println(p);
+            }
+            return;
+        }
+        for (Product p : orderedProducts()) {
             System.out.println(p);
         }
     }
 
     /**
-     * Generates a unique SKU for a product.
+     * Generates a unique SKU for a product using the manager's SkuGenerator.
+     * A generated SKU that is already taken, e.g. entered by hand, is skipped
+     * with a single hash lookup.
      *
      * @return returns unique sku
      */
     public String generateUniqueSku(){
-        while (true) {
-            char letter = (char) ('A' + random.nextInt(26));
-            StringBuilder digits = new StringBuilder();
-            for (int i = 0; i < 3; i++) {
-                digits.append(random.nextInt(10));
-            }
-            String sku = letter + digits.toString();
-
-            boolean duplicate = false;
-            for (Product product : inventory) {
-                if (product.getSku().equals(sku)) {
-                    duplicate = true;
-                    break;
-                }
-            }
+        SkuGenerator generator = skuGenerator;
+        String sku;
+        do {
+            sku = generator.nextSku();
+        } while (inventory.containsKey(sku));
+        return sku;
+    }
 
-            if (!duplicate) return sku;
-        }
+    /**
+     * Sets the strategy used by generateUniqueSku and createProduct. The
+     * default is a SnowflakeSkuGenerator for node 0.
+     *
+     * @param generator the SKU generator
+     */
+    public void setSkuGenerator(SkuGenerator generator){
+        if (generator == null) throw new IllegalArgumentException("generator must not be null");
+        skuGenerator = generator;
     }
 
     /**
-     * Sorts the inventory by product name in ascending or descending order.
+     * Returns the products sorted by name in ascending or descending order.
      * Products with null names are placed at the beginning or end depending on the sort order.
+     * The inventory's own order is not changed.
      *
      * @param ascending if true, sorts in ascending (A–Z) order; if false, in descending (Z–A)
+     * @return an unmodifiable sorted view of the products
      */
-    public void sortByName(boolean ascending){
-        if (inventory == null || inventory.size() == 0) return;
-        inventory.sort((a,b) -> {
-            if (a.getName() == null && b.getName() == null) return 0;
-            if (a.getName() == null) return -1;
-            if (b.getName() == null) return 1;
-            return a.getName().toLowerCase().compareTo(b.getName().toLowerCase());
-        });
-        if (!ascending){Collections.reverse(inventory);}
+    public List<Product> sortByName(boolean ascending){
+        return sorted(SortOrder.by(SortOrder.Key.NAME, ascending));
     }
 
     /**
-     * Sorts the inventory by product price in ascending or descending order.
+     * Returns the products sorted by price in ascending or descending order.
+     * The inventory's own order is not changed.
      *
      * @param ascending if true, sorts in ascending price order; if false, in descending price
+     * @return an unmodifiable sorted view of the products
      */
-    public void sortByPrice(boolean ascending){
-        if (inventory == null || inventory.size() == 0) return;
-        inventory.sort((a,b) -> Double.compare(a.getPrice(), b.getPrice()));
-        if (!ascending){Collections.reverse(inventory);}
+    public List<Product> sortByPrice(boolean ascending){
+        return sorted(SortOrder.by(SortOrder.Key.PRICE, ascending));
     }
 
     /**
-     * Sorts the inventory by product category in ascending or descending order.
+     * Returns the products sorted by category in ascending or descending order.
      * Products with null categories are placed at the beginning or end depending on the sort order.
+     * The inventory's own order is not changed.
      *
      * @param ascending if true, sorts in ascending (A–Z) order; if false, in descending (Z–A)
+     * @return an unmodifiable sorted view of the products
      */
-    public void sortByCategory(boolean ascending){
-        if (inventory == null || inventory.size() == 0) return;
-        inventory.sort((a,b) -> {
-            if (a.getCategory() == null && b.getCategory() == null) return 0;
-            if (a.getCategory() == null) return -1;
-            if (b.getCategory() == null) return 1;
-            return a.getCategory().toLowerCase().compareTo(b.getCategory().toLowerCase());
-        });
-        if (!ascending){Collections.reverse(inventory);}
+    public List<Product> sortByCategory(boolean ascending){
+        return sorted(SortOrder.by(SortOrder.Key.CATEGORY, ascending));
     }
 
     /**
-     * Sorts the inventory by product quantity in ascending or descending order.
+     * Returns the products sorted by quantity in ascending or descending order.
+     * The inventory's own order is not changed.
      *
      * @param ascending if true, sorts in ascending quantity order; if false, in descending quantity
+     * @return an unmodifiable sorted view of the products
+     */
+    public List<Product> sortByQuantity(boolean ascending){
+        return sorted(SortOrder.by(SortOrder.Key.QUANTITY, ascending));
+    }
+
+    /**
+     * Returns the products sorted by the given keys, e.g. category and then
+     * price descending. Products that tie on every key stay in display order.
+     *
+     * The view is a snapshot: it is cached per order and reused until a
+     * product is added, removed or changed, and the inventory's own order is
+     * never touched. Views of the 8 most recently used orders are kept, and
+     * all of them are dropped once the products change. Each product's keys
+     * are copied before sorting, so a product changed during the sort is
+     * placed by the values it had when the sort began. Large inventories
+     * are sorted with Arrays.parallelSort.
+     *
+     * @param order the keys to sort by
+     * @return an unmodifiable sorted view of the products
+     */
+    public List<Product> sorted(SortOrder order){
+        long version = modifications.get();
+        OrderedView view;
+        synchronized (sortedViews) {
+            view = sortedViews.get(order);
+        }
+        if (view != null && view.version == version) {
+            return view.products;
+        }
+        Product[] products = orderedProducts().toArray(new Product[0]);
+        order.sort(products, products.length >= parallelThreshold);
+        List<Product> sorted = Collections.unmodifiableList(Arrays.asList(products));
+        synchronized (sortedViews) {
+            long current = modifications.get();
+            sortedViews.values().removeIf(cached -> cached.version != current);
+            // A view sorted while the products changed is already stale, so it is not kept.
+            if (version == current) sortedViews.put(order, new OrderedView(version, sorted));
+        }
+        return sorted;
+    }
+
+    /**
+     * @return the number of sorted views currently cached
+     */
+    int cachedSortedViews() {
+        synchronized (sortedViews) {
+            return sortedViews.size();
+        }
+    }
+
+    /**
+     * Returns the products ordered by position. The list is cached and only
+     * rebuilt after a product has been added or removed.
+     *
+     * @return the products in display order; must not be modified
      */
-    public void sortByQuantity(boolean ascending){
-        if (inventory == null || inventory.size() == 0) return;
-        inventory.sort((a,b) -> Integer.compare(a.getQuantity(), b.getQuantity()));
-        if (!ascending){Collections.reverse(inventory);}
+    List<Product> orderedProducts() {
+        OrderedView view = orderedView;
+        long version = orderVersion.get();
+        if (view != null && view.version == version) {
+            return view.products;
+        }
+        List<Product> products = new ArrayList<>(inventory.values());
+        products.sort(Comparator.comparingLong(p -> p.position));
+        orderedView = new OrderedView(version, products);
+        return products;
+    }
+
+    /**
+     * Adds a product under its SKU lock, stamping it with the next position.
+     *
+     * @param product the Product to add
+     * @return false if a product with the same SKU already exists
+     */
+    boolean insert(Product product) {
+        String sku = product.getSku();
+        synchronized (lockFor(sku)) {
+            if (inventory.containsKey(sku)) return false;
+            if (product.owner != null) {
+                throw new IllegalArgumentException("Product " + sku + " already belongs to an inventory");
+            }
+            product.position = sequence.incrementAndGet();
+            product.owner = this;
+            product.category = categoryIndex.intern(product.category);
+            inventory.put(sku, product);
+            // Bumped once the product is in the map, so a reader that sees the
+            // new version also sees the product when it rebuilds the ordered view.
+            orderVersion.incrementAndGet();
+            priceIndex.add(product.price, product);
+            quantityIndex.add(product.quantity, product);
+            nameIndex.add(product, product.name);
+            categoryIndex.add(product);
+            aggregates.added(product);
+            QueryCache cache = queryCache;
+            if (cache != null) cache.added(product);
+            publish(product);
+            record(InventoryChange.Type.ADDED, product);
+            modifications.incrementAndGet();
+            InventoryJournal current = journal;
+            if (current != null) current.logAdd(product);
+            return true;
+        }
+    }
+
+    /**
+     * Removes a product under its SKU lock without printing anything.
+     *
+     * @param sku the SKU to remove
+     * @return the removed product, or null if there was none
+     */
+    Product delete(String sku) {
+        synchronized (lockFor(sku)) {
+            Product product = detach(sku);
+            InventoryJournal current = journal;
+            if (product != null && current != null) current.logRemove(sku);
+            return product;
+        }
+    }
+
+    /**
+     * Takes a product out of the SKU map without journaling the removal.
+     *
+     * @param sku the SKU to remove
+     * @return the removed product, or null if there was none
+     */
+    private Product detach(String sku) {
+        synchronized (lockFor(sku)) {
+            Product product = inventory.remove(sku);
+            if (product == null) return null;
+            orderVersion.incrementAndGet();
+            priceIndex.remove(product.price, product);
+            quantityIndex.remove(product.quantity, product);
+            nameIndex.remove(product);
+            categoryIndex.remove(product);
+            aggregates.removed(product);
+            QueryCache cache = queryCache;
+            if (cache != null) cache.removed(product);
+            unpublish(sku);
+            record(InventoryChange.Type.REMOVED, product);
+            modifications.incrementAndGet();
+            product.escrowGeneration++;
+            product.owner = null;
+            return product;
+        }
+    }
+
+    /**
+     * Looks up a product by its exact SKU.
+     *
+     * @param sku the SKU to find
+     * @return the product, or null if there is none
+     */
+    Product findBySku(String sku) {
+        return inventory.get(sku);
+    }
+
+    /**
+     * Adds a product during recovery, replacing any product with the same SKU.
+     *
+     * @param product the recovered product
+     */
+    void restoreProduct(Product product) {
+        synchronized (lockFor(product.getSku())) {
+            delete(product.getSku());
+            insert(product);
+        }
+    }
+
+    /**
+     * Takes up to max units out of a product's stock without reporting an
+     * event, provided at least min are in stock, the product is still in
+     * this inventory and its escrow generation is unchanged. Units are thus
+     * never set aside under a generation that the product's removal or
+     * reset has voided. Used by ReservationManager.
+     *
+     * @param product    the product to take units from
+     * @param generation the escrow generation the units are for
+     * @param min        the fewest units worth taking
+     * @param max        the most units to take
+     * @return the number of units taken: 0 if fewer than min are in stock, or -1 if the escrow is void
+     */
+    int takeEscrow(Product product, int generation, int min, int max) {
+        int taken;
+        synchronized (lockFor(product.sku)) {
+            if (product.owner != this || product.escrowGeneration != generation) return -1;
+            taken = take(product, min, max);
+        }
+        syncJournal();
+        return taken;
+    }
+
+    /**
+     * Puts units set aside under an escrow generation back into the
+     * product's stock, unless the product was removed or its quantity set
+     * outright since. Used by ReservationManager.
+     *
+     * @param product    the product the units were taken from
+     * @param generation the escrow generation the units were taken for
+     * @param units      the number of units to add
+     * @return false if the escrow is void or the quantity would overflow
+     */
+    boolean returnEscrow(Product product, int generation, int units) {
+        synchronized (lockFor(product.sku)) {
+            if (product.owner != this || product.escrowGeneration != generation
+                    || (long) product.quantity + units > Integer.MAX_VALUE) {
+                return false;
+            }
+            changeQuantity(product, product.quantity + units);
+        }
+        syncJournal();
+        return true;
+    }
+
+    private int take(Product product, int min, int max) {
+        if (product.quantity < min) return 0;
+        int taken = Math.min(product.quantity, max);
+        if (taken > 0) changeQuantity(product, product.quantity - taken);
+        return taken;
+    }
+
+    /**
+     * Sets a product's quantity under its SKU lock. Called by Product.setQuantity.
+     */
+    void setProductQuantity(Product product, int quantity) {
+        synchronized (lockFor(product.sku)) {
+            if (product.owner == this) {
+                setQuantityOutright(product, quantity);
+            } else {
+                product.quantity = quantity;
+            }
+        }
+        syncJournal();
+    }
+
+    /**
+     * Sets a product's price under its SKU lock. Called by Product.setPrice.
+     */
+    void setProductPrice(Product product, double price) {
+        synchronized (lockFor(product.sku)) {
+            double oldPrice = product.price;
+            product.price = price;
+            if (product.owner == this) {
+                priceIndex.move(oldPrice, price, product);
+                aggregates.priceChanged(product, oldPrice);
+                QueryCache cache = queryCache;
+                if (cache != null) cache.priceChanged(product, oldPrice);
+                publish(product);
+                record(InventoryChange.Type.PRICE_CHANGED, product);
+                modifications.incrementAndGet();
+                InventoryJournal current = journal;
+                if (current != null) current.logPrice(product.sku, price);
+            }
+        }
+        syncJournal();
+    }
+
+    /**
+     * Sets a product's name under its SKU lock. Called by Product.setName.
+     */
+    void setProductName(Product product, String name) {
+        synchronized (lockFor(product.sku)) {
+            String oldName = product.name;
+            product.name = name;
+            if (product.owner == this) {
+                nameIndex.rename(product, name);
+                QueryCache cache = queryCache;
+                if (cache != null) cache.nameChanged(product, oldName);
+                publish(product);
+                record(InventoryChange.Type.NAME_CHANGED, product);
+                modifications.incrementAndGet();
+                InventoryJournal current = journal;
+                if (current != null) current.logName(product.sku, name);
+            }
+        }
+        syncJournal();
+    }
+
+    /**
+     * Sets a product's category under its SKU lock. Called by Product.setCategory.
+     */
+    void setProductCategory(Product product, String category) {
+        synchronized (lockFor(product.sku)) {
+            if (product.owner == this) {
+                String oldCategory = product.category;
+                product.category = categoryIndex.intern(category);
+                categoryIndex.move(oldCategory, product.category, product);
+                aggregates.categoryChanged(product, oldCategory);
+                QueryCache cache = queryCache;
+                if (cache != null) cache.categoryChanged(product, oldCategory);
+                publish(product);
+                record(InventoryChange.Type.CATEGORY_CHANGED, product);
+                modifications.incrementAndGet();
+                InventoryJournal current = journal;
+                if (current != null) current.logCategory(product.sku, category);
+            } else {
+                product.category = category;
+            }
+        }
+        syncJournal();
+    }
+
+    /**
+     * Sets a quantity that replaces the stock count rather than adjusting it,
+     * voiding any units a ReservationManager set aside from the old count.
+     * Callers hold the product's SKU lock.
+     */
+    private void setQuantityOutright(Product product, int quantity) {
+        product.escrowGeneration++;
+        changeQuantity(product, quantity);
+    }
+
+    /**
+     * Sets a product's quantity. Callers hold the product's SKU lock.
+     */
+    private void changeQuantity(Product product, int quantity) {
+        int oldQuantity = product.quantity;
+        product.quantity = quantity;
+        quantityIndex.move(oldQuantity, quantity, product);
+        aggregates.quantityChanged(product, oldQuantity);
+        QueryCache cache = queryCache;
+        if (cache != null) cache.quantityChanged(product, oldQuantity);
+        publish(product);
+        record(InventoryChange.Type.QUANTITY_CHANGED, product);
+        modifications.incrementAndGet();
+        InventoryJournal current = journal;
+        if (current != null) current.logQuantity(product.sku, quantity);
+    }
+
+    /**
+     * Publishes a product's current fields to the snapshot, if snapshots are
+     * on. Callers hold the product's SKU lock, so retries copy the same values.
+     */
+    private void publish(Product product) {
+        if (snapshots.get() == null) return;
+        snapshots.updateAndGet(current -> current == null ? null : current.with(product));
+    }
+
+    /**
+     * Removes a SKU from the snapshot, if snapshots are on. Callers hold its SKU lock.
+     */
+    private void unpublish(String sku) {
+        if (snapshots.get() == null) return;
+        snapshots.updateAndGet(current -> current == null ? null : current.without(sku));
+    }
+
+    /**
+     * Appends a change to the change feed, if it is on. Callers hold the
+     * product's SKU lock, so each SKU's changes are appended in order.
+     */
+    private void record(InventoryChange.Type type, Product product) {
+        ChangeFeed feed = changeFeed.get();
+        if (feed != null) feed.append(type, product);
+    }
+
+    /**
+     * Reports an event to the sink, skipping the allocation when events are discarded.
+     */
+    private void emit(InventoryEvent.Type type, String sku, String name, int quantity, int delta, String detail) {
+        InventoryEventSink sink = events;
+        if (sink == InventoryEventSink.NONE) return;
+        sink.publish(new InventoryEvent(type, sku, name, quantity, delta, detail));
+    }
+
+    /**
+     * Waits until the journal, if any, has made every change so far durable.
+     */
+    private void syncJournal() {
+        InventoryJournal current = journal;
+        if (current == null) return;
+        try {
+            current.sync();
+        } catch (UncheckedIOException e) {
+            emit(InventoryEvent.Type.JOURNAL_ERROR, null, null, 0, 0, e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Returns the lock guarding the given SKU.
+     *
+     * @param sku the SKU to lock
+     * @return the stripe lock for that SKU
+     */
+    private Object lockFor(String sku) {
+        int h = sku.hashCode();
+        return locks[(h ^ (h >>> 16)) & (locks.length - 1)];
+    }
+
+    /**
+     * A cached ordered snapshot of the inventory and the counter value it was built at.
+     */
+    private static final class OrderedView {
+        final long version;
+        final List<Product> products;
+
+        OrderedView(long version, List<Product> products) {
+            this.version = version;
+            this.products = products;
+        }
     }
 
     /**
      * Saves the current inventory to a text file named "inventory.txt".
      * Each product is written in CSV format: sku,name,quantity,price,category.
+     * Text fields holding a comma, quote or line break are quoted.
      * Overwrites the file if it already exists.
      */
     public void saveToFile(){
-        try (PrintWriter writer = new PrintWriter(new FileWriter("inventory.txt"))) {
-            for (Product product : inventory) {
-                // Format: sku,name,quantity,price,category
-                String line = product.getSku() + "," +
-                        product.getName() + "," +
-                        product.getQuantity() + "," +
-                        product.getPrice() + "," +
-                        product.getCategory();
-                writer.println(line);
+        saveToFile(DEFAULT_FILE);
+    }
+
+    /**
+     * Saves the current inventory to the given text file in CSV format.
+     * Overwrites the file if it already exists. With snapshots enabled, the
+     * file holds the products as of one snapshot.
+     *
+     * @param fileName the file to write
+     */
+    public void saveToFile(String fileName){
+        InventorySnapshot snapshot = snapshot();
+        if (snapshot != null) {
+            writeSnapshot(snapshot, fileName);
+            return;
+        }
+        try (PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
+            for (Product product : orderedProducts()) {
+                writeLine(writer, product.getSku(), product.getName(), product.getQuantity(),
+                        product.getPrice(), product.getCategory());
             }
             System.out.println("Inventory saved successfully.");
         } catch (IOException e) {
@@ -312,45 +1183,300 @@ public class InventoryManager {
     }
 
     /**
-     * Loads inventory data from a file named "inventory.txt".
-     * Each line is expected to be in CSV format: sku,name,quantity,price,category.
-     * Skips malformed lines and reports any formatting or parsing errors.
-     * Adds successfully parsed products to the current inventory list.
+     * Saves the latest snapshot to the given text file on a background
+     * thread, in the same format as saveToFile. Writers are never paused:
+     * changes made after the call are simply not part of the file.
+     *
+     * @param fileName the file to write
+     * @return a future completed with true once the file is written, or with
+     *         false if it could not be written or snapshots are not enabled
+     *         and ready
      */
-    public void loadFromFile(){
-        try(BufferedReader reader = new BufferedReader(new FileReader("inventory.txt"))){
-            String line;
-            int lineNumber = 0;
-            while((line = reader.readLine()) != null){
-                lineNumber++;
-                String[] parts = line.split(",");
-                if(parts.length != 5){
-                    System.out.println("Line " + lineNumber + " is not formatted correctly: " + line);
-                    continue; // Skip this malformed line
-                }
-                String sku = parts[0];
-                String name = parts[1];
-
-                int quantity;
-                double price;
-                try {
-                    quantity = Integer.parseInt(parts[2]);
-                    price = Double.parseDouble(parts[3]);
-                } catch (NumberFormatException e) {
-                    System.out.println("Line " + lineNumber + " has invalid number format: " + line);
-                    continue; // Skip this malformed line
+    public CompletableFuture<Boolean> saveToFileAsync(String fileName){
+        InventorySnapshot snapshot = snapshot();
+        if (snapshot == null) {
+            System.out.println(snapshots.get() == null ? "Snapshots are not enabled." : "Snapshots are not ready yet.");
+            return CompletableFuture.completedFuture(false);
+        }
+        CompletableFuture<Boolean> saved = new CompletableFuture<>();
+        Thread writer = new Thread(() -> saved.complete(writeSnapshot(snapshot, fileName)), "inventory-snapshot-writer");
+        writer.start();
+        return saved;
+    }
+
+    /**
+     * Starts publishing every change to immutable snapshots, beginning with
+     * the current products. Snapshots are handed out only once every
+     * product has been published; until then snapshot() returns null and
+     * the manager's own readers use the live products. A concurrent call
+     * waits for the first to finish. Each later change copies about
+     * log32(n) small trie nodes.
+     */
+    public void enableSnapshots(){
+        synchronized (snapshots) {
+            if (!snapshots.compareAndSet(null, InventorySnapshot.EMPTY)) return;
+            for (Product product : inventory.values()) {
+                synchronized (lockFor(product.sku)) {
+                    if (product.owner == this) publish(product);
                 }
+            }
+            snapshotsReady = true;
+        }
+    }
+
+    /**
+     * Returns a consistent view of the inventory as of the latest change.
+     * The call does not lock, and the view never changes afterwards.
+     *
+     * @return the latest snapshot, or null if snapshots are not enabled or
+     *         enableSnapshots has not finished publishing the products
+     */
+    public InventorySnapshot snapshot(){
+        return snapshotsReady ? snapshots.get() : null;
+    }
+
+    /**
+     * Starts the change feed, keeping the latest 65,536 changes.
+     */
+    public void enableChangeFeed(){
+        enableChangeFeed(ChangeFeed.DEFAULT_RETENTION);
+    }
 
-                String category = parts[4];
+    /**
+     * Starts appending every add, remove and product change to a change feed
+     * that keeps the latest retention changes for subscribers to resume from.
+     * Products already in the inventory are not replayed: a consumer reads
+     * changeFeed().nextOffset(), scans the inventory, and then subscribes
+     * from that offset. Changes carry full product values, so those made
+     * during the scan can be applied again safely. Does nothing if the feed
+     * is already on.
+     *
+     * @param retention the number of past changes to keep, rounded up to a power of two
+     */
+    public void enableChangeFeed(int retention){
+        // Checked first so a repeated call does not allocate a ring only to drop it.
+        if (changeFeed.get() != null) return;
+        changeFeed.compareAndSet(null, new ChangeFeed(retention));
+    }
 
-                // Create product and add to inventory
-                Product product = new Product(sku, name, quantity, price, category);
-                inventory.add(product);
+    /**
+     * Returns the feed of this inventory's changes.
+     *
+     * @return the change feed, or null if it is not enabled
+     */
+    public ChangeFeed changeFeed(){
+        return changeFeed.get();
+    }
 
+    private static boolean writeSnapshot(InventorySnapshot snapshot, String fileName) {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
+            for (ProductSnapshot product : snapshot.products()) {
+                writeLine(writer, product.getSku(), product.getName(), product.getQuantity(),
+                        product.getPrice(), product.getCategory());
             }
+            System.out.println("Inventory saved successfully.");
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error saving inventory: " + e.getMessage());
+            return false;
+        }
+    }
+
+    static void writeLine(PrintWriter writer, String sku, String name, int quantity, double price,
+                          String category) {
+        // Format: sku,name,quantity,price,category
+        writer.println(csvField(sku) + "," + csvField(name) + "," + quantity + "," + price + "," + csvField(category));
+    }
+
+    /**
+     * Quotes a text field that holds a comma, quote or line break, doubling
+     * its quotes. Other fields are written as they are.
+     */
+    private static String csvField(String value) {
+        if (value == null) return "null";
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Copies the current inventory, in display order, into a column-oriented
+     * engine for scan-heavy queries. Later changes to either side are not shared.
+     *
+     * @return a new ColumnarInventory holding the same products
+     */
+    public ColumnarInventory toColumnar(){
+        ColumnarInventory columnar = new ColumnarInventory();
+        for (Product product : orderedProducts()) {
+            columnar.addProduct(product);
+        }
+        return columnar;
+    }
+
+    /**
+     * Saves the current inventory to a binary snapshot file that can be
+     * memory-mapped with openSnapshot. Overwrites the file if it already exists.
+     *
+     * @param fileName the snapshot file to write
+     */
+    public void saveSnapshot(String fileName){
+        try {
+            MappedInventory.write(fileName, orderedProducts());
+            System.out.println("Snapshot saved successfully.");
+        } catch (IOException e) {
+            System.out.println("Error saving snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Memory-maps a snapshot written by saveSnapshot. Products can be looked up
+     * and scanned straight from the mapping without loading the whole catalog.
+     *
+     * @param fileName the snapshot file to open
+     * @return a read-only view of the snapshot; close it when done
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static MappedInventory openSnapshot(String fileName) throws IOException {
+        return MappedInventory.open(fileName);
+    }
+
+    /**
+     * Recovers the inventory from a snapshot and journal, then records every
+     * further change in the journal. Mutating methods return once their change
+     * is durable; concurrent changes share one fsync. The journal is compacted
+     * into the snapshot file automatically after 100,000 records.
+     *
+     * @param journalFile  the append-only journal file
+     * @param snapshotFile the snapshot file written by compaction
+     */
+    public void enableJournal(String journalFile, String snapshotFile){
+        if (journal != null) {
+            System.out.println("Journal is already enabled.");
+            return;
+        }
+        try {
+            long records = InventoryJournal.recover(journalFile, snapshotFile, this);
+            journal = new InventoryJournal(journalFile, snapshotFile, this::orderedProducts,
+                    InventoryJournal.DEFAULT_COMPACT_THRESHOLD);
+            System.out.println("Recovered " + inventory.size() + " products, replayed " + records + " journal records.");
+        } catch (IOException e) {
+            System.out.println("Error opening journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a full snapshot and starts a new, empty journal.
+     */
+    public void compactJournal(){
+        InventoryJournal current = journal;
+        if (current == null) {
+            System.out.println("Journal is not enabled.");
+            return;
+        }
+        try {
+            current.compact();
+            System.out.println("Journal compacted.");
+        } catch (IOException e) {
+            System.out.println("Error compacting journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Flushes and closes the journal. Later changes are no longer recorded.
+     */
+    public void closeJournal(){
+        InventoryJournal current = journal;
+        if (current == null) return;
+        journal = null;
+        try {
+            current.close();
+        } catch (IOException e) {
+            System.out.println("Error closing journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads inventory data from a file named "inventory.txt".
+     * Each line is expected to be in CSV format: sku,name,quantity,price,category.
+     * Skips malformed lines and duplicate SKUs and prints a summary of them.
+     * Adds successfully parsed products to the current inventory.
+     */
+    public void loadFromFile(){
+        loadFromFile(DEFAULT_FILE);
+    }
+
+    /**
+     * Loads inventory data in CSV format from the given file.
+     * The file is streamed through a CsvInventoryLoader; skipped lines are
+     * collected in the returned report rather than printed one by one.
+     *
+     * @param fileName the file to read
+     * @return the load report, or null if the file could not be read
+     */
+    public LoadReport loadFromFile(String fileName){
+        try {
+            LoadReport report = new CsvInventoryLoader().load(fileName, this::insert);
+            syncJournal();
             System.out.println("Inventory loaded successfully");
+            if (report.getErrorCount() > 0) {
+                System.out.println(report);
+            }
+            return report;
         } catch (IOException e){
             System.out.println("Error loading inventory" + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Saves the current inventory to a chunked binary file. Chunks of 8192
+     * products are encoded and compressed in parallel, and each carries a
+     * CRC32C so damage is found when the file is loaded. Overwrites the file
+     * if it already exists. With snapshots enabled, the file holds the
+     * products as of one snapshot.
+     *
+     * @param fileName    the file to write
+     * @param compression how to compress each chunk
+     */
+    public void saveChunked(String fileName, ChunkedInventoryFile.Compression compression){
+        InventorySnapshot snapshot = snapshot();
+        try {
+            if (snapshot != null) {
+                ChunkedInventoryFile.writeSnapshot(fileName, snapshot.products(), compression);
+            } else {
+                ChunkedInventoryFile.write(fileName, orderedProducts(), compression);
+            }
+            System.out.println("Inventory saved successfully.");
+        } catch (IOException e) {
+            System.out.println("Error saving inventory: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads inventory data from a file written by saveChunked. Chunks are
+     * checked and decoded in parallel and added in file order. A chunk that
+     * fails its checksum is skipped and counted as CORRUPT_CHUNK in the
+     * report; the other chunks still load.
+     *
+     * @param fileName the file to read
+     * @return the load report, or null if the file could not be read
+     */
+    public LoadReport loadChunked(String fileName){
+        try {
+            LoadReport report = ChunkedInventoryFile.read(fileName, this::insert);
+            syncJournal();
+            System.out.println("Inventory loaded successfully");
+            if (report.getErrorCount() > 0) {
+                System.out.println(report);
+            }
+            return report;
+        } catch (IOException e){
+            System.out.println("Error loading inventory: " + e.getMessage());
+            return null;
         }
     }
 }
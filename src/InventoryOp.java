@@ -0,0 +1,112 @@
+/**
+ * A single change in a batch passed to InventoryManager.applyBatch.
+ * Instances are immutable and created with the static factory methods.
+ */
+public final class InventoryOp {
+
+    /**
+     * The kind of change.
+     */
+    public enum Type {
+        /** Adds a new product. */
+        ADD,
+        /** Sets a product's quantity. */
+        SET_QUANTITY,
+        /** Adds a delta to a product's quantity. */
+        ADJUST_QUANTITY,
+        /** Removes a product. */
+        REMOVE
+    }
+
+    private final Type type;
+    private final String sku;
+    private final Product product;
+    private final int amount;
+
+    private InventoryOp(Type type, String sku, Product product, int amount) {
+        if (sku == null) throw new IllegalArgumentException("SKU must not be null");
+        this.type = type;
+        this.sku = sku;
+        this.product = product;
+        this.amount = amount;
+    }
+
+    /**
+     * Creates an operation that adds a product.
+     *
+     * @param product the product to add
+     * @return the operation
+     */
+    public static InventoryOp add(Product product) {
+        return new InventoryOp(Type.ADD, product.getSku(), product, 0);
+    }
+
+    /**
+     * Creates an operation that sets a product's quantity.
+     *
+     * @param sku      the SKU of the product
+     * @param quantity the new quantity
+     * @return the operation
+     */
+    public static InventoryOp setQuantity(String sku, int quantity) {
+        return new InventoryOp(Type.SET_QUANTITY, sku, null, quantity);
+    }
+
+    /**
+     * Creates an operation that adds a delta to a product's quantity.
+     *
+     * @param sku   the SKU of the product
+     * @param delta amount to add; negative values take stock out
+     * @return the operation
+     */
+    public static InventoryOp adjustQuantity(String sku, int delta) {
+        return new InventoryOp(Type.ADJUST_QUANTITY, sku, null, delta);
+    }
+
+    /**
+     * Creates an operation that removes a product.
+     *
+     * @param sku the SKU of the product
+     * @return the operation
+     */
+    public static InventoryOp remove(String sku) {
+        return new InventoryOp(Type.REMOVE, sku, null, 0);
+    }
+
+    /**
+     * @return the kind of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the SKU the change applies to
+     */
+    public String getSku() {
+        return sku;
+    }
+
+    /**
+     * @return the product to add, or null for other operations
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * @return the new quantity or the delta, depending on the type
+     */
+    public int getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case ADD: return "ADD " + sku;
+            case REMOVE: return "REMOVE " + sku;
+            default: return type + " " + sku + " " + amount;
+        }
+    }
+}
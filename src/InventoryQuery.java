@@ -0,0 +1,350 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * A query over an InventoryManager, built from conjunctive predicates, an
+ * optional sort order and a page window:
+ *
+ * <pre>
+ *     manager.query().category("Toys").priceBetween(5, 20)
+ *            .orderBy(SortOrder.byDescending(SortOrder.Key.PRICE))
+ *            .offset(40).limit(20).list();
+ * </pre>
+ *
+ * Each run is planned against the manager's indexes. The planner estimates
+ * how many candidates each usable index would yield (category bitmap
+ * cardinality, the rarest name trigram's posting, or price and quantity
+ * bucket counts) and reads from the smallest. Every predicate is then
+ * checked in one fused pass over those candidates, with no intermediate
+ * lists. If no index narrows the search much, the planner walks the display
+ * order or the cached sorted view instead, lazily, stopping once the page is
+ * full. With an index, a bounded heap keeps only the first offset + limit
+ * matches.
+ *
+ * Without an order, results come in display order. Queries are not
+ * thread-safe to build, but the manager may change while they run; results
+ * are then weakly consistent, like the manager's filters.
+ */
+public final class InventoryQuery {
+
+    /**
+     * How a query reads its candidates.
+     */
+    public enum AccessPath {
+        /** Every product, in display or sorted-view order, read lazily. */
+        SCAN,
+        /** The category bitmap. */
+        CATEGORY,
+        /** The posting of the name's rarest trigram. */
+        NAME,
+        /** The price index range. */
+        PRICE,
+        /** The quantity index range. */
+        QUANTITY
+    }
+
+    // An index is used only when it cuts the candidates to under 1/SCAN_RATIO of the inventory.
+    private static final int SCAN_RATIO = 4;
+    private static final long NO_CENTS = Long.MIN_VALUE;
+
+    private final InventoryManager manager;
+    private final NgramIndex nameIndex;
+    private final CategoryIndex categoryIndex;
+    private final RangeIndex priceIndex;
+    private final RangeIndex quantityIndex;
+
+    private String nameText;
+    private boolean namePrefix;
+    private String category;
+    private double minPrice = Double.NEGATIVE_INFINITY;
+    private double maxPrice = Double.POSITIVE_INFINITY;
+    private boolean pricePredicate;
+    // The price in cents for priceEquals, whose range is then just the neighbouring cents.
+    private long priceCents = NO_CENTS;
+    private int minQuantity = Integer.MIN_VALUE;
+    private int maxQuantity = Integer.MAX_VALUE;
+    private boolean quantityPredicate;
+    private SortOrder order;
+    private long offset;
+    private long limit = Long.MAX_VALUE;
+
+    InventoryQuery(InventoryManager manager, NgramIndex nameIndex, CategoryIndex categoryIndex,
+                   RangeIndex priceIndex, RangeIndex quantityIndex) {
+        this.manager = manager;
+        this.nameIndex = nameIndex;
+        this.categoryIndex = categoryIndex;
+        this.priceIndex = priceIndex;
+        this.quantityIndex = quantityIndex;
+    }
+
+    /**
+     * Keeps products whose name contains the text, ignoring case.
+     *
+     * @param text the text to look for
+     * @return this query
+     */
+    public InventoryQuery nameContains(String text) {
+        nameText = text.toLowerCase();
+        namePrefix = false;
+        return this;
+    }
+
+    /**
+     * Keeps products whose name starts with the text, ignoring case.
+     *
+     * @param text the start of the name
+     * @return this query
+     */
+    public InventoryQuery nameStartsWith(String text) {
+        nameText = text.toLowerCase();
+        namePrefix = true;
+        return this;
+    }
+
+    /**
+     * Keeps products in the category, ignoring case.
+     *
+     * @param category the category
+     * @return this query
+     */
+    public InventoryQuery category(String category) {
+        this.category = category;
+        return this;
+    }
+
+    /**
+     * Keeps products priced within [min, max].
+     *
+     * @param min minimum price, inclusive
+     * @param max maximum price, inclusive
+     * @return this query
+     */
+    public InventoryQuery priceBetween(double min, double max) {
+        minPrice = min;
+        maxPrice = max;
+        pricePredicate = true;
+        priceCents = NO_CENTS;
+        return this;
+    }
+
+    /**
+     * Keeps products with the given price, compared in whole cents.
+     *
+     * @param price the price
+     * @return this query
+     */
+    public InventoryQuery priceEquals(double price) {
+        long cents = CompactProduct.toCents(price);
+        priceBetween((cents - 1) / 100.0, (cents + 1) / 100.0);
+        priceCents = cents;
+        return this;
+    }
+
+    /**
+     * Keeps products whose quantity lies within [min, max].
+     *
+     * @param min minimum quantity, inclusive
+     * @param max maximum quantity, inclusive
+     * @return this query
+     */
+    public InventoryQuery quantityBetween(int min, int max) {
+        minQuantity = min;
+        maxQuantity = max;
+        quantityPredicate = true;
+        return this;
+    }
+
+    /**
+     * Sorts the results. Without an order they come in display order.
+     *
+     * @param order the sort order, or null for display order
+     * @return this query
+     */
+    public InventoryQuery orderBy(SortOrder order) {
+        this.order = order;
+        return this;
+    }
+
+    /**
+     * Skips the first results.
+     *
+     * @param offset the number of results to skip
+     * @return this query
+     */
+    public InventoryQuery offset(long offset) {
+        if (offset < 0) throw new IllegalArgumentException("offset must not be negative: " + offset);
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Caps the number of results.
+     *
+     * @param limit the maximum number of results
+     * @return this query
+     */
+    public InventoryQuery limit(long limit) {
+        if (limit < 0) throw new IllegalArgumentException("limit must not be negative: " + limit);
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Runs the query and returns the page of results.
+     *
+     * @return the matching products in the window given by offset and limit
+     */
+    public List<Product> list() {
+        List<Product> products = new ArrayList<>();
+        stream().forEach(products::add);
+        return products;
+    }
+
+    /**
+     * Runs the query and streams the page of results. When the plan is a
+     * scan, products are matched only as the stream is consumed.
+     *
+     * @return the matching products in the window given by offset and limit
+     */
+    public Stream<Product> stream() {
+        Plan plan = plan();
+        if (plan.candidates == null) {
+            List<Product> source = order == null ? manager.orderedProducts() : manager.sorted(order);
+            return source.stream().filter(this::matches).skip(offset).limit(limit);
+        }
+        return firstMatches(plan.candidates).stream().skip(offset);
+    }
+
+    /**
+     * Counts every product matching the predicates, ignoring offset and limit.
+     *
+     * @return the number of matches
+     */
+    public long count() {
+        Plan plan = plan();
+        Collection<Product> candidates = plan.candidates == null ? manager.orderedProducts() : plan.candidates;
+        long matches = 0;
+        for (Product product : candidates) {
+            if (matches(product)) matches++;
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the access path the query would use now, for diagnostics.
+     *
+     * @return the chosen access path
+     */
+    public AccessPath explain() {
+        return plan().path;
+    }
+
+    /**
+     * Picks the index with the fewest estimated candidates, or a scan when
+     * none of them narrows the search enough.
+     */
+    private Plan plan() {
+        int size = manager.size();
+        int best = size / SCAN_RATIO;
+        Plan plan = new Plan(AccessPath.SCAN, null);
+        if (category != null) {
+            int count = categoryIndex.count(category);
+            if (count < best) {
+                best = count;
+                plan = new Plan(AccessPath.CATEGORY, null);
+            }
+        }
+        Collection<Product> posting = nameText == null ? null : nameIndex.postings(nameText);
+        if (posting != null && posting.size() < best) {
+            best = posting.size();
+            plan = new Plan(AccessPath.NAME, posting);
+        }
+        if (pricePredicate) {
+            int count = priceIndex.count(minPrice, maxPrice, best);
+            if (count < best) {
+                best = count;
+                plan = new Plan(AccessPath.PRICE, null);
+            }
+        }
+        if (quantityPredicate) {
+            int count = quantityIndex.count(minQuantity, maxQuantity, best);
+            if (count < best) {
+                plan = new Plan(AccessPath.QUANTITY, null);
+            }
+        }
+        switch (plan.path) {
+            case CATEGORY: return new Plan(plan.path, categoryIndex.members(category));
+            case PRICE: return new Plan(plan.path, priceIndex.range(minPrice, maxPrice));
+            case QUANTITY: return new Plan(plan.path, quantityIndex.range(minQuantity, maxQuantity));
+            default: return plan;
+        }
+    }
+
+    /**
+     * Keeps the first offset + limit matching candidates in result order.
+     */
+    private List<Product> firstMatches(Collection<Product> candidates) {
+        // Matches are ordered by copies of their keys, which stay put while the products change.
+        Comparator<SortOrder.Entry> resultOrder = order == null ? SortOrder.DISPLAY_ORDER : order.entryComparator();
+        // Saturates instead of overflowing when offset and limit are both huge.
+        long wanted = offset > Long.MAX_VALUE - limit ? Long.MAX_VALUE : offset + limit;
+        List<SortOrder.Entry> matches = new ArrayList<>();
+        if (wanted >= candidates.size()) {
+            for (Product product : candidates) {
+                if (matches(product)) matches.add(SortOrder.entry(product));
+            }
+        } else {
+            PriorityQueue<SortOrder.Entry> heap = new PriorityQueue<>(resultOrder.reversed());
+            for (Product product : candidates) {
+                if (!matches(product)) continue;
+                SortOrder.Entry entry = SortOrder.entry(product);
+                if (heap.size() < wanted) {
+                    heap.add(entry);
+                } else if (resultOrder.compare(entry, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(entry);
+                }
+            }
+            matches.addAll(heap);
+        }
+        matches.sort(resultOrder);
+        List<Product> products = new ArrayList<>(matches.size());
+        for (SortOrder.Entry entry : matches) products.add(entry.product);
+        return products;
+    }
+
+    /**
+     * Checks every predicate against a product in a single pass.
+     */
+    private boolean matches(Product product) {
+        if (product.owner != manager) return false;
+        if (pricePredicate && !(product.price >= minPrice && product.price <= maxPrice)) return false;
+        if (priceCents != NO_CENTS && CompactProduct.toCents(product.price) != priceCents) return false;
+        if (quantityPredicate && (product.quantity < minQuantity || product.quantity > maxQuantity)) return false;
+        if (category != null && (product.category == null || !product.category.equalsIgnoreCase(category))) {
+            return false;
+        }
+        if (nameText != null) {
+            String name = product.nameKey();
+            if (name == null || !(namePrefix ? name.startsWith(nameText) : name.contains(nameText))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * A chosen access path and, for index paths, its candidates.
+     */
+    private static final class Plan {
+        final AccessPath path;
+        final Collection<Product> candidates;
+
+        Plan(AccessPath path, Collection<Product> candidates) {
+            this.path = path;
+            this.candidates = candidates;
+        }
+    }
+}
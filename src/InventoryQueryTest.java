@@ -0,0 +1,109 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Tests for InventoryQuery.
+ * Random queries are run against a random catalog and compared with a
+ * brute-force filter, sort and slice of the display order, and the planner's
+ * choice of access path is checked for a few clear-cut cases.
+ */
+public class InventoryQueryTest {
+
+    private static final String[] CATEGORIES = {"Electronics", "Furniture", "Garden", "Toys", "Rare"};
+
+    public static void main(String[] args) {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        Random random = new Random(23);
+        for (int i = 0; i < 20_000; i++) {
+            // "Rare" products are 1 in 200, so their bitmap is the obvious access path.
+            String category = random.nextInt(200) == 0 ? "Rare" : CATEGORIES[random.nextInt(4)];
+            manager.addProduct(new Product("Q" + i, "Item " + random.nextInt(5_000), random.nextInt(100),
+                    random.nextInt(2_000) / 4.0, category));
+        }
+        for (int i = 0; i < 2_000; i++) {
+            manager.removeProduct("Q" + random.nextInt(20_000));
+        }
+        List<Product> all = new ArrayList<>(manager.orderedProducts());
+
+        SortOrder[] orders = {
+                null,
+                SortOrder.byDescending(SortOrder.Key.PRICE),
+                SortOrder.by(SortOrder.Key.CATEGORY).thenDescending(SortOrder.Key.QUANTITY),
+                SortOrder.by(SortOrder.Key.NAME)
+        };
+        for (int i = 0; i < 300; i++) {
+            InventoryQuery query = manager.query();
+            List<Predicate<Product>> predicates = new ArrayList<>();
+            if (random.nextBoolean()) {
+                String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+                query.category(category.toLowerCase());
+                predicates.add(p -> p.getCategory().equalsIgnoreCase(category));
+            }
+            if (random.nextInt(3) == 0) {
+                String text = random.nextBoolean() ? "item " + random.nextInt(60) : String.valueOf(random.nextInt(10));
+                boolean prefix = random.nextBoolean();
+                if (prefix) query.nameStartsWith(text.toUpperCase()); else query.nameContains(text);
+                predicates.add(p -> prefix ? p.getName().toLowerCase().startsWith(text)
+                        : p.getName().toLowerCase().contains(text));
+            }
+            if (random.nextBoolean()) {
+                double min = random.nextInt(500);
+                double max = min + random.nextInt(random.nextBoolean() ? 5 : 300);
+                query.priceBetween(min, max);
+                predicates.add(p -> p.getPrice() >= min && p.getPrice() <= max);
+            }
+            if (random.nextInt(3) == 0) {
+                int min = random.nextInt(100);
+                int max = min + random.nextInt(10);
+                query.quantityBetween(min, max);
+                predicates.add(p -> p.getQuantity() >= min && p.getQuantity() <= max);
+            }
+            SortOrder order = orders[random.nextInt(orders.length)];
+            query.orderBy(order);
+            int offset = random.nextInt(4) == 0 ? random.nextInt(50) : 0;
+            int limit = random.nextBoolean() ? 1 + random.nextInt(30) : Integer.MAX_VALUE;
+            query.offset(offset).limit(limit);
+
+            List<Product> expected = new ArrayList<>();
+            for (Product product : all) {
+                boolean keep = true;
+                for (Predicate<Product> predicate : predicates) keep &= predicate.test(product);
+                if (keep) expected.add(product);
+            }
+            long total = expected.size();
+            if (order != null) expected.sort(order.comparator());
+            expected = expected.subList(Math.min(offset, expected.size()),
+                    (int) Math.min(expected.size(), (long) offset + limit));
+
+            String what = "query " + i + " (" + query.explain() + ", order " + order + ")";
+            check(query.list().equals(expected), what + " returned the wrong page");
+            check(query.count() == total, what + " count");
+        }
+
+        check(manager.query().category("rare").explain() == InventoryQuery.AccessPath.CATEGORY, "rare category plan");
+        check(manager.query().nameContains("item 4321").explain() == InventoryQuery.AccessPath.NAME, "name plan");
+        check(manager.query().priceBetween(10, 10.5).explain() == InventoryQuery.AccessPath.PRICE, "price plan");
+        check(manager.query().category("toys").priceBetween(10, 10.5).explain() == InventoryQuery.AccessPath.PRICE,
+                "narrow price beats a broad category");
+        check(manager.query().quantityBetween(0, 90).explain() == InventoryQuery.AccessPath.SCAN, "broad range scans");
+        check(manager.query().nameContains("it").explain() == InventoryQuery.AccessPath.SCAN, "short name scans");
+
+        check(manager.query().category("rare").offset(Long.MAX_VALUE).limit(5).list().isEmpty(), "huge offset");
+        check(manager.query().category("rare").offset(Long.MAX_VALUE - 2).limit(Long.MAX_VALUE - 2).list().isEmpty(),
+                "offset + limit past Long.MAX_VALUE");
+        check(manager.query().category("rare").offset(1).limit(Long.MAX_VALUE - 1).list().size()
+                == manager.query().category("rare").count() - 1, "limit just short of Long.MAX_VALUE");
+
+        List<Product> firstPage = manager.query().orderBy(SortOrder.by(SortOrder.Key.PRICE)).limit(10).list();
+        check(firstPage.equals(manager.sortByPrice(true).subList(0, 10)), "first page of a sorted scan");
+        System.out.println("Query test passed.");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
@@ -0,0 +1,70 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Regression test for the SKU index behind InventoryManager.
+ * Loads 250K, 500K and 1M products through addProduct and checks that the
+ * cost per product stays flat, i.e. that bulk loading scales linearly
+ * instead of quadratically.
+ */
+public class InventoryScalingTest {
+
+    private static final int[] SIZES = {250_000, 500_000, 1_000_000};
+    private static final int RUNS = 3;
+    // A quadratic loader would be 4x slower per product at 1M than at 250K.
+    private static final double MAX_PER_PRODUCT_RATIO = 2.5;
+
+    public static void main(String[] args) {
+        PrintStream console = System.out;
+        double[] nanosPerProduct = new double[SIZES.length];
+
+        // Warm up the JIT before measuring.
+        timeLoad(SIZES[0], console);
+
+        for (int i = 0; i < SIZES.length; i++) {
+            double best = Double.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                best = Math.min(best, timeLoad(SIZES[i], console));
+            }
+            nanosPerProduct[i] = best / SIZES[i];
+            console.printf("Loaded %,d products: %.1f ns/product%n", SIZES[i], nanosPerProduct[i]);
+        }
+
+        double ratio = nanosPerProduct[SIZES.length - 1] / nanosPerProduct[0];
+        console.printf("Per-product cost ratio 1M vs 250K: %.2f%n", ratio);
+        if (ratio > MAX_PER_PRODUCT_RATIO) {
+            throw new IllegalStateException("Loading does not scale linearly, ratio " + ratio);
+        }
+        console.println("Scaling test passed.");
+    }
+
+    /**
+     * Adds the given number of products to a fresh manager and returns the elapsed time.
+     * Console output from addProduct is discarded while timing.
+     *
+     * @param count   the number of products to add
+     * @param console the original standard output to restore afterwards
+     * @return the elapsed time in nanoseconds
+     */
+    private static long timeLoad(int count, PrintStream console) {
+        Product[] products = new Product[count];
+        for (int i = 0; i < count; i++) {
+            products[i] = new Product("S" + i, "Product " + i, i % 100, (i % 1000) + 0.99, "Category " + (i % 50));
+        }
+        InventoryManager manager = new InventoryManager();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            long start = System.nanoTime();
+            for (Product product : products) {
+                manager.addProduct(product);
+            }
+            long elapsed = System.nanoTime() - start;
+            if (manager.size() != count) {
+                throw new IllegalStateException("Expected " + count + " products but found " + manager.size());
+            }
+            return elapsed;
+        } finally {
+            System.setOut(console);
+        }
+    }
+}
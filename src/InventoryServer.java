@@ -0,0 +1,339 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP front end exposing an InventoryManager as JSON endpoints, built on
+ * the JDK's com.sun.net.httpserver.
+ *
+ * <pre>
+ *     GET  /products/{sku}                   one product, or 404
+ *     GET  /products?category=Toys&amp;sort=price:desc&amp;limit=20
+ *                                            products matching an InventoryQuery
+ *     PUT  /products/{sku}/quantity?value=5  set the quantity
+ *     POST /products/{sku}/adjust?delta=-2   change the quantity, refused if stock is short
+ *     GET  /stats                            product count, units, value and low-stock count
+ * </pre>
+ *
+ * The list endpoint accepts name, prefix, category, price, minPrice,
+ * maxPrice, minQuantity, maxQuantity, sort, offset and limit. sort is a
+ * comma-separated list of distinct keys (name, category, price, quantity,
+ * sku), each optionally followed by ":desc". Lists are written as they are produced,
+ * with chunked transfer encoding, so a large result is never held as one
+ * string; other responses are sent with a fixed length so connections are
+ * kept alive.
+ *
+ * Each request runs on its own virtual thread. Requests for one SKU are
+ * serialized by the manager's locks, not by the server.
+ */
+public class InventoryServer {
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    static {
+        // The JDK server writes headers and body separately; without TCP_NODELAY the
+        // body waits on the client's delayed ACK, adding about 40 ms to every response.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final InventoryManager manager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server for the manager, bound to the given port but not yet started.
+     *
+     * @param manager the inventory to serve
+     * @param port    the TCP port, or 0 to pick a free one
+     * @throws IOException if the port cannot be bound
+     */
+    public InventoryServer(InventoryManager manager, int port) throws IOException {
+        this.manager = manager;
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to the given time for exchanges in
+     * progress, and shuts the request threads down.
+     *
+     * @param delaySeconds the maximum time to wait for open exchanges
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * @return the port the server is bound to
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getRawPath().substring(1).split("/");
+            String method = exchange.getRequestMethod();
+            Map<String, String> params = parameters(exchange.getRequestURI().getRawQuery());
+            if (path.length == 1 && path[0].equals("stats")) {
+                requireMethod(method, "GET");
+                sendStats(exchange);
+            } else if (path.length == 1 && path[0].equals("products")) {
+                requireMethod(method, "GET");
+                sendList(exchange, query(params));
+            } else if (path.length == 2 && path[0].equals("products")) {
+                requireMethod(method, "GET");
+                sendProduct(exchange, decode(path[1]));
+            } else if (path.length == 3 && path[0].equals("products") && path[2].equals("quantity")) {
+                requireMethod(method, "PUT");
+                setQuantity(exchange, decode(path[1]), intParameter(params, "value"));
+            } else if (path.length == 3 && path[0].equals("products") && path[2].equals("adjust")) {
+                requireMethod(method, "POST");
+                adjustQuantity(exchange, decode(path[1]), intParameter(params, "delta"));
+            } else {
+                sendError(exchange, 404, "No such endpoint: " + exchange.getRequestURI().getPath());
+            }
+        } catch (BadRequest e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sendProduct(HttpExchange exchange, String sku) throws IOException {
+        Product product = manager.findBySku(sku);
+        if (product == null) {
+            sendError(exchange, 404, "No product with SKU: " + sku);
+            return;
+        }
+        StringBuilder json = new StringBuilder(128);
+        appendProduct(json, product);
+        send(exchange, 200, json.toString());
+    }
+
+    private void setQuantity(HttpExchange exchange, String sku, int quantity) throws IOException {
+        if (quantity < 0) throw new BadRequest(400, "Quantity cannot be under than 0");
+        if (manager.findBySku(sku) == null) {
+            sendError(exchange, 404, "No product with SKU: " + sku);
+            return;
+        }
+        manager.updateQuantity(sku, quantity);
+        sendProduct(exchange, sku);
+    }
+
+    private void adjustQuantity(HttpExchange exchange, String sku, int delta) throws IOException {
+        if (manager.findBySku(sku) == null) {
+            sendError(exchange, 404, "No product with SKU: " + sku);
+            return;
+        }
+        if (!manager.adjustQuantity(sku, delta)) {
+            sendError(exchange, 409, "Cannot adjust " + sku + " quantity by " + delta);
+            return;
+        }
+        sendProduct(exchange, sku);
+    }
+
+    private void sendStats(HttpExchange exchange) throws IOException {
+        send(exchange, 200, "{\"products\":" + manager.size()
+                + ",\"units\":" + manager.totalUnits()
+                + ",\"value\":" + manager.totalValue().toPlainString()
+                + ",\"lowStock\":" + manager.lowStockCount() + "}");
+    }
+
+    /**
+     * Streams the query's results as a JSON array, flushing in 8 KB chunks.
+     */
+    private static void sendList(HttpExchange exchange, InventoryQuery query) throws IOException {
+        Iterator<Product> products = query.stream().iterator();
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 8192)) {
+            StringBuilder json = new StringBuilder(128);
+            out.write('[');
+            boolean first = true;
+            while (products.hasNext()) {
+                json.setLength(0);
+                if (!first) json.append(',');
+                appendProduct(json, products.next());
+                out.append(json);
+                first = false;
+            }
+            out.write(']');
+        }
+    }
+
+    private InventoryQuery query(Map<String, String> params) {
+        InventoryQuery query = manager.query();
+        if (params.containsKey("name")) query.nameContains(params.get("name"));
+        if (params.containsKey("prefix")) query.nameStartsWith(params.get("prefix"));
+        if (params.containsKey("category")) query.category(params.get("category"));
+        if (params.containsKey("price")) query.priceEquals(doubleParameter(params, "price"));
+        if (params.containsKey("minPrice") || params.containsKey("maxPrice")) {
+            query.priceBetween(params.containsKey("minPrice") ? doubleParameter(params, "minPrice") : Double.NEGATIVE_INFINITY,
+                    params.containsKey("maxPrice") ? doubleParameter(params, "maxPrice") : Double.POSITIVE_INFINITY);
+        }
+        if (params.containsKey("minQuantity") || params.containsKey("maxQuantity")) {
+            query.quantityBetween(params.containsKey("minQuantity") ? intParameter(params, "minQuantity") : Integer.MIN_VALUE,
+                    params.containsKey("maxQuantity") ? intParameter(params, "maxQuantity") : Integer.MAX_VALUE);
+        }
+        if (params.containsKey("sort")) query.orderBy(sortOrder(params.get("sort")));
+        if (params.containsKey("offset")) query.offset(intParameter(params, "offset"));
+        if (params.containsKey("limit")) query.limit(intParameter(params, "limit"));
+        return query;
+    }
+
+    /**
+     * Parses "price:desc,name" into a SortOrder.
+     */
+    private static SortOrder sortOrder(String spec) {
+        SortOrder order = null;
+        for (String part : spec.split(",")) {
+            String[] keyAndDirection = part.trim().split(":");
+            SortOrder.Key key = SortOrder.Key.valueOf(keyAndDirection[0].toUpperCase(Locale.ROOT));
+            boolean descending = keyAndDirection.length > 1 && keyAndDirection[1].equalsIgnoreCase("desc");
+            if (order == null) {
+                order = SortOrder.by(key, !descending);
+            } else {
+                order = descending ? order.thenDescending(key) : order.then(key);
+            }
+        }
+        return order;
+    }
+
+    private static void appendProduct(StringBuilder json, Product product) {
+        json.append("{\"sku\":");
+        appendString(json, product.getSku());
+        json.append(",\"name\":");
+        appendString(json, product.getName());
+        json.append(",\"quantity\":").append(product.getQuantity());
+        double price = product.getPrice();
+        json.append(",\"price\":");
+        if (Double.isFinite(price)) json.append(price); else json.append("null");
+        json.append(",\"category\":");
+        appendString(json, product.getCategory());
+        json.append('}');
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendString(json, message);
+        send(exchange, status, json.append('}').toString());
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) throw new BadRequest(405, "Use " + expected + " for this endpoint");
+    }
+
+    private static Map<String, String> parameters(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return params;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) {
+                params.put(decode(pair), "");
+            } else {
+                params.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+            }
+        }
+        return params;
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private static int intParameter(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null) throw new BadRequest(400, "Missing parameter: " + name);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequest(400, "Parameter " + name + " is not an integer: " + value);
+        }
+    }
+
+    private static double doubleParameter(Map<String, String> params, String name) {
+        String value = params.get(name);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequest(400, "Parameter " + name + " is not a number: " + value);
+        }
+    }
+
+    /**
+     * A request the server refuses, with the status to send.
+     */
+    private static final class BadRequest extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        BadRequest(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests InventoryServer's endpoints against localhost, then drives it with
+ * concurrent clients and reports requests per second and latency.
+ *
+ * Each client is a virtual thread sending requests back to back over a
+ * shared HttpClient: nine SKU lookups for every quantity update. The test
+ * fails if any request gets an unexpected status.
+ *
+ * Usage: java InventoryServerLoadTest [seconds] [clients]   (defaults to 3 and 64)
+ */
+public class InventoryServerLoadTest {
+
+    private static final int PRODUCTS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        for (int i = 0; i < PRODUCTS; i++) {
+            manager.addProduct(new Product("SKU" + i, "Item \"" + i + "\"", 100, (i % 1000) / 4.0, "Category " + (i % 20)));
+        }
+        InventoryServer server = new InventoryServer(manager, 0);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            String base = "http://localhost:" + server.getPort();
+            checkEndpoints(client, base, manager);
+            runLoad(client, base, seconds, clients);
+        } finally {
+            server.stop(0);
+        }
+        System.out.println("Server load test passed.");
+    }
+
+    private static void checkEndpoints(HttpClient client, String base, InventoryManager manager) throws Exception {
+        HttpResponse<String> response = get(client, base + "/products/SKU7");
+        check(response.statusCode() == 200, "lookup status " + response.statusCode());
+        check(response.body().equals("{\"sku\":\"SKU7\",\"name\":\"Item \\\"7\\\"\",\"quantity\":100,\"price\":1.75,"
+                + "\"category\":\"Category 7\"}"), "lookup body " + response.body());
+        check(get(client, base + "/products/NOPE").statusCode() == 404, "missing product");
+        check(get(client, base + "/nowhere").statusCode() == 404, "unknown endpoint");
+
+        response = get(client, base + "/products?category=category%207&sort=price:desc,sku&limit=3");
+        check(response.statusCode() == 200, "list status");
+        check(response.body().startsWith("[{\"sku\":\"SKU1987\",") && count(response.body(), "\"sku\"") == 3,
+                "sorted page " + response.body());
+        response = get(client, base + "/products");
+        check(count(response.body(), "\"sku\"") == PRODUCTS, "streamed full list");
+        check(get(client, base + "/products?sort=colour").statusCode() == 400, "bad sort key");
+        check(get(client, base + "/products?limit=ten").statusCode() == 400, "bad number");
+
+        response = send(client, "PUT", base + "/products/SKU7/quantity?value=5");
+        check(response.statusCode() == 200 && response.body().contains("\"quantity\":5"), "set quantity " + response.body());
+        response = send(client, "POST", base + "/products/SKU7/adjust?delta=-2");
+        check(response.statusCode() == 200 && manager.findBySku("SKU7").getQuantity() == 3, "adjust quantity");
+        check(send(client, "POST", base + "/products/SKU7/adjust?delta=-9").statusCode() == 409, "short stock");
+        check(send(client, "PUT", base + "/products/SKU7/quantity?value=-1").statusCode() == 400, "negative quantity");
+        check(send(client, "GET", base + "/products/SKU7/quantity?value=1").statusCode() == 405, "wrong method");
+        response = get(client, base + "/stats");
+        check(response.body().startsWith("{\"products\":" + PRODUCTS + ",\"units\":" + (100L * PRODUCTS - 97)),
+                "stats " + response.body());
+    }
+
+    private static void runLoad(HttpClient client, String base, int seconds, int clients) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong failures = new AtomicLong();
+        long[][] latencies = new long[clients][];
+        int[] counts = new int[clients];
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                int id = c;
+                executor.submit(() -> {
+                    long[] mine = new long[1 << 16];
+                    int n = 0;
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        String sku = "SKU" + random.nextInt(PRODUCTS);
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<String> response = n % 10 == 9
+                                    ? send(client, "PUT", base + "/products/" + sku + "/quantity?value=" + random.nextInt(100))
+                                    : get(client, base + "/products/" + sku);
+                            if (response.statusCode() != 200) failures.incrementAndGet();
+                        } catch (IOException e) {
+                            failures.incrementAndGet();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        if (n == mine.length) mine = Arrays.copyOf(mine, n * 2);
+                        mine[n++] = System.nanoTime() - start;
+                    }
+                    latencies[id] = mine;
+                    counts[id] = n;
+                });
+            }
+        }
+        int total = 0;
+        for (int count : counts) total += count;
+        long[] all = new long[total];
+        int at = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(latencies[c], 0, all, at, counts[c]);
+            at += counts[c];
+        }
+        Arrays.sort(all);
+        System.out.printf("%d clients, %d requests in %d s: %.0f requests/s, p50 %.2f ms, p99 %.2f ms%n",
+                clients, total, seconds, (double) total / seconds,
+                all[total / 2] / 1e6, all[(int) (total * 0.99)] / 1e6);
+        check(total > 0, "no requests completed");
+        check(failures.get() == 0, failures.get() + " requests failed");
+    }
+
+    private static HttpResponse<String> get(HttpClient client, String uri) throws IOException, InterruptedException {
+        return send(client, "GET", uri);
+    }
+
+    private static HttpResponse<String> send(HttpClient client, String method, String uri)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri))
+                .method(method, HttpRequest.BodyPublishers.noBody()).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int count(String text, String needle) {
+        int n = 0;
+        for (int i = text.indexOf(needle); i >= 0; i = text.indexOf(needle, i + 1)) n++;
+        return n;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A consistent, read-only view of an InventoryManager at one version.
+ *
+ * A snapshot holds every product as it was after the change that produced
+ * it: changes made later, or still in progress, are not visible. Taking a
+ * snapshot costs one volatile read, and reading it never locks or blocks
+ * writers, so a long print or save can run while the inventory keeps
+ * changing. Successive snapshots share the unchanged parts of their maps.
+ */
+public final class InventorySnapshot {
+
+    private static final Comparator<ProductSnapshot> BY_POSITION = Comparator.comparingLong(ProductSnapshot::getPosition);
+
+    static final InventorySnapshot EMPTY = new InventorySnapshot(0, PersistentMap.empty());
+
+    private final long version;
+    private final PersistentMap<String, ProductSnapshot> products;
+    // Display order, built on first use.
+    private volatile List<ProductSnapshot> ordered;
+
+    InventorySnapshot(long version, PersistentMap<String, ProductSnapshot> products) {
+        this.version = version;
+        this.products = products;
+    }
+
+    /**
+     * Returns a snapshot that also holds the product's current fields.
+     */
+    InventorySnapshot with(Product product) {
+        return new InventorySnapshot(version + 1, products.put(product.sku, new ProductSnapshot(product)));
+    }
+
+    /**
+     * Returns a snapshot without the SKU.
+     */
+    InventorySnapshot without(String sku) {
+        return new InventorySnapshot(version + 1, products.remove(sku));
+    }
+
+    /**
+     * Returns the number of changes published before this snapshot, counted
+     * from when snapshots were enabled. A later snapshot has a higher version.
+     *
+     * @return the snapshot's version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the number of products in the snapshot
+     */
+    public int size() {
+        return products.size();
+    }
+
+    /**
+     * Looks up a product by its exact SKU.
+     *
+     * @param sku the SKU to find
+     * @return the product as of this snapshot, or null if there was none
+     */
+    public ProductSnapshot get(String sku) {
+        return products.get(sku);
+    }
+
+    /**
+     * Returns the products in display order. The list is built on first use
+     * and shared by later calls.
+     *
+     * @return an unmodifiable list of the snapshot's products
+     */
+    public List<ProductSnapshot> products() {
+        List<ProductSnapshot> list = ordered;
+        if (list != null) return list;
+        List<ProductSnapshot> sorted = new ArrayList<>(products.size());
+        products.forEach((sku, product) -> sorted.add(product));
+        sorted.sort(BY_POSITION);
+        list = Collections.unmodifiableList(sorted);
+        ordered = list;
+        return list;
+    }
+}
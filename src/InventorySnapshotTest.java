@@ -0,0 +1,211 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Tests for PersistentMap and InventoryManager's snapshots.
+ */
+public class InventorySnapshotTest {
+
+    public static void main(String[] args) throws Exception {
+        checkPersistentMap();
+        checkSnapshotIsolation();
+        checkConsistentUnderWrites();
+        checkAsyncSave();
+        checkSaveWhileEnabling();
+        System.out.println("Snapshot MVCC test passed.");
+    }
+
+    private static void checkPersistentMap() {
+        Random random = new Random(19);
+        // "Aa" and "BB" share a hash code, so strings built from them collide in every bit.
+        String[] keys = new String[2_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i < 64 ? collidingKey(i) : "K" + random.nextInt(5_000);
+        }
+        Map<String, Integer> expected = new HashMap<>();
+        PersistentMap<String, Integer> map = PersistentMap.empty();
+        List<PersistentMap<String, Integer>> versions = new ArrayList<>();
+        List<Map<String, Integer>> expectedVersions = new ArrayList<>();
+        for (int step = 0; step < 50_000; step++) {
+            String key = keys[random.nextInt(keys.length)];
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                map = map.put(key, step);
+                expected.put(key, step);
+            }
+            if (step % 5_000 == 0) {
+                versions.add(map);
+                expectedVersions.add(new HashMap<>(expected));
+            }
+        }
+        versions.add(map);
+        expectedVersions.add(expected);
+        for (int v = 0; v < versions.size(); v++) {
+            PersistentMap<String, Integer> version = versions.get(v);
+            Map<String, Integer> want = expectedVersions.get(v);
+            check(version.size() == want.size(), "size of version " + v);
+            for (String key : keys) {
+                check(Objects.equals(version.get(key), want.get(key)), "value of " + key + " in version " + v);
+            }
+            Map<String, Integer> seen = new HashMap<>();
+            version.forEach(seen::put);
+            check(seen.equals(want), "entries of version " + v);
+        }
+    }
+
+    private static String collidingKey(int bits) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            key.append((bits >> i & 1) == 0 ? "Aa" : "BB");
+        }
+        return key.toString();
+    }
+
+    private static void checkSnapshotIsolation() {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        check(manager.snapshot() == null, "snapshots are off by default");
+        manager.addProduct(new Product("A", "Apple", 5, 1.0, "Food"));
+        manager.addProduct(new Product("B", "Ball", 3, 4.0, "Toys"));
+        manager.enableSnapshots();
+
+        InventorySnapshot before = manager.snapshot();
+        check(before.size() == 2, "existing products are published");
+        manager.updateQuantity("A", 9);
+        manager.findBySku("B").setName("Bat");
+        manager.removeProduct("B");
+        manager.addProduct(new Product("C", "Cup", 1, 2.0, "Home"));
+        InventorySnapshot after = manager.snapshot();
+
+        check(before.get("A").getQuantity() == 5 && before.get("B").getName().equals("Ball"), "old snapshot unchanged");
+        check(before.get("C") == null, "old snapshot has no later products");
+        check(after.get("A").getQuantity() == 9 && after.get("B") == null, "new snapshot has the changes");
+        check(after.getVersion() == before.getVersion() + 4, "one version per change");
+        List<String> order = new ArrayList<>();
+        for (ProductSnapshot product : after.products()) order.add(product.getSku());
+        check(order.equals(List.of("A", "C")), "display order " + order);
+    }
+
+    private static void checkConsistentUnderWrites() throws InterruptedException {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        int products = 500;
+        for (int i = 0; i < products; i++) {
+            manager.addProduct(new Product("P" + i, "Part " + i, 100, 1.0, "Parts"));
+        }
+        manager.enableSnapshots();
+        long base = manager.snapshot().getVersion();
+        int changes = 50_000;
+        // Total units after each change, indexed by the version it produced.
+        AtomicLongArray totals = new AtomicLongArray(changes + 1);
+        totals.set(0, 100L * products);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            Random random = new Random(19);
+            long total = 100L * products;
+            int[] quantities = new int[products];
+            Arrays.fill(quantities, 100);
+            for (int c = 1; c <= changes; c++) {
+                int i = random.nextInt(products);
+                int quantity = random.nextInt(200);
+                total += quantity - quantities[i];
+                quantities[i] = quantity;
+                totals.set(c, total);
+                manager.updateQuantity("P" + i, quantity);
+            }
+        });
+        Thread reader = new Thread(() -> {
+            while (writer.isAlive()) {
+                InventorySnapshot snapshot = manager.snapshot();
+                long sum = 0;
+                for (ProductSnapshot product : snapshot.products()) sum += product.getQuantity();
+                long expected = totals.get((int) (snapshot.getVersion() - base));
+                if (sum != expected) failure.compareAndSet(null, "version " + snapshot.getVersion() + ": " + sum + " != " + expected);
+            }
+        });
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+        check(failure.get() == null, "snapshot not consistent at " + failure.get());
+        check(manager.snapshot().getVersion() == base + changes, "final version");
+    }
+
+    /**
+     * Saves run while enableSnapshots publishes a large inventory; each must
+     * write every product rather than a partly built snapshot.
+     */
+    private static void checkSaveWhileEnabling() throws IOException, InterruptedException {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        int products = 300_000;
+        for (int i = 0; i < products; i++) {
+            manager.addProduct(new Product("P" + i, "Part " + i, i % 50, 1.0, "Parts"));
+        }
+        File file = File.createTempFile("inventory-enabling", ".txt");
+        file.deleteOnExit();
+        Thread enabler = new Thread(manager::enableSnapshots);
+        enabler.start();
+        // Lets the enabler get partway through publishing before the first save.
+        Thread.sleep(20);
+        do {
+            InventorySnapshot snapshot = manager.snapshot();
+            check(snapshot == null || snapshot.size() == products, "partial snapshot handed out");
+            manager.saveToFile(file.getPath());
+            long lines;
+            try (Stream<String> saved = Files.lines(file.toPath())) {
+                lines = saved.count();
+            }
+            check(lines == products, "saved " + lines + " of " + products + " products while enabling snapshots");
+        } while (enabler.isAlive());
+        enabler.join();
+        check(manager.snapshot().size() == products, "snapshot once enabled");
+    }
+
+    private static void checkAsyncSave() throws IOException, InterruptedException, ExecutionException {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        File file = File.createTempFile("inventory-snapshot", ".txt");
+        file.deleteOnExit();
+        check(!manager.saveToFileAsync(file.getPath()).get(), "async save needs snapshots");
+
+        for (int i = 0; i < 1_000; i++) {
+            manager.addProduct(new Product("P" + i, "Part " + i, i, i / 4.0, "Parts"));
+        }
+        manager.enableSnapshots();
+        InventorySnapshot snapshot = manager.snapshot();
+        CompletableFuture<Boolean> saved = manager.saveToFileAsync(file.getPath());
+        for (int i = 0; i < 1_000; i++) {
+            manager.updateQuantity("P" + i, 0);
+        }
+        check(saved.get(), "async save succeeded");
+
+        InventoryManager loaded = new InventoryManager();
+        loaded.setEventSink(InventoryEventSink.NONE);
+        loaded.loadFromFile(file.getPath());
+        check(loaded.size() == snapshot.size(), "saved product count");
+        for (ProductSnapshot product : snapshot.products()) {
+            Product copy = loaded.findBySku(product.getSku());
+            check(copy.getQuantity() == product.getQuantity(), "saved quantity of " + product.getSku());
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of a bulk inventory load.
+ * Counts the products loaded and the lines that were skipped, and keeps the
+ * details of the first skipped lines so callers can show or log them.
+ * For a chunked file, lines are records and a corrupt chunk is reported by
+ * its chunk number.
+ */
+public class LoadReport {
+
+    /**
+     * Why a line was skipped.
+     */
+    public enum Reason {
+        /** The line does not have exactly five comma separated fields. */
+        MALFORMED_LINE,
+        /** The quantity or price field is not a valid number. */
+        INVALID_NUMBER,
+        /** A product with the same SKU is already in the inventory. */
+        DUPLICATE_SKU,
+        /** A chunk of a chunked file failed its checksum or could not be decoded. */
+        CORRUPT_CHUNK
+    }
+
+    /**
+     * A single skipped line.
+     */
+    public static final class LoadError {
+        private final long lineNumber;
+        private final Reason reason;
+        private final String line;
+
+        LoadError(long lineNumber, Reason reason, String line) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+            this.line = line;
+        }
+
+        /**
+         * @return the 1-based line number in the file, or the chunk number for CORRUPT_CHUNK
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * @return why the line was skipped
+         */
+        public Reason getReason() {
+            return reason;
+        }
+
+        /**
+         * @return the raw text of the line, or what is wrong with a corrupt chunk
+         */
+        public String getLine() {
+            return line;
+        }
+
+        @Override
+        public String toString() {
+            String unit = reason == Reason.CORRUPT_CHUNK ? "Chunk " : "Line ";
+            return unit + lineNumber + " " + reason + ": " + line;
+        }
+    }
+
+    static final int MAX_RECORDED_ERRORS = 1000;
+
+    private long loaded;
+    private long linesRead;
+    private long bytesRead;
+    private final long[] errorCounts = new long[Reason.values().length];
+    private final List<LoadError> errors = new ArrayList<>();
+
+    void productLoaded() {
+        loaded++;
+    }
+
+    void lineRead() {
+        linesRead++;
+    }
+
+    void bytesRead(long count) {
+        bytesRead += count;
+    }
+
+    void error(long lineNumber, Reason reason, String line) {
+        errorCounts[reason.ordinal()]++;
+        if (errors.size() < MAX_RECORDED_ERRORS) {
+            errors.add(new LoadError(lineNumber, reason, line));
+        }
+    }
+
+    /**
+     * @return the number of products added to the inventory
+     */
+    public long getLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return the number of lines read, including skipped ones
+     */
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    /**
+     * @return the number of bytes read from the file
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return the total number of skipped lines
+     */
+    public long getErrorCount() {
+        long total = 0;
+        for (long count : errorCounts) total += count;
+        return total;
+    }
+
+    /**
+     * Returns the number of lines skipped for the given reason.
+     *
+     * @param reason the reason to count
+     * @return the number of lines skipped for that reason
+     */
+    public long getErrorCount(Reason reason) {
+        return errorCounts[reason.ordinal()];
+    }
+
+    /**
+     * Returns the first skipped lines, up to 1000 of them.
+     *
+     * @return an unmodifiable list of skipped lines in file order
+     */
+    public List<LoadError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Returns a one-line summary of the load.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return "Loaded " + loaded + " products from " + linesRead + " lines, skipped " + getErrorCount()
+                + " (malformed=" + getErrorCount(Reason.MALFORMED_LINE)
+                + ", invalid number=" + getErrorCount(Reason.INVALID_NUMBER)
+                + ", duplicate SKU=" + getErrorCount(Reason.DUPLICATE_SKU)
+                + ", corrupt chunks=" + getErrorCount(Reason.CORRUPT_CHUNK) + ")";
+    }
+}
@@ -0,0 +1,330 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only view of an inventory snapshot file, memory-mapped with FileChannel.map.
+ *
+ * Opening a snapshot only maps the file; products are decoded row by row when
+ * they are asked for, so startup cost does not grow with catalog size.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   header      magic, version, count, hash slots, and the offset of every section
+ *   strings     UTF-8 strings, each prefixed with its byte length (-1 for null);
+ *               category strings are stored once and shared
+ *   quantity    int[count]
+ *   price       double[count]
+ *   sku         int[count]    offsets into the string table
+ *   name        int[count]
+ *   category    int[count]
+ *   sku hash    int[slots]    open-addressing table of row + 1, 0 when empty
+ * </pre>
+ */
+public class MappedInventory implements AutoCloseable {
+
+    private static final int MAGIC = 0x494E5653; // "INVS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 96;
+    private static final int NULL_LENGTH = -1;
+
+    private final FileChannel channel;
+    private final int count;
+    private final int hashMask;
+    private final MappedByteBuffer strings;
+    private final MappedByteBuffer quantities;
+    private final MappedByteBuffer prices;
+    private final MappedByteBuffer skuRefs;
+    private final MappedByteBuffer nameRefs;
+    private final MappedByteBuffer categoryRefs;
+    private final MappedByteBuffer skuHash;
+
+    private MappedInventory(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) throw new IOException("Not an inventory snapshot");
+        int version = header.getInt();
+        if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+        count = header.getInt();
+        int slots = header.getInt();
+        hashMask = slots - 1;
+        strings = section(header.getLong(), header.getLong());
+        quantities = section(header.getLong(), (long) count * Integer.BYTES);
+        prices = section(header.getLong(), (long) count * Double.BYTES);
+        skuRefs = section(header.getLong(), (long) count * Integer.BYTES);
+        nameRefs = section(header.getLong(), (long) count * Integer.BYTES);
+        categoryRefs = section(header.getLong(), (long) count * Integer.BYTES);
+        skuHash = section(header.getLong(), (long) slots * Integer.BYTES);
+    }
+
+    /**
+     * Memory-maps an existing snapshot file.
+     *
+     * @param fileName the snapshot to open
+     * @return the mapped view
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static MappedInventory open(String fileName) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        try {
+            return new MappedInventory(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the given products to a snapshot file, replacing it if it exists.
+     *
+     * @param fileName the file to write
+     * @param products the products to store, in row order
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(String fileName, List<Product> products) throws IOException {
+        int count = products.size();
+        int slots = Integer.highestOneBit(Math.max(16, count * 2) - 1) << 1;
+        int[] skuRefs = new int[count];
+        int[] nameRefs = new int[count];
+        int[] categoryRefs = new int[count];
+        int[] skuHash = new int[slots];
+        Map<String, Integer> categoryOffsets = new HashMap<>();
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16))) {
+            out.write(new byte[HEADER_SIZE]);
+
+            long position = HEADER_SIZE;
+            long stringsStart = position;
+            for (int row = 0; row < count; row++) {
+                Product product = products.get(row);
+                skuRefs[row] = (int) (position - stringsStart);
+                position += writeString(out, product.getSku());
+                nameRefs[row] = (int) (position - stringsStart);
+                position += writeString(out, product.getName());
+                Integer categoryRef = categoryOffsets.get(product.getCategory());
+                if (categoryRef == null) {
+                    categoryRef = (int) (position - stringsStart);
+                    categoryOffsets.put(product.getCategory(), categoryRef);
+                    position += writeString(out, product.getCategory());
+                }
+                categoryRefs[row] = categoryRef;
+                if (position - stringsStart > Integer.MAX_VALUE) {
+                    throw new IOException("Snapshot string table exceeds 2 GB");
+                }
+
+                int slot = spread(product.getSku().hashCode()) & (slots - 1);
+                while (skuHash[slot] != 0) slot = (slot + 1) & (slots - 1);
+                skuHash[slot] = row + 1;
+            }
+            long stringsLength = position - stringsStart;
+            while (position % Double.BYTES != 0) {
+                out.write(0);
+                position++;
+            }
+
+            long quantityOffset = position;
+            for (Product product : products) out.writeInt(product.getQuantity());
+            position += (long) count * Integer.BYTES;
+            if (position % Double.BYTES != 0) {
+                out.writeInt(0);
+                position += Integer.BYTES;
+            }
+            long priceOffset = position;
+            for (Product product : products) out.writeDouble(product.getPrice());
+            position += (long) count * Double.BYTES;
+            long skuOffset = position;
+            for (int ref : skuRefs) out.writeInt(ref);
+            position += (long) count * Integer.BYTES;
+            long nameOffset = position;
+            for (int ref : nameRefs) out.writeInt(ref);
+            position += (long) count * Integer.BYTES;
+            long categoryOffset = position;
+            for (int ref : categoryRefs) out.writeInt(ref);
+            position += (long) count * Integer.BYTES;
+            long hashOffset = position;
+            for (int entry : skuHash) out.writeInt(entry);
+            out.flush();
+
+            try (RandomAccessFile file = new RandomAccessFile(fileName, "rw")) {
+                file.writeInt(MAGIC);
+                file.writeInt(VERSION);
+                file.writeInt(count);
+                file.writeInt(slots);
+                file.writeLong(stringsStart);
+                file.writeLong(stringsLength);
+                file.writeLong(quantityOffset);
+                file.writeLong(priceOffset);
+                file.writeLong(skuOffset);
+                file.writeLong(nameOffset);
+                file.writeLong(categoryOffset);
+                file.writeLong(hashOffset);
+            }
+        }
+    }
+
+    /**
+     * @return the number of products in the snapshot
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the SKU stored in the given row.
+     *
+     * @param row the row index, from 0 to size() - 1
+     * @return the row's SKU
+     */
+    public String getSku(int row) {
+        return readString(skuRefs.getInt(row * Integer.BYTES));
+    }
+
+    /**
+     * Returns the name stored in the given row.
+     *
+     * @param row the row index, from 0 to size() - 1
+     * @return the row's name
+     */
+    public String getName(int row) {
+        return readString(nameRefs.getInt(row * Integer.BYTES));
+    }
+
+    /**
+     * Returns the quantity stored in the given row.
+     *
+     * @param row the row index, from 0 to size() - 1
+     * @return the row's quantity
+     */
+    public int getQuantity(int row) {
+        return quantities.getInt(row * Integer.BYTES);
+    }
+
+    /**
+     * Returns the price stored in the given row.
+     *
+     * @param row the row index, from 0 to size() - 1
+     * @return the row's price
+     */
+    public double getPrice(int row) {
+        return prices.getDouble(row * Double.BYTES);
+    }
+
+    /**
+     * Returns the category stored in the given row.
+     *
+     * @param row the row index, from 0 to size() - 1
+     * @return the row's category
+     */
+    public String getCategory(int row) {
+        return readString(categoryRefs.getInt(row * Integer.BYTES));
+    }
+
+    /**
+     * Decodes one row into a new Product.
+     *
+     * @param row the row index, from 0 to size() - 1
+     * @return a Product holding the row's values
+     */
+    public Product get(int row) {
+        if (row < 0 || row >= count) throw new IndexOutOfBoundsException("Row " + row + " of " + count);
+        return new Product(getSku(row), getName(row), getQuantity(row), getPrice(row), getCategory(row));
+    }
+
+    /**
+     * Looks up a product by SKU through the snapshot's hash table.
+     * Like InventoryManager.searchBySku, the SKU is upper-cased first.
+     *
+     * @param sku the SKU to find
+     * @return the decoded product, or null if it is not in the snapshot
+     */
+    public Product searchBySku(String sku) {
+        sku = sku.toUpperCase();
+        byte[] wanted = sku.getBytes(StandardCharsets.UTF_8);
+        int slot = spread(sku.hashCode()) & hashMask;
+        int entry;
+        while ((entry = skuHash.getInt(slot * Integer.BYTES)) != 0) {
+            int row = entry - 1;
+            if (stringEquals(skuRefs.getInt(row * Integer.BYTES), wanted)) {
+                return get(row);
+            }
+            slot = (slot + 1) & hashMask;
+        }
+        return null;
+    }
+
+    /**
+     * Scans the price column and decodes the rows within the range.
+     *
+     * @param min minimum price, inclusive
+     * @param max maximum price, inclusive
+     * @return the matching products in row order
+     */
+    public List<Product> filterByPriceRange(double min, double max) {
+        List<Product> products = new ArrayList<>();
+        if (min > max) return products;
+        for (int row = 0; row < count; row++) {
+            double price = prices.getDouble(row * Double.BYTES);
+            if (price >= min && price <= max) {
+                products.add(get(row));
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Closes the file channel. The mappings stay valid until they are garbage collected.
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private MappedByteBuffer section(long offset, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) throw new IOException("Snapshot section exceeds 2 GB");
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    private String readString(int offset) {
+        int length = strings.getInt(offset);
+        if (length == NULL_LENGTH) return null;
+        byte[] bytes = new byte[length];
+        strings.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean stringEquals(int offset, byte[] wanted) {
+        int length = strings.getInt(offset);
+        if (length != wanted.length) return false;
+        return strings.slice(offset + Integer.BYTES, length).equals(ByteBuffer.wrap(wanted));
+    }
+
+    private static int writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return Integer.BYTES;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return Integer.BYTES + bytes.length;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,60 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Tests for the memory-mapped snapshot format.
+ * Round-trips a catalog through saveSnapshot/openSnapshot, checks lookups and
+ * scans against the source data, and prints how long opening takes.
+ */
+public class MappedInventoryTest {
+
+    private static final int COUNT = 1_000_000;
+
+    public static void main(String[] args) throws IOException {
+        PrintStream console = System.out;
+        InventoryManager manager = new InventoryManager();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (int i = 0; i < COUNT; i++) {
+                manager.addProduct(new Product("S" + i, i % 7 == 0 ? null : "Item " + i, i % 100,
+                        (i % 1000) / 10.0, "Category " + (i % 25)));
+            }
+            manager.addProduct(new Product("UTF8", "Crème brûlée", 3, 4.5, "Bakery"));
+        } finally {
+            System.setOut(console);
+        }
+
+        File file = File.createTempFile("inventory", ".snap");
+        file.deleteOnExit();
+        manager.saveSnapshot(file.getPath());
+
+        // The first open also pays for class loading, so time the second one.
+        InventoryManager.openSnapshot(file.getPath()).close();
+        long start = System.nanoTime();
+        try (MappedInventory snapshot = InventoryManager.openSnapshot(file.getPath())) {
+            double openMillis = (System.nanoTime() - start) / 1e6;
+            console.printf("Opened %,d-product snapshot in %.2f ms%n", snapshot.size(), openMillis);
+
+            check(snapshot.size() == COUNT + 1, "size " + snapshot.size());
+            for (int i = 0; i < COUNT; i += 9973) {
+                Product expected = manager.searchBySku("S" + i);
+                Product actual = snapshot.searchBySku("s" + i);
+                check(actual != null && actual.toString().equals(expected.toString()),
+                        "lookup S" + i + " returned " + actual);
+            }
+            check(snapshot.searchBySku("NOPE") == null, "missing SKU found");
+            check(snapshot.searchBySku("UTF8").getName().equals("Crème brûlée"), "UTF-8 name");
+            check(snapshot.get(0).getName() == null, "null name");
+            check(snapshot.getCategory(1).equals("Category 1"), "category");
+            check(snapshot.filterByPriceRange(10.0, 20.0).size() == manager.filterByPriceRange(10.0, 20.0).size(),
+                    "price range scan");
+        }
+        console.println("Snapshot test passed.");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
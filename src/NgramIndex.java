@@ -0,0 +1,143 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted trigram index over product names, used by InventoryManager for
+ * substring and prefix name search.
+ *
+ * Each product's name is lowercased once, when it is indexed, and every
+ * distinct three-character window of it gets a posting for the product.
+ * A query of three or more characters takes the smallest posting among its
+ * own trigrams as the candidate set, and only those candidates are checked
+ * with contains or startsWith. Shorter queries have no trigram to look up and
+ * fall back to a scan of the cached lowercase names.
+ *
+ * Matches are returned in the manager's display order (by position). With a
+ * limit, a bounded heap keeps only the first matches, so a type-ahead query
+ * does not build the full result list. Large candidate sets are checked in
+ * parallel on the common fork/join pool and put in order with a parallel
+ * sort instead.
+ *
+ * Like RangeIndex, updates for one product are made under its SKU lock and
+ * readers see a weakly consistent view. Empty postings are kept.
+ */
+class NgramIndex {
+
+    private static final int GRAM = 3;
+    private static final Comparator<Product> BY_POSITION = Comparator.comparingLong(p -> p.position);
+
+    private final ConcurrentHashMap<Long, Set<Product>> postings = new ConcurrentHashMap<>();
+    // The lowercase name each product was indexed under.
+    private final ConcurrentHashMap<Product, String> names = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes a product under the given name. Products without a name are not indexed.
+     */
+    void add(Product product, String name) {
+        if (name == null) return;
+        String key = name.toLowerCase();
+        names.put(product, key);
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            postings.computeIfAbsent(gram(key, i), g -> ConcurrentHashMap.newKeySet()).add(product);
+        }
+    }
+
+    /**
+     * Removes a product from the index.
+     */
+    void remove(Product product) {
+        String key = names.remove(product);
+        if (key == null) return;
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            Set<Product> posting = postings.get(gram(key, i));
+            if (posting != null) posting.remove(product);
+        }
+    }
+
+    /**
+     * Re-indexes a product whose name changed.
+     */
+    void rename(Product product, String name) {
+        remove(product);
+        add(product, name);
+    }
+
+    /**
+     * Returns products whose name contains, or starts with, the query,
+     * ignoring case.
+     *
+     * @param query  the text to look for
+     * @param prefix true to match only at the start of the name
+     * @param limit  the maximum number of products to return
+     * @param parallelThreshold the candidate count from which to check candidates in parallel
+     * @return the first matching products in display order
+     */
+    List<Product> search(String query, boolean prefix, int limit, int parallelThreshold) {
+        if (limit == 0) return new ArrayList<>();
+        String needle = query.toLowerCase();
+        Collection<Product> candidates = needle.length() < GRAM ? names.keySet() : candidates(needle);
+        if (candidates.size() >= parallelThreshold) {
+            Product[] matches = candidates.parallelStream()
+                    .filter(product -> matches(product, needle, prefix))
+                    .toArray(Product[]::new);
+            Arrays.parallelSort(matches, BY_POSITION);
+            return new ArrayList<>(Arrays.asList(matches).subList(0, Math.min(limit, matches.length)));
+        }
+        PriorityQueue<Product> firstMatches = new PriorityQueue<>(BY_POSITION.reversed());
+        for (Product product : candidates) {
+            if (!matches(product, needle, prefix)) continue;
+            if (firstMatches.size() < limit) {
+                firstMatches.add(product);
+            } else if (BY_POSITION.compare(product, firstMatches.peek()) < 0) {
+                firstMatches.poll();
+                firstMatches.add(product);
+            }
+        }
+        List<Product> products = new ArrayList<>(firstMatches);
+        products.sort(BY_POSITION);
+        return products;
+    }
+
+    private boolean matches(Product product, String needle, boolean prefix) {
+        String key = names.get(product);
+        if (key == null) return false;
+        return prefix ? key.startsWith(needle) : key.contains(needle);
+    }
+
+    /**
+     * Returns the products that can contain the query: the smallest posting
+     * among its trigrams. Queries shorter than a trigram cannot narrow the
+     * search, so they return null.
+     *
+     * @param query the text to look for, in any case
+     * @return a live view of the candidate products, or null
+     */
+    Collection<Product> postings(String query) {
+        String needle = query.toLowerCase();
+        return needle.length() < GRAM ? null : candidates(needle);
+    }
+
+    /**
+     * Returns the smallest posting among the needle's trigrams; every match
+     * must appear in it.
+     */
+    private Set<Product> candidates(String needle) {
+        Set<Product> smallest = null;
+        for (int i = 0; i + GRAM <= needle.length(); i++) {
+            Set<Product> posting = postings.get(gram(needle, i));
+            if (posting == null || posting.isEmpty()) return Set.of();
+            if (smallest == null || posting.size() < smallest.size()) smallest = posting;
+        }
+        return smallest;
+    }
+
+    private static long gram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
@@ -0,0 +1,277 @@
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable hash map with structural sharing: a hash array mapped trie.
+ *
+ * Each level of the trie consumes five bits of the key's hash. A node keeps
+ * a 32-bit bitmap of the occupied branches and a packed array holding, per
+ * branch, either a key and its value or a child node, so a node is only as
+ * large as its occupancy. put and remove copy just the nodes on the path to
+ * the key, about log32(n) of them, and share everything else with the
+ * original map; older maps stay valid and unchanged. Keys whose full hashes
+ * collide share a collision node.
+ *
+ * Instances are immutable and may be read from any thread without locking.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+final class PersistentMap<K, V> {
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map.
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value for a key, or null if the map has none.
+     */
+    @SuppressWarnings("unchecked")
+    V get(K key) {
+        return root == null ? null : (V) root.get(0, hash(key), key);
+    }
+
+    /**
+     * Returns a map that also maps the key to the value, or this map if it already does.
+     */
+    PersistentMap<K, V> put(K key, V value) {
+        boolean[] added = new boolean[1];
+        Node node = root == null ? BitmapNode.EMPTY : root;
+        Node updated = node.put(0, hash(key), key, value, added);
+        if (updated == root) return this;
+        return new PersistentMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map without the key, or this map if it does not hold it.
+     */
+    PersistentMap<K, V> remove(K key) {
+        if (root == null) return this;
+        Node updated = root.remove(0, hash(key), key);
+        if (updated == root) return this;
+        return new PersistentMap<>(updated, size - 1);
+    }
+
+    /**
+     * Passes every entry to the action, in no particular order.
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(BiConsumer<? super K, ? super V> action) {
+        if (root != null) root.forEach((BiConsumer<Object, Object>) action);
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private abstract static class Node {
+        abstract Object get(int shift, int hash, Object key);
+
+        abstract Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+        // Returns null once the node is empty.
+        abstract Node remove(int shift, int hash, Object key);
+
+        abstract void forEach(BiConsumer<Object, Object> action);
+    }
+
+    /**
+     * A trie node. For each set bit of the bitmap, slots holds a key and its
+     * value, or null and a child node.
+     */
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        @Override
+        Object get(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) return null;
+            int i = index(bit);
+            Object k = slots[i];
+            if (k == null) return ((Node) slots[i + 1]).get(shift + 5, hash, key);
+            return key.equals(k) ? slots[i + 1] : null;
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bit(hash, shift);
+            int i = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] grown = new Object[slots.length + 2];
+                System.arraycopy(slots, 0, grown, 0, i);
+                grown[i] = key;
+                grown[i + 1] = value;
+                System.arraycopy(slots, i, grown, i + 2, slots.length - i);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, grown);
+            }
+            Object k = slots[i];
+            Object v = slots[i + 1];
+            if (k == null) {
+                Node child = ((Node) v).put(shift + 5, hash, key, value, added);
+                return child == v ? this : with(i, null, child);
+            }
+            if (key.equals(k)) {
+                return v == value ? this : with(i, k, value);
+            }
+            added[0] = true;
+            return with(i, null, pair(shift + 5, hash(k), k, v, hash, key, value));
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) return this;
+            int i = index(bit);
+            Object k = slots[i];
+            if (k == null) {
+                Node child = (Node) slots[i + 1];
+                Node updated = child.remove(shift + 5, hash, key);
+                if (updated == child) return this;
+                if (updated != null) return with(i, null, updated);
+            } else if (!key.equals(k)) {
+                return this;
+            }
+            if (bitmap == bit) return null;
+            Object[] shrunk = new Object[slots.length - 2];
+            System.arraycopy(slots, 0, shrunk, 0, i);
+            System.arraycopy(slots, i + 2, shrunk, i, slots.length - i - 2);
+            return new BitmapNode(bitmap & ~bit, shrunk);
+        }
+
+        @Override
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < slots.length; i += 2) {
+                if (slots[i] == null) {
+                    ((Node) slots[i + 1]).forEach(action);
+                } else {
+                    action.accept(slots[i], slots[i + 1]);
+                }
+            }
+        }
+
+        private BitmapNode with(int i, Object key, Object value) {
+            Object[] copy = slots.clone();
+            copy[i] = key;
+            copy[i + 1] = value;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private int index(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    /**
+     * Keys whose hashes are equal in every bit.
+     */
+    private static final class CollisionNode extends Node {
+        final int hash;
+        final Object[] entries;
+
+        CollisionNode(int hash, Object[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        @Override
+        Object get(int shift, int hash, Object key) {
+            int i = find(key);
+            return i < 0 ? null : entries[i + 1];
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // A different hash reached this branch: push the collisions one level down.
+                Node parent = new BitmapNode(bit(this.hash, shift), new Object[] {null, this});
+                return parent.put(shift, hash, key, value, added);
+            }
+            int i = find(key);
+            if (i >= 0) {
+                if (entries[i + 1] == value) return this;
+                Object[] copy = entries.clone();
+                copy[i + 1] = value;
+                return new CollisionNode(hash, copy);
+            }
+            Object[] grown = Arrays.copyOf(entries, entries.length + 2);
+            grown[entries.length] = key;
+            grown[entries.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, grown);
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int i = find(key);
+            if (i < 0) return this;
+            if (entries.length == 2) return null;
+            Object[] shrunk = new Object[entries.length - 2];
+            System.arraycopy(entries, 0, shrunk, 0, i);
+            System.arraycopy(entries, i + 2, shrunk, i, entries.length - i - 2);
+            return new CollisionNode(hash, shrunk);
+        }
+
+        @Override
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < entries.length; i += 2) {
+                action.accept(entries[i], entries[i + 1]);
+            }
+        }
+
+        private int find(Object key) {
+            for (int i = 0; i < entries.length; i += 2) {
+                if (key.equals(entries[i])) return i;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Builds the smallest subtree holding two keys that share a branch up to this level.
+     */
+    private static Node pair(int shift, int hash1, Object key1, Object value1,
+                             int hash2, Object key2, Object value2) {
+        if (hash1 == hash2) return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+        int bit1 = bit(hash1, shift);
+        int bit2 = bit(hash2, shift);
+        if (bit1 == bit2) {
+            return new BitmapNode(bit1, new Object[] {null, pair(shift + 5, hash1, key1, value1, hash2, key2, value2)});
+        }
+        Object[] slots = ((hash1 >>> shift) & 31) < ((hash2 >>> shift) & 31)
+                ? new Object[] {key1, value1, key2, value2}
+                : new Object[] {key2, value2, key1, value1};
+        return new BitmapNode(bit1 | bit2, slots);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 31);
+    }
+}
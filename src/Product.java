@@ -3,11 +3,25 @@
  * Each product has a unique SKU, a name, quantity in stock, price, and category.
  */
 public class Product {
-    String sku;
-    String name;
-    int quantity;
-    double price;
-    String category;
+    volatile String sku;
+    volatile String name;
+    volatile int quantity;
+    volatile double price;
+    volatile String category;
+    // Display order inside an InventoryManager, assigned when the product is added or reordered.
+    volatile long position;
+    // The manager holding this product, or null. Setters route through it so its journal sees every change.
+    volatile InventoryManager owner;
+    // Bumped under the SKU lock when the product is removed or its quantity is set outright.
+    // Units a ReservationManager set aside under an older generation no longer exist.
+    volatile int escrowGeneration;
+    // Dense id used by the owner's category bitmaps, or -1 when not in an inventory.
+    int slot = -1;
+    // Position in the owner's low-stock heap, or -1 when not below its reorder threshold.
+    // Written under the heap's monitor; volatile so writers can skip the monitor when it is -1.
+    volatile int lowStockSlot = -1;
+    // Lower-case name used as the sort key, cached together with the name it was made from.
+    private volatile CollationKey nameKey;
 
     /**
      * Constructs a new Product with the specified attributes.
@@ -37,10 +51,16 @@ public class Product {
 
     /**
      * Sets the SKU of the product.
+     * The SKU is the product's key in an InventoryManager, so it can only be
+     * changed while the product is not in one.
      *
      * @param sku the new SKU
+     * @throws IllegalStateException if the product is in an inventory
      */
     public void setSku(String sku) {
+        if (owner != null) {
+            throw new IllegalStateException("Cannot change the SKU of a product in an inventory; remove it first");
+        }
         this.sku = sku;
     }
 
@@ -59,7 +79,12 @@ public class Product {
      * @param name the new Name
      */
     public void setName(String name) {
-        this.name = name;
+        InventoryManager manager = owner;
+        if (manager != null) {
+            manager.setProductName(this, name);
+        } else {
+            this.name = name;
+        }
     }
 
     /**
@@ -68,7 +93,12 @@ public class Product {
      * @param quantity the new quantity
      */
     public void setQuantity(int quantity) {
-        this.quantity = quantity;
+        InventoryManager manager = owner;
+        if (manager != null) {
+            manager.setProductQuantity(this, quantity);
+        } else {
+            this.quantity = quantity;
+        }
     }
 
     /**
@@ -95,7 +125,12 @@ public class Product {
      * @param price new product price
      */
     public void setPrice(double price) {
-        this.price = price;
+        InventoryManager manager = owner;
+        if (manager != null) {
+            manager.setProductPrice(this, price);
+        } else {
+            this.price = price;
+        }
     }
 
     /**
@@ -113,7 +148,29 @@ public class Product {
      * @param category new product category
      */
     public void setCategory(String category) {
-        this.category = category;
+        InventoryManager manager = owner;
+        if (manager != null) {
+            manager.setProductCategory(this, category);
+        } else {
+            this.category = category;
+        }
+    }
+
+    /**
+     * Returns the lower-case name used to sort by name. It is computed once per
+     * name, so sorting does not allocate a string per comparison.
+     *
+     * @return the lower-case name, or null if the product has no name
+     */
+    String nameKey() {
+        String current = name;
+        if (current == null) return null;
+        CollationKey cached = nameKey;
+        if (cached == null || cached.source != current) {
+            cached = new CollationKey(current, current.toLowerCase());
+            nameKey = cached;
+        }
+        return cached.key;
     }
 
     /**
@@ -131,4 +188,18 @@ public class Product {
                 ", Category='" + category + '\'' +
                 '}';
     }
+
+    /**
+     * A sort key and the string it was derived from, so a stale key is detected
+     * by an identity check after the name changes.
+     */
+    private static final class CollationKey {
+        final String source;
+        final String key;
+
+        CollationKey(String source, String key) {
+            this.source = source;
+            this.key = key;
+        }
+    }
 }
@@ -0,0 +1,64 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.function.IntFunction;
+
+/**
+ * Heap footprint benchmark comparing Product with CompactProduct.
+ *
+ * Builds the same catalog once as Product objects and once as
+ * CompactProducts, keeps each in an array, and reports the heap retained
+ * after a full collection, in total and per product. SKUs and names are
+ * distinct strings, as they would be after loading a file; category strings
+ * are shared in both cases, as InventoryManager interns them. The arrays
+ * themselves are not counted.
+ *
+ * Usage: java -Xmx4g ProductHeapBenchmark [count]   (defaults to 10000000)
+ */
+public class ProductHeapBenchmark {
+
+    private static final int DEFAULT_COUNT = 10_000_000;
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    // Holds the catalog being measured, so it stays reachable across the collection.
+    private static Object[] retained;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_COUNT;
+        String[] categories = new String[20];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = "Category " + i;
+        }
+
+        System.out.printf("%-16s %12s %12s %14s%n", "Representation", "Products", "Heap MB", "bytes/product");
+        double productBytes = measure("Product", count, i ->
+                new Product("SKU" + i, "Item " + i, i % 500, (i % 100_000) / 100.0, categories[i % 20]));
+        double compactBytes = measure("CompactProduct", count, i ->
+                new CompactProduct("SKU" + i, "Item " + i, i % 500, i % 100_000, categories[i % 20]));
+        System.out.printf("CompactProduct uses %.1f%% of the heap of Product.%n", 100 * compactBytes / productBytes);
+    }
+
+    /**
+     * Builds count products, reports the heap they retain and returns it per product.
+     */
+    private static double measure(String name, int count, IntFunction<Object> factory) {
+        retained = null;
+        Object[] products = new Object[count];
+        long before = usedAfterGc();
+        for (int i = 0; i < count; i++) {
+            products[i] = factory.apply(i);
+        }
+        retained = products;
+        long used = usedAfterGc() - before;
+        double perProduct = (double) used / count;
+        System.out.printf("%-16s %12d %12.1f %14.1f%n", name, count, used / (1024.0 * 1024.0), perProduct);
+        retained = null;
+        return perProduct;
+    }
+
+    private static long usedAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * An immutable copy of a Product's fields as of one InventorySnapshot.
+ * Later changes to the product do not show through, so a snapshot can be
+ * read from any thread without locking.
+ */
+public final class ProductSnapshot {
+    private final String sku;
+    private final String name;
+    private final int quantity;
+    private final double price;
+    private final String category;
+    private final long position;
+
+    ProductSnapshot(Product product) {
+        this.sku = product.sku;
+        this.name = product.name;
+        this.quantity = product.quantity;
+        this.price = product.price;
+        this.category = product.category;
+        this.position = product.position;
+    }
+
+    /**
+     * @return the SKU
+     */
+    public String getSku() {
+        return sku;
+    }
+
+    /**
+     * @return the product name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the quantity in stock
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * @return the price
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * @return the category
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    long getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the product in the same format as Product.toString.
+     *
+     * @return a string describing the product
+     */
+    @Override
+    public String toString() {
+        return "Product{" +
+                "SKU='" + sku + '\'' +
+                ", Name='" + name + '\'' +
+                ", Quantity=" + quantity +
+                ", Price=$" + price +
+                ", Category='" + category + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,246 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of filter results, used by InventoryManager.
+ *
+ * Results are kept in least-recently-used order and evicted once the cache
+ * holds more than its maximum number of results or its maximum weight, where
+ * a result weighs one per product plus one. Callers get a fresh copy of a
+ * cached result, so they may change it freely.
+ *
+ * The manager reports every change to a product it holds, with the values
+ * before the change. Only the cached results whose predicate the old or new
+ * values satisfy are dropped: a quantity change touches only quantity-range
+ * results that cover either quantity, a category change only the two
+ * categories involved, and so on. Each kind of filter has its own
+ * generation, bumped before such a change is applied to the cache; a result
+ * computed while its generation moved is returned but not cached, so a
+ * result can never miss the change that ran alongside it. When no result of
+ * a kind is cached, changes to it skip the cache's monitor.
+ */
+class QueryCache {
+
+    /**
+     * The filter a cached result came from.
+     */
+    enum Kind { NAME, NAME_PREFIX, CATEGORY, PRICE, EXACT_PRICE, QUANTITY }
+
+    /**
+     * A filter and its arguments. Category keys are case-folded, so spellings
+     * of one category share a result.
+     */
+    static final class Key {
+        final Kind kind;
+        final String text;
+        final double min;
+        final double max;
+        final int limit;
+
+        private Key(Kind kind, String text, double min, double max, int limit) {
+            this.kind = kind;
+            this.text = text;
+            this.min = min;
+            this.max = max;
+            this.limit = limit;
+        }
+
+        static Key name(String query, boolean prefix, int limit) {
+            return new Key(prefix ? Kind.NAME_PREFIX : Kind.NAME, query.toLowerCase(), 0, 0, limit);
+        }
+
+        static Key category(String category) {
+            return new Key(Kind.CATEGORY, category == null ? null : CategoryIndex.key(category), 0, 0, 0);
+        }
+
+        static Key price(double min, double max) {
+            return new Key(Kind.PRICE, null, min, max, 0);
+        }
+
+        static Key exactPrice(long cents) {
+            return new Key(Kind.EXACT_PRICE, null, cents, cents, 0);
+        }
+
+        static Key quantity(int min, int max) {
+            return new Key(Kind.QUANTITY, null, min, max, 0);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return kind == key.kind && Objects.equals(text, key.text) && limit == key.limit
+                    && Double.compare(min, key.min) == 0 && Double.compare(max, key.max) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, text, min, max, limit);
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final LinkedHashMap<Key, Product[]> results = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Kind, Set<Key>> keysByKind = new EnumMap<>(Kind.class);
+    // Per kind: bumped before each change that could affect it, and the number of results cached or being stored.
+    private final AtomicLongArray generations = new AtomicLongArray(Kind.values().length);
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(Kind.values().length);
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    QueryCache(int maxEntries, long maxWeight) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        for (Kind kind : Kind.values()) {
+            keysByKind.put(kind, new HashSet<>());
+        }
+    }
+
+    /**
+     * Returns a copy of the cached result for the key, running the loader
+     * and caching its result on a miss.
+     */
+    List<Product> get(Key key, Supplier<List<Product>> loader) {
+        int kind = key.kind.ordinal();
+        synchronized (this) {
+            Product[] cached = results.get(key);
+            if (cached != null) {
+                hits++;
+                return new ArrayList<>(Arrays.asList(cached));
+            }
+            misses++;
+        }
+        long generation = generations.get(kind);
+        List<Product> loaded = loader.get();
+        Product[] products = loaded.toArray(new Product[0]);
+        if (products.length + 1 > maxWeight) return loaded;
+        synchronized (this) {
+            // Counted before the generation is checked again, so a concurrent change either sees this result or moves the generation.
+            counts.incrementAndGet(kind);
+            if (generations.get(kind) != generation || results.containsKey(key)) {
+                counts.decrementAndGet(kind);
+                return loaded;
+            }
+            results.put(key, products);
+            keysByKind.get(key.kind).add(key);
+            weight += products.length + 1;
+            evict();
+        }
+        return loaded;
+    }
+
+    void added(Product product) {
+        changed(product.name, product.category, product.price, product.quantity);
+    }
+
+    void removed(Product product) {
+        changed(product.name, product.category, product.price, product.quantity);
+    }
+
+    void nameChanged(Product product, String oldName) {
+        String name = product.name;
+        invalidate(Kind.NAME, key -> contains(oldName, key.text, false) || contains(name, key.text, false));
+        invalidate(Kind.NAME_PREFIX, key -> contains(oldName, key.text, true) || contains(name, key.text, true));
+    }
+
+    void categoryChanged(Product product, String oldCategory) {
+        invalidateCategory(oldCategory);
+        invalidateCategory(product.category);
+    }
+
+    void priceChanged(Product product, double oldPrice) {
+        double price = product.price;
+        invalidate(Kind.PRICE, key -> within(oldPrice, key) || within(price, key));
+        invalidate(Kind.EXACT_PRICE, key -> inCents(oldPrice, key) || inCents(price, key));
+    }
+
+    void quantityChanged(Product product, int oldQuantity) {
+        int quantity = product.quantity;
+        invalidate(Kind.QUANTITY, key -> within(oldQuantity, key) || within(quantity, key));
+    }
+
+    synchronized QueryCacheStats stats() {
+        return new QueryCacheStats(hits, misses, evictions, invalidations, results.size(), weight);
+    }
+
+    private void changed(String name, String category, double price, int quantity) {
+        invalidate(Kind.NAME, key -> contains(name, key.text, false));
+        invalidate(Kind.NAME_PREFIX, key -> contains(name, key.text, true));
+        invalidateCategory(category);
+        invalidate(Kind.PRICE, key -> within(price, key));
+        invalidate(Kind.EXACT_PRICE, key -> inCents(price, key));
+        invalidate(Kind.QUANTITY, key -> within(quantity, key));
+    }
+
+    private void invalidateCategory(String category) {
+        Key affected = Key.category(category);
+        invalidate(Kind.CATEGORY, key -> key.equals(affected));
+    }
+
+    /**
+     * Drops the cached results of one kind that the change could affect.
+     */
+    private void invalidate(Kind kind, Predicate<Key> affected) {
+        generations.incrementAndGet(kind.ordinal());
+        if (counts.get(kind.ordinal()) == 0) return;
+        synchronized (this) {
+            Iterator<Key> keys = keysByKind.get(kind).iterator();
+            while (keys.hasNext()) {
+                Key key = keys.next();
+                if (!affected.test(key)) continue;
+                keys.remove();
+                drop(key);
+                invalidations++;
+            }
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Product[]>> eldest = results.entrySet().iterator();
+        while ((results.size() > maxEntries || weight > maxWeight) && eldest.hasNext()) {
+            Map.Entry<Key, Product[]> entry = eldest.next();
+            Key key = entry.getKey();
+            weight -= entry.getValue().length + 1;
+            eldest.remove();
+            keysByKind.get(key.kind).remove(key);
+            counts.decrementAndGet(key.kind.ordinal());
+            evictions++;
+        }
+    }
+
+    private void drop(Key key) {
+        Product[] products = results.remove(key);
+        weight -= products.length + 1;
+        counts.decrementAndGet(key.kind.ordinal());
+    }
+
+    private static boolean contains(String name, String text, boolean prefix) {
+        if (name == null) return false;
+        String lower = name.toLowerCase();
+        return prefix ? lower.startsWith(text) : lower.contains(text);
+    }
+
+    private static boolean within(double value, Key key) {
+        return value >= key.min && value <= key.max;
+    }
+
+    private static boolean inCents(double price, Key key) {
+        return CompactProduct.toCents(price) == key.min;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Counters of an InventoryManager's query result cache, taken at one moment.
+ * Used to size the cache: a low hit rate with many evictions means it is too
+ * small, and many invalidations mean the cached queries change too often.
+ */
+public class QueryCacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+    private final int entries;
+    private final long weight;
+
+    QueryCacheStats(long hits, long misses, long evictions, long invalidations, int entries, long weight) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.entries = entries;
+        this.weight = weight;
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that ran the query
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of results dropped to stay within the size or weight limit
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of results dropped because a change affected them
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return the number of cached results
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the total weight of the cached results, one per product plus one per result
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return the fraction of lookups answered from the cache, or 0 before any lookup
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Returns a one-line summary of the counters.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return "Hits " + hits + ", misses " + misses + String.format(" (hit rate %.1f%%)", getHitRate() * 100)
+                + ", evictions " + evictions + ", invalidations " + invalidations
+                + ", entries " + entries + ", weight " + weight;
+    }
+}
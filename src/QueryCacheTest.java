@@ -0,0 +1,148 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for InventoryManager's query result cache: cached filters must agree
+ * with uncached ones after every change, and only affected results may be
+ * dropped.
+ */
+public class QueryCacheTest {
+
+    private static final String[] CATEGORIES = {"Food", "FOOD", "Toys", "Tools"};
+
+    public static void main(String[] args) {
+        checkAgreesWithUncached();
+        checkPreciseInvalidation();
+        checkEviction();
+        System.out.println("Query cache test passed.");
+    }
+
+    private static void checkAgreesWithUncached() {
+        InventoryManager cached = new InventoryManager();
+        InventoryManager plain = new InventoryManager();
+        cached.setEventSink(InventoryEventSink.NONE);
+        plain.setEventSink(InventoryEventSink.NONE);
+        cached.setQueryCache(64, 100_000);
+        Random random = new Random(18);
+        List<String> skus = new ArrayList<>();
+        for (int step = 0; step < 5_000; step++) {
+            int op = random.nextInt(8);
+            if (op == 0 || skus.isEmpty()) {
+                String sku = "S" + step;
+                String name = "Item " + random.nextInt(100);
+                int quantity = random.nextInt(50);
+                double price = random.nextInt(100) / 4.0;
+                String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+                cached.addProduct(new Product(sku, name, quantity, price, category));
+                plain.addProduct(new Product(sku, name, quantity, price, category));
+                skus.add(sku);
+            } else if (op == 1) {
+                String sku = skus.remove(random.nextInt(skus.size()));
+                cached.removeProduct(sku);
+                plain.removeProduct(sku);
+            } else if (op == 2) {
+                String sku = skus.get(random.nextInt(skus.size()));
+                int quantity = random.nextInt(50);
+                cached.updateQuantity(sku, quantity);
+                plain.updateQuantity(sku, quantity);
+            } else if (op == 3) {
+                String sku = skus.get(random.nextInt(skus.size()));
+                double price = random.nextInt(100) / 4.0;
+                cached.findBySku(sku).setPrice(price);
+                plain.findBySku(sku).setPrice(price);
+            } else if (op == 4) {
+                String sku = skus.get(random.nextInt(skus.size()));
+                String name = "Item " + random.nextInt(100);
+                cached.findBySku(sku).setName(name);
+                plain.findBySku(sku).setName(name);
+            } else if (op == 5) {
+                String sku = skus.get(random.nextInt(skus.size()));
+                String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+                cached.findBySku(sku).setCategory(category);
+                plain.findBySku(sku).setCategory(category);
+            } else {
+                String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+                same(cached.filterByCategory(category), plain.filterByCategory(category), "category " + category);
+                double min = random.nextInt(20);
+                same(cached.filterByPriceRange(min, min + 3), plain.filterByPriceRange(min, min + 3), "price range");
+                same(cached.filterByExactPrice(min), plain.filterByExactPrice(min), "exact price");
+                int low = random.nextInt(40);
+                same(cached.filterByQuantityRange(low, low + 5), plain.filterByQuantityRange(low, low + 5), "quantity");
+                String text = "item " + random.nextInt(10);
+                same(cached.filterByName(text), plain.filterByName(text), "name " + text);
+                same(cached.filterByNamePrefix(text, 5), plain.filterByNamePrefix(text, 5), "prefix " + text);
+            }
+        }
+        QueryCacheStats stats = cached.getQueryCacheStats();
+        check(stats.getHits() > 0 && stats.getMisses() > 0 && stats.getInvalidations() > 0, "counters " + stats);
+        check(stats.getEntries() <= 64, "entries " + stats.getEntries());
+    }
+
+    private static void checkPreciseInvalidation() {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        manager.setQueryCache(16, 1_000);
+        manager.addProduct(new Product("A", "Apple", 5, 1.0, "Food"));
+        manager.addProduct(new Product("B", "Ball", 3, 4.0, "Toys"));
+
+        manager.filterByCategory("food");
+        manager.filterByPriceRange(0.5, 2.0);
+        manager.filterByQuantityRange(0, 10);
+        manager.filterByCategory("FOOD");
+        check(manager.getQueryCacheStats().getHits() == 1, "spellings of a category share a result");
+
+        manager.updateQuantity("B", 4);
+        manager.findBySku("B").setPrice(5.0);
+        manager.findBySku("B").setCategory("Games");
+        manager.filterByCategory("Food");
+        manager.filterByPriceRange(0.5, 2.0);
+        QueryCacheStats stats = manager.getQueryCacheStats();
+        check(stats.getHits() == 3, "changes outside the predicates kept results: " + stats);
+        check(stats.getInvalidations() == 1, "only the quantity range was dropped: " + stats);
+
+        manager.findBySku("A").setPrice(1.5);
+        check(manager.filterByPriceRange(0.5, 2.0).get(0).getPrice() == 1.5, "price change inside range");
+        check(manager.getQueryCacheStats().getInvalidations() == 2, "price range dropped");
+        manager.removeProduct("A");
+        check(manager.filterByCategory("Food").isEmpty(), "removed product is gone");
+    }
+
+    private static void checkEviction() {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        for (int i = 0; i < 100; i++) {
+            manager.addProduct(new Product("P" + i, "Part " + i, i, i, "Parts"));
+        }
+        manager.setQueryCache(3, 1_000);
+        for (int i = 0; i < 5; i++) {
+            manager.filterByQuantityRange(i, i);
+        }
+        manager.filterByQuantityRange(4, 4);
+        QueryCacheStats stats = manager.getQueryCacheStats();
+        check(stats.getEntries() == 3 && stats.getEvictions() == 2 && stats.getHits() == 1, "size limit: " + stats);
+
+        manager.setQueryCache(10, 60);
+        manager.filterByQuantityRange(0, 49);
+        manager.filterByQuantityRange(50, 99);
+        stats = manager.getQueryCacheStats();
+        check(stats.getEntries() == 1 && stats.getWeight() == 51 && stats.getEvictions() == 1, "weight limit: " + stats);
+        manager.filterByCategory("Parts");
+        check(manager.getQueryCacheStats().getEntries() == 1, "result heavier than the cache is not kept");
+
+        manager.setQueryCache(0, 0);
+        check(manager.getQueryCacheStats() == null, "cache removed");
+        check(manager.filterByCategory("Parts").size() == 100, "uncached filter");
+    }
+
+    private static void same(List<Product> cached, List<Product> plain, String message) {
+        check(cached.size() == plain.size(), message + ": " + cached.size() + " != " + plain.size());
+        for (int i = 0; i < cached.size(); i++) {
+            check(cached.get(i).getSku().equals(plain.get(i).getSku()), message + " at " + i);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
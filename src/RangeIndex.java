@@ -0,0 +1,152 @@
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Sorted secondary index from a numeric product attribute to the products
+ * holding it, used by InventoryManager for price and quantity.
+ *
+ * A ConcurrentSkipListMap maps each distinct value to a bucket of products,
+ * and each bucket keeps its products in insertion order. Catalogs have far
+ * fewer distinct prices and quantities than products, so an update is a
+ * short skip-list lookup plus a hash-set insert. Range queries cost
+ * O(log d + k) for d distinct values.
+ *
+ * Updates for one product are made under that product's SKU lock, and each
+ * bucket is guarded by its own monitor. Readers see a weakly consistent view,
+ * like iteration over a ConcurrentHashMap. A bucket that becomes empty is
+ * removed from the map under its monitor, so values a product no longer
+ * holds do not pile up under price churn; an add that locked a bucket just
+ * removed retries with a fresh one.
+ */
+class RangeIndex {
+
+    private final ConcurrentSkipListMap<Double, LinkedHashSet<Product>> buckets = new ConcurrentSkipListMap<>();
+
+    /**
+     * Indexes a product under the given value.
+     */
+    void add(double value, Product product) {
+        Double key = normalize(value);
+        while (true) {
+            LinkedHashSet<Product> bucket = buckets.computeIfAbsent(key, v -> new LinkedHashSet<>());
+            synchronized (bucket) {
+                // A concurrent remove may have emptied and detached this bucket before we locked it.
+                if (buckets.get(key) == bucket) {
+                    bucket.add(product);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a product that was indexed under the given value.
+     */
+    void remove(double value, Product product) {
+        Double key = normalize(value);
+        LinkedHashSet<Product> bucket = buckets.get(key);
+        if (bucket == null) return;
+        synchronized (bucket) {
+            if (bucket.remove(product) && bucket.isEmpty()) {
+                buckets.remove(key, bucket);
+            }
+        }
+    }
+
+    /**
+     * Re-indexes a product whose value changed.
+     */
+    void move(double oldValue, double newValue, Product product) {
+        if (normalize(oldValue) == normalize(newValue)) return;
+        remove(oldValue, product);
+        add(newValue, product);
+    }
+
+    /**
+     * Returns the products whose value lies within [min, max], in value order.
+     * Like a plain {@code >= min && <= max} test, NaN bounds match nothing.
+     *
+     * @param min the lower bound, inclusive
+     * @param max the upper bound, inclusive
+     * @return the matching products
+     */
+    List<Product> range(double min, double max) {
+        if (Double.isNaN(min) || Double.isNaN(max) || min > max) return new ArrayList<>();
+        return collect(buckets.subMap(normalize(min), true, normalize(max), true));
+    }
+
+    /**
+     * Counts the products whose value lies within [min, max], giving up once
+     * the count reaches {@code cap}. The cost grows with the number of
+     * distinct values in the range, so a query planner can stop as soon as
+     * the range is known to be worse than another index.
+     *
+     * @param min the lower bound, inclusive
+     * @param max the upper bound, inclusive
+     * @param cap the count at which to stop
+     * @return the number of matching products, or cap if there are at least that many
+     */
+    int count(double min, double max, int cap) {
+        if (Double.isNaN(min) || Double.isNaN(max) || min > max) return 0;
+        int total = 0;
+        for (LinkedHashSet<Product> bucket : buckets.subMap(normalize(min), true, normalize(max), true).values()) {
+            synchronized (bucket) {
+                total += bucket.size();
+            }
+            if (total >= cap) return cap;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the products whose value rounds to the given number of
+     * hundredths, such as a price in cents. Only the buckets within one
+     * hundredth of it are visited, so binary rounding of the stored values
+     * cannot hide a match.
+     *
+     * @param hundredths the value in hundredths to match
+     * @return the matching products, in ascending value order
+     */
+    List<Product> hundredths(long hundredths) {
+        double center = hundredths / 100.0;
+        List<Product> products = new ArrayList<>();
+        for (Map.Entry<Double, LinkedHashSet<Product>> entry
+                : buckets.subMap(center - 0.01, true, center + 0.01, true).entrySet()) {
+            if (Math.round(entry.getKey() * 100) != hundredths) continue;
+            LinkedHashSet<Product> bucket = entry.getValue();
+            synchronized (bucket) {
+                products.addAll(bucket);
+            }
+        }
+        return products;
+    }
+
+    private static List<Product> collect(NavigableMap<Double, LinkedHashSet<Product>> range) {
+        List<Product> products = new ArrayList<>();
+        for (Map.Entry<Double, LinkedHashSet<Product>> entry : range.entrySet()) {
+            LinkedHashSet<Product> bucket = entry.getValue();
+            synchronized (bucket) {
+                products.addAll(bucket);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * @return the number of distinct values with at least one product
+     */
+    int distinctValues() {
+        return buckets.size();
+    }
+
+    /**
+     * Folds -0.0 into 0.0 so both land in one bucket, as they compare equal with ==.
+     */
+    private static double normalize(double value) {
+        return value == 0.0 ? 0.0 : value;
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A hold on units of one product, made by ReservationManager.reserve.
+ *
+ * A reservation starts HELD and ends exactly once: COMMITTED when the sale
+ * goes through, RELEASED when the caller gives the units back, or EXPIRED
+ * when its time to live runs out first.
+ */
+public final class Reservation {
+
+    /**
+     * Where a reservation is in its life.
+     */
+    public enum Status {
+        /** The units are held and can be committed or released. */
+        HELD,
+        /** The units were sold. */
+        COMMITTED,
+        /** The units were given back by the caller. */
+        RELEASED,
+        /** The units were given back because the reservation timed out. */
+        EXPIRED
+    }
+
+    final ReservationManager owner;
+    private final long id;
+    private final String sku;
+    // The product the units were taken from and its escrow generation at the time;
+    // the units go back only if the product is still there under that generation.
+    final Product product;
+    final int generation;
+    private final int quantity;
+    // System.nanoTime value after which the reservation expires.
+    final long deadline;
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.HELD);
+
+    Reservation(ReservationManager owner, long id, Product product, int generation, int quantity, long deadline) {
+        this.owner = owner;
+        this.id = id;
+        this.sku = product.getSku();
+        this.product = product;
+        this.generation = generation;
+        this.quantity = quantity;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Ends a held reservation. Only the first call for a reservation succeeds.
+     *
+     * @param outcome the final status
+     * @return true if the reservation was still held
+     */
+    boolean finish(Status outcome) {
+        return status.compareAndSet(Status.HELD, outcome);
+    }
+
+    /**
+     * @return the reservation's id, unique within its ReservationManager
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the SKU of the reserved product
+     */
+    public String getSku() {
+        return sku;
+    }
+
+    /**
+     * @return the number of units reserved
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * @return the current status
+     */
+    public Status getStatus() {
+        return status.get();
+    }
+
+    @Override
+    public String toString() {
+        return "Reservation{" +
+                "Id=" + id +
+                ", SKU='" + sku + '\'' +
+                ", Quantity=" + quantity +
+                ", Status=" + status.get() +
+                '}';
+    }
+}
@@ -0,0 +1,407 @@
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds stock for checkouts on top of an InventoryManager.
+ *
+ * reserve takes units out of a product's quantity straight away and returns
+ * a Reservation for them. commit makes the sale final; release, or expiry
+ * after the reservation's time to live, puts the units back. A product's
+ * quantity is therefore the stock that is neither sold nor held, and units
+ * can only ever be reserved out of it, so nothing is oversold.
+ *
+ * A SKU starts out cold: each reservation takes its units under the SKU's
+ * lock in the manager. Once two reservations for the same SKU are seen in
+ * flight at once, the SKU turns hot and, like a LongAdder, spreads its
+ * counter over striped cells. A batch of units is moved from the product
+ * into the cells in one locked step, and later reservations take units from
+ * a randomly chosen cell with a compare-and-set, so checkouts on one popular
+ * product no longer queue on one lock. No cell ever goes below zero. While a
+ * SKU is hot, up to 16 units per stripe may sit in its cells rather than in
+ * the product's quantity; available counts them.
+ *
+ * Units in the cells, and units held by a reservation, belong to the
+ * product and escrow generation they were taken from. Removing the
+ * product, or setting its quantity outright with updateQuantity,
+ * setQuantity or a batch, bumps the generation under the SKU lock; from
+ * then on those units are void. They are never reserved and never handed
+ * back, not even to a new product added under the same SKU, so a removed
+ * or zeroed product cannot be oversold.
+ *
+ * A background thread expires reservations past their time to live, and
+ * hands the cells of a hot SKU back to the product once a sweep interval
+ * passes without a reservation for it.
+ */
+public final class ReservationManager implements AutoCloseable {
+
+    private static final Duration DEFAULT_SWEEP_INTERVAL = Duration.ofMillis(100);
+    private static final int ESCROW_PER_CELL = 16;
+    // Cells are spaced 16 longs (128 bytes) apart, so no two share a cache line.
+    private static final int CELL_STRIDE = 16;
+
+    private final InventoryManager manager;
+    private final int stripes;
+    private final ConcurrentHashMap<String, Stock> stocks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Reservation> active = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * Creates a reservation manager that sweeps expired holds every 100 ms.
+     *
+     * @param manager the inventory to reserve stock from
+     */
+    public ReservationManager(InventoryManager manager) {
+        this(manager, DEFAULT_SWEEP_INTERVAL);
+    }
+
+    /**
+     * Creates a reservation manager that sweeps expired holds at the given interval.
+     *
+     * @param manager       the inventory to reserve stock from
+     * @param sweepInterval how often expired reservations are released
+     */
+    public ReservationManager(InventoryManager manager, Duration sweepInterval) {
+        if (manager == null) throw new IllegalArgumentException("manager must not be null");
+        if (sweepInterval == null || sweepInterval.isNegative() || sweepInterval.isZero()) {
+            throw new IllegalArgumentException("sweepInterval must be positive: " + sweepInterval);
+        }
+        this.manager = manager;
+        int processors = Runtime.getRuntime().availableProcessors();
+        this.stripes = Math.max(2, Integer.highestOneBit(processors - 1) << 1);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "reservation-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = sweepInterval.toNanos();
+        sweeper.scheduleWithFixedDelay(() -> sweep(System.nanoTime()), period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Holds units of a product until they are committed, released or the
+     * time to live runs out.
+     *
+     * @param sku      the product's SKU
+     * @param quantity the number of units to hold
+     * @param ttl      how long the hold lasts if it is not committed or released
+     * @return the reservation, or null if the product is missing or has fewer units available
+     */
+    public Reservation reserve(String sku, int quantity, Duration ttl) {
+        if (quantity < 1) throw new IllegalArgumentException("quantity must be positive: " + quantity);
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive: " + ttl);
+        }
+        Stock stock = stocks.get(sku);
+        if (stock == null) stock = stocks.computeIfAbsent(sku, Stock::new);
+        Source source = stock.take(quantity);
+        if (source == null) return null;
+        stock.held.add(quantity);
+        Reservation reservation = new Reservation(this, ids.incrementAndGet(), source.product, source.generation,
+                quantity, System.nanoTime() + ttl.toNanos());
+        active.put(reservation.getId(), reservation);
+        return reservation;
+    }
+
+    /**
+     * Makes a held reservation's units sold. The product's quantity already
+     * excludes them, so it does not change.
+     *
+     * @param reservation a reservation made by this manager
+     * @return false if the reservation was already committed, released or expired
+     */
+    public boolean commit(Reservation reservation) {
+        checkOwner(reservation);
+        if (!reservation.finish(Reservation.Status.COMMITTED)) return false;
+        active.remove(reservation.getId());
+        stocks.get(reservation.getSku()).held.add(-reservation.getQuantity());
+        return true;
+    }
+
+    /**
+     * Gives a held reservation's units back to the product. Units of a
+     * product that was removed, or whose quantity was set outright, since
+     * the reservation was made are dropped instead.
+     *
+     * @param reservation a reservation made by this manager
+     * @return false if the reservation was already committed, released or expired
+     */
+    public boolean release(Reservation reservation) {
+        checkOwner(reservation);
+        return giveBack(reservation, Reservation.Status.RELEASED);
+    }
+
+    /**
+     * Returns the number of units of a product that can still be reserved:
+     * its quantity plus any units waiting in its cells.
+     *
+     * @param sku the product's SKU
+     * @return the units available, or 0 if there is no such product
+     */
+    public int available(String sku) {
+        Product product = manager.findBySku(sku);
+        if (product == null) return 0;
+        Stock stock = stocks.get(sku);
+        return product.getQuantity() + (stock == null ? 0 : stock.escrowed());
+    }
+
+    /**
+     * Returns the number of units of a product held by open reservations.
+     *
+     * @param sku the product's SKU
+     * @return the units held
+     */
+    public long held(String sku) {
+        Stock stock = stocks.get(sku);
+        return stock == null ? 0 : stock.held.sum();
+    }
+
+    /**
+     * @return the number of reservations still held
+     */
+    public int activeCount() {
+        return active.size();
+    }
+
+    /**
+     * Stops expiring reservations and hands every hot SKU's cells back to
+     * its product. Open reservations can still be committed or released.
+     */
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        for (Stock stock : stocks.values()) {
+            stock.cool();
+        }
+    }
+
+    /**
+     * Expires the reservations whose time to live ended before now, then
+     * cools hot SKUs that were not reserved since the previous sweep.
+     *
+     * @param now the current System.nanoTime
+     * @return the number of reservations expired
+     */
+    int sweep(long now) {
+        int expired = 0;
+        for (Reservation reservation : active.values()) {
+            if (now - reservation.deadline >= 0 && giveBack(reservation, Reservation.Status.EXPIRED)) {
+                expired++;
+            }
+        }
+        for (Stock stock : stocks.values()) {
+            if (stock.hot && !stock.touched) stock.cool();
+            stock.touched = false;
+        }
+        return expired;
+    }
+
+    /**
+     * Returns whether a SKU is currently served from striped cells.
+     */
+    boolean isHot(String sku) {
+        Stock stock = stocks.get(sku);
+        return stock != null && stock.hot;
+    }
+
+    private boolean giveBack(Reservation reservation, Reservation.Status outcome) {
+        if (!reservation.finish(outcome)) return false;
+        active.remove(reservation.getId());
+        stocks.get(reservation.getSku()).held.add(-reservation.getQuantity());
+        manager.returnEscrow(reservation.product, reservation.generation, reservation.getQuantity());
+        return true;
+    }
+
+    private void checkOwner(Reservation reservation) {
+        if (reservation == null || reservation.owner != this) {
+            throw new IllegalArgumentException("Reservation was not made by this manager: " + reservation);
+        }
+    }
+
+    /**
+     * Reservation state for one SKU: the units held, and the striped cells
+     * that serve it while it is hot. Refilling and cooling lock the Stock;
+     * taking from a cell does not.
+     */
+    private final class Stock {
+        final String sku;
+        final LongAdder held = new LongAdder();
+        // Reservations in progress on the cold path; a second one turns the SKU hot.
+        private final AtomicInteger inFlight = new AtomicInteger();
+        volatile boolean hot;
+        // Set by reservations, cleared by each sweep.
+        volatile boolean touched;
+        // The cells in use, created when the SKU first turns hot and replaced when their escrow is voided.
+        private volatile Escrow escrow;
+
+        Stock(String sku) {
+            this.sku = sku;
+        }
+
+        /**
+         * Takes n units for a reservation.
+         *
+         * @return the product and generation the units came from, or null if they could not be taken
+         */
+        Source take(int n) {
+            if (!touched) touched = true;
+            if (hot) {
+                Source source = takeFromCell(n);
+                return source != null ? source : refill(n);
+            }
+            if (inFlight.getAndIncrement() > 0) hot = true;
+            try {
+                if (!hot) return takeFromProduct(n);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return refill(n);
+        }
+
+        /**
+         * Takes n units straight from the product under its SKU lock.
+         */
+        private Source takeFromProduct(int n) {
+            while (true) {
+                Product product = manager.findBySku(sku);
+                if (product == null) return null;
+                int generation = product.escrowGeneration;
+                int taken = manager.takeEscrow(product, generation, n, n);
+                if (taken >= 0) return taken == n ? new Source(product, generation) : null;
+                // Removed or reset between the lookup and the lock; look the SKU up again.
+            }
+        }
+
+        /**
+         * Takes n units from a single cell, starting at a random one so
+         * threads spread out.
+         */
+        private Escrow takeFromCell(int n) {
+            Escrow current = escrow;
+            if (current == null || !current.isValid()) return null;
+            AtomicLongArray cells = current.cells;
+            int start = ThreadLocalRandom.current().nextInt(stripes);
+            for (int i = 0; i < stripes; i++) {
+                int index = ((start + i) & (stripes - 1)) * CELL_STRIDE;
+                long units;
+                while ((units = cells.get(index)) >= n) {
+                    if (cells.compareAndSet(index, units, units - n)) {
+                        // If the escrow was voided before the take, the units taken no longer exist.
+                        return current.isValid() ? current : null;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Gathers every cell's units and tops them up from the product, then
+         * takes n and spreads the rest back over the cells.
+         */
+        private synchronized Source refill(int n) {
+            if (!hot) return takeFromProduct(n);
+            // Another thread may have refilled the cells while this one waited.
+            Escrow refilled = takeFromCell(n);
+            if (refilled != null) return refilled;
+            Escrow current = escrow;
+            long pooled = drain(current);
+            // Checked after draining: a valid escrow now was valid when its units were drained.
+            if (current == null || !current.isValid()) {
+                Product product = manager.findBySku(sku);
+                if (product == null) return null;
+                current = new Escrow(product, product.escrowGeneration, stripes);
+                escrow = current;
+                pooled = 0;
+            }
+            if (pooled < n) {
+                long wanted = n - pooled;
+                int taken = manager.takeEscrow(current.product, current.generation, (int) wanted,
+                        (int) Math.min(Integer.MAX_VALUE, wanted + (long) stripes * ESCROW_PER_CELL));
+                if (taken < wanted) {
+                    // -1 means the escrow was voided meanwhile, and the pooled units with it.
+                    if (taken >= 0) spread(current, pooled);
+                    return null;
+                }
+                pooled += taken;
+            }
+            spread(current, pooled - n);
+            return current;
+        }
+
+        /**
+         * Moves the units in the cells back to the product and serves the SKU
+         * from the product's quantity again.
+         */
+        synchronized void cool() {
+            hot = false;
+            Escrow current = escrow;
+            long units = drain(current);
+            // Void units are dropped: the product is gone or its quantity was reset.
+            if (units > 0) manager.returnEscrow(current.product, current.generation, (int) units);
+        }
+
+        int escrowed() {
+            Escrow current = escrow;
+            if (current == null || !current.isValid()) return 0;
+            long units = 0;
+            for (int i = 0; i < stripes; i++) units += current.cells.get(i * CELL_STRIDE);
+            return (int) units;
+        }
+
+        private long drain(Escrow current) {
+            if (current == null) return 0;
+            long units = 0;
+            for (int i = 0; i < stripes; i++) units += current.cells.getAndSet(i * CELL_STRIDE, 0);
+            return units;
+        }
+
+        private void spread(Escrow current, long units) {
+            if (units == 0) return;
+            long share = units / stripes;
+            long extra = units % stripes;
+            for (int i = 0; i < stripes; i++) {
+                long cellUnits = share + (i < extra ? 1 : 0);
+                if (cellUnits > 0) current.cells.addAndGet(i * CELL_STRIDE, cellUnits);
+            }
+        }
+    }
+
+    /**
+     * A product and the escrow generation units were taken from it under.
+     * The units are void once the product's generation moves on.
+     */
+    private static class Source {
+        final Product product;
+        final int generation;
+
+        Source(Product product, int generation) {
+            this.product = product;
+            this.generation = generation;
+        }
+
+        boolean isValid() {
+            return product.escrowGeneration == generation;
+        }
+    }
+
+    /**
+     * Striped cells holding units taken out of one product under one escrow
+     * generation.
+     */
+    private static final class Escrow extends Source {
+        final AtomicLongArray cells;
+
+        Escrow(Product product, int generation, int stripes) {
+            super(product, generation);
+            this.cells = new AtomicLongArray(stripes * CELL_STRIDE);
+        }
+    }
+}
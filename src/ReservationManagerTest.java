@@ -0,0 +1,202 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for ReservationManager: the reservation life cycle, expiry, and that
+ * concurrent checkouts on one product never oversell it, even after it is
+ * removed or its quantity is reset while hot.
+ */
+public class ReservationManagerTest {
+
+    private static final Duration MINUTE = Duration.ofMinutes(1);
+
+    public static void main(String[] args) throws Exception {
+        checkLifeCycle();
+        checkExpiry();
+        checkNoOversell();
+        checkHotSkuRemovedOrReset();
+        checkReleaseAfterReplace();
+        System.out.println("Reservation test passed.");
+    }
+
+    private static void checkLifeCycle() {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        manager.addProduct(new Product("TV", "Television", 10, 499.0, "Electronics"));
+        try (ReservationManager reservations = new ReservationManager(manager)) {
+            Reservation sold = reservations.reserve("TV", 3, MINUTE);
+            check(sold != null && sold.getStatus() == Reservation.Status.HELD, "reserve");
+            check(manager.findBySku("TV").getQuantity() == 7 && reservations.held("TV") == 3, "units held");
+            check(reservations.commit(sold) && sold.getStatus() == Reservation.Status.COMMITTED, "commit");
+            check(!reservations.commit(sold) && !reservations.release(sold), "a reservation ends once");
+            check(manager.findBySku("TV").getQuantity() == 7 && reservations.held("TV") == 0, "committed units stay sold");
+
+            Reservation returned = reservations.reserve("TV", 4, MINUTE);
+            check(reservations.release(returned) && manager.findBySku("TV").getQuantity() == 7, "release gives units back");
+            check(reservations.reserve("TV", 8, MINUTE) == null, "cannot hold more than is available");
+            check(reservations.reserve("RADIO", 1, MINUTE) == null, "missing product");
+            check(reservations.activeCount() == 0, "no open reservations");
+            try {
+                reservations.reserve("TV", 0, MINUTE);
+                check(false, "zero quantity accepted");
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    private static void checkExpiry() throws InterruptedException {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        manager.addProduct(new Product("TV", "Television", 10, 499.0, "Electronics"));
+        try (ReservationManager reservations = new ReservationManager(manager, Duration.ofMillis(10))) {
+            Reservation shortHold = reservations.reserve("TV", 2, Duration.ofMillis(1));
+            Reservation longHold = reservations.reserve("TV", 5, MINUTE);
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (shortHold.getStatus() == Reservation.Status.HELD && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            check(shortHold.getStatus() == Reservation.Status.EXPIRED, "background expiry");
+            check(!reservations.commit(shortHold), "expired reservation cannot be committed");
+            check(longHold.getStatus() == Reservation.Status.HELD, "unexpired hold kept");
+            check(manager.findBySku("TV").getQuantity() == 5, "expired units returned");
+            check(reservations.sweep(System.nanoTime() + MINUTE.toNanos() + 1) == 1, "sweep after ttl");
+            check(manager.findBySku("TV").getQuantity() == 10, "all units returned");
+        }
+    }
+
+    private static void checkNoOversell() throws InterruptedException {
+        int stock = 20_000;
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        manager.addProduct(new Product("HOT", "Flash sale item", stock, 9.99, "Deals"));
+        AtomicLong committed = new AtomicLong();
+        AtomicBoolean sawHot = new AtomicBoolean();
+        AtomicBoolean negative = new AtomicBoolean();
+        ReservationManager reservations = new ReservationManager(manager, Duration.ofMillis(5));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20_000; i++) {
+                    Reservation reservation = reservations.reserve("HOT", 1 + random.nextInt(3),
+                            Duration.ofMillis(random.nextInt(1, 20)));
+                    if (manager.findBySku("HOT").getQuantity() < 0) negative.set(true);
+                    if (reservations.isHot("HOT")) sawHot.set(true);
+                    if (reservation == null) continue;
+                    int choice = random.nextInt(10);
+                    if (choice < 6) {
+                        if (reservations.commit(reservation)) committed.addAndGet(reservation.getQuantity());
+                    } else if (choice < 9) {
+                        reservations.release(reservation);
+                    }
+                    // The rest are left to expire.
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+        reservations.sweep(System.nanoTime() + MINUTE.toNanos());
+        reservations.close();
+
+        int left = manager.findBySku("HOT").getQuantity();
+        check(!negative.get() && left >= 0, "quantity went negative");
+        check(committed.get() + left == stock, "sold " + committed.get() + " + left " + left + " != " + stock);
+        check(reservations.activeCount() == 0 && reservations.held("HOT") == 0, "holds outstanding");
+        check(committed.get() > 0, "nothing sold");
+        check(sawHot.get(), "contended SKU never turned hot");
+    }
+
+    private static void checkHotSkuRemovedOrReset() throws InterruptedException {
+        for (boolean remove : new boolean[]{true, false}) {
+            InventoryManager manager = new InventoryManager();
+            manager.setEventSink(InventoryEventSink.NONE);
+            manager.addProduct(new Product("HOT", "Flash sale item", 1_000_000, 9.99, "Deals"));
+            // A long sweep interval keeps the SKU hot for the whole check.
+            ReservationManager reservations = new ReservationManager(manager, MINUTE);
+            makeHot(reservations);
+            check(reservations.available("HOT") > manager.findBySku("HOT").getQuantity(), "no units in the cells");
+
+            if (remove) {
+                manager.removeProduct("HOT");
+            } else {
+                manager.updateQuantity("HOT", 0);
+            }
+            for (int i = 0; i < 100; i++) {
+                check(reservations.reserve("HOT", 1, MINUTE) == null, (remove ? "removed" : "zeroed") + " SKU reserved");
+            }
+            check(reservations.available("HOT") == 0, "void units counted as available");
+            reservations.close();
+            if (!remove) {
+                check(manager.findBySku("HOT").getQuantity() == 0, "cooling handed void units back");
+                manager.updateQuantity("HOT", 5);
+                try (ReservationManager fresh = new ReservationManager(manager, MINUTE)) {
+                    check(fresh.reserve("HOT", 5, MINUTE) != null && fresh.reserve("HOT", 1, MINUTE) == null,
+                            "restocked units");
+                }
+            }
+        }
+    }
+
+    /**
+     * Held units belong to the product they were taken from: releasing them
+     * after the product was removed, or its quantity set outright, does not
+     * add them to a new product under the same SKU or to the reset count.
+     */
+    private static void checkReleaseAfterReplace() {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        manager.addProduct(new Product("S1", "Original", 10, 5.0, "Misc"));
+        try (ReservationManager reservations = new ReservationManager(manager, MINUTE)) {
+            Reservation held = reservations.reserve("S1", 4, MINUTE);
+            manager.removeProduct("S1");
+            manager.addProduct(new Product("S1", "Replacement", 0, 5.0, "Misc"));
+            check(reservations.release(held), "release after replace");
+            check(manager.findBySku("S1").getQuantity() == 0 && reservations.available("S1") == 0,
+                    "released units went to the replacement product");
+
+            manager.updateQuantity("S1", 10);
+            Reservation reset = reservations.reserve("S1", 4, MINUTE);
+            manager.updateQuantity("S1", 3);
+            check(reservations.release(reset) && manager.findBySku("S1").getQuantity() == 3,
+                    "released units added to a reset quantity");
+            Reservation kept = reservations.reserve("S1", 2, MINUTE);
+            manager.adjustQuantity("S1", 5);
+            check(reservations.release(kept) && manager.findBySku("S1").getQuantity() == 8,
+                    "adjusting the quantity keeps held units returnable");
+        }
+    }
+
+    /**
+     * Reserves and commits single units of HOT from several threads until
+     * the SKU turns hot.
+     */
+    private static void makeHot(ReservationManager reservations) throws InterruptedException {
+        AtomicBoolean done = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                long deadline = System.nanoTime() + 10_000_000_000L;
+                while (!done.get() && System.nanoTime() < deadline) {
+                    Reservation reservation = reservations.reserve("HOT", 1, MINUTE);
+                    if (reservation != null) reservations.commit(reservation);
+                    if (reservations.isHot("HOT")) done.set(true);
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+        check(reservations.isHot("HOT"), "SKU never turned hot");
+        // Make sure the cells hold units, whichever thread turned the SKU hot.
+        Reservation reservation = reservations.reserve("HOT", 1, MINUTE);
+        check(reservation != null && reservations.commit(reservation), "hot reservation");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
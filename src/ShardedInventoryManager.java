@@ -0,0 +1,680 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * An inventory partitioned by SKU across several independent InventoryManager
+ * shards.
+ *
+ * Each SKU belongs to exactly one shard, chosen from its hash, so lookups and
+ * quantity changes go to a single shard and only contend with writers on the
+ * same shard. Every shard keeps its own SKU map, locks, indexes, aggregates
+ * and event sink.
+ *
+ * Filters, sorts and reports are scatter-gather: every shard answers from its
+ * own indexes, in parallel on the common fork/join pool once the inventory
+ * holds at least parallelThreshold products, and the per-shard results are
+ * combined. Ordered results are merged k ways with a heap, so a sort costs
+ * one sort per shard plus O(n log k) to merge. The shards share one position
+ * counter, so display order, and the order of products that tie on a sort
+ * key, is the same as in a single InventoryManager holding the same products.
+ * Only adds take a position; each shard versions its own cached views, so a
+ * change to one shard leaves the others' views in place.
+ *
+ * Products added here belong to their shard, so their setters keep that
+ * shard's indexes current. Journals, snapshots and query caches are per
+ * shard and can be configured through shard(int).
+ */
+public class ShardedInventoryManager {
+    private static final int DEFAULT_LOCK_STRIPES = 64;
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 50_000;
+    private static final Comparator<SortOrder.Entry> BY_POSITION = SortOrder.DISPLAY_ORDER;
+    private static final Comparator<SortOrder.Entry> BY_PRICE = SortOrder.by(SortOrder.Key.PRICE).entryComparator();
+    private static final Comparator<SortOrder.Entry> BY_QUANTITY = SortOrder.by(SortOrder.Key.QUANTITY).entryComparator();
+
+    private final InventoryManager[] shards;
+    private volatile SkuGenerator skuGenerator = new SnowflakeSkuGenerator(0);
+    private volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    /**
+     * Initializes an empty inventory split across the given number of shards.
+     *
+     * @param shardCount the number of shards
+     */
+    public ShardedInventoryManager(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+        }
+        AtomicLong sequence = new AtomicLong();
+        shards = new InventoryManager[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new InventoryManager(DEFAULT_LOCK_STRIPES, sequence);
+        }
+    }
+
+    /**
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns one shard, e.g. to enable its journal or query cache. Products
+     * must not be added to a shard directly, as they would not be found by SKU.
+     *
+     * @param index the shard number, from 0 to getShardCount() - 1
+     * @return the shard
+     */
+    public InventoryManager shard(int index) {
+        return shards[index];
+    }
+
+    /**
+     * Returns the shard holding the given SKU.
+     *
+     * @param sku the SKU
+     * @return the shard that owns it
+     */
+    InventoryManager shardFor(String sku) {
+        return shards[shardIndex(sku)];
+    }
+
+    /**
+     * Returns the number of the shard holding the given SKU.
+     *
+     * The SKU's hash is scrambled with a multiplicative hash and the shard
+     * taken from its high bits. The shards' own lock stripes and hash tables
+     * use the low bits, which would otherwise be the same for every SKU in a
+     * shard.
+     *
+     * @param sku the SKU
+     * @return the shard number
+     */
+    int shardIndex(String sku) {
+        long scrambled = (sku.hashCode() * 0x9E3779B9) & 0xFFFFFFFFL;
+        return (int) ((scrambled * shards.length) >>> 32);
+    }
+
+    /**
+     * Sets the sink that receives every shard's events.
+     *
+     * @param sink the event sink; InventoryEventSink.NONE to discard events
+     */
+    public void setEventSink(InventoryEventSink sink){
+        if (sink == null) throw new IllegalArgumentException("sink must not be null; use InventoryEventSink.NONE");
+        for (InventoryManager shard : shards) shard.setEventSink(sink);
+    }
+
+    /**
+     * Sets the number of products from which queries are sent to the shards
+     * in parallel. The shards use the same threshold for their own sorts and
+     * filters. The default is 50,000.
+     *
+     * @param threshold the minimum number of products for parallel execution
+     */
+    public void setParallelThreshold(int threshold){
+        if (threshold < 1) throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        parallelThreshold = threshold;
+        for (InventoryManager shard : shards) shard.setParallelThreshold(threshold);
+    }
+
+    /**
+     * Sets the strategy used by generateUniqueSku and createProduct. The
+     * default is a SnowflakeSkuGenerator for node 0.
+     *
+     * @param generator the SKU generator
+     */
+    public void setSkuGenerator(SkuGenerator generator){
+        if (generator == null) throw new IllegalArgumentException("generator must not be null");
+        skuGenerator = generator;
+    }
+
+    /**
+     * Generates a SKU that no shard holds.
+     *
+     * @return a unique SKU
+     */
+    public String generateUniqueSku(){
+        SkuGenerator generator = skuGenerator;
+        String sku;
+        do {
+            sku = generator.nextSku();
+        } while (shardFor(sku).findBySku(sku) != null);
+        return sku;
+    }
+
+    /**
+     * Creates a product with a generated SKU. The product is not added.
+     *
+     * @param name     the product name
+     * @param quantity the quantity in stock
+     * @param price    the product price
+     * @param category the product category
+     * @return a Product object with a generated SKU
+     */
+    public Product createProduct(String name, int quantity, double price, String category){
+        return new Product(generateUniqueSku(), name, quantity, price, category);
+    }
+
+    /**
+     * Adds a product to its shard if its SKU is not already present.
+     *
+     * @param product the Product to add
+     */
+    public void addProduct(Product product){
+        shardFor(product.getSku()).addProduct(product);
+    }
+
+    /**
+     * Removes a product from its shard if its SKU is found.
+     *
+     * @param sku the SKU to remove
+     */
+    public void removeProduct(String sku){
+        shardFor(sku).removeProduct(sku);
+    }
+
+    /**
+     * Updates the quantity of a product on its shard.
+     *
+     * @param sku    SKU of Product to be updated
+     * @param newQty New Quantity
+     */
+    public void updateQuantity(String sku, int newQty){
+        shardFor(sku).updateQuantity(sku, newQty);
+    }
+
+    /**
+     * Atomically adds delta to the quantity of a product on its shard.
+     * The change is rejected if it would bring the stock below zero.
+     *
+     * @param sku   SKU of Product to be updated
+     * @param delta amount to add; negative values take stock out
+     * @return true if the quantity was changed
+     */
+    public boolean adjustQuantity(String sku, int delta){
+        return shardFor(sku).adjustQuantity(sku, delta);
+    }
+
+    /**
+     * Searches for a Product by its SKU on the shard that owns it.
+     *
+     * @param sku Product sku to search for
+     * @return returns null if no product with sku found
+     */
+    public Product searchBySku(String sku){
+        sku = sku.toUpperCase();
+        return shardFor(sku).findBySku(sku);
+    }
+
+    /**
+     * Applies a batch of changes without printing anything. The batch is split
+     * by shard, keeping each SKU's operations in batch order, and each part is
+     * applied by its shard as in InventoryManager.applyBatch. Large batches are
+     * applied on all shards at once, so products added by one batch are
+     * positioned shard by shard rather than in batch order.
+     *
+     * @param ops the operations to apply
+     * @return a summary of what was applied and rejected, in batch order
+     */
+    public BatchResult applyBatch(List<InventoryOp> ops){
+        int n = ops.size();
+        List<List<InventoryOp>> parts = new ArrayList<>(shards.length);
+        List<int[]> indexes = new ArrayList<>(shards.length);
+        int[] counts = new int[shards.length];
+        int[] shardOf = new int[n];
+        for (int i = 0; i < shards.length; i++) parts.add(new ArrayList<>());
+        for (int i = 0; i < n; i++) {
+            shardOf[i] = shardIndex(ops.get(i).getSku());
+            counts[shardOf[i]]++;
+        }
+        for (int s = 0; s < shards.length; s++) indexes.add(new int[counts[s]]);
+        for (int i = 0; i < n; i++) {
+            int s = shardOf[i];
+            indexes.get(s)[parts.get(s).size()] = i;
+            parts.get(s).add(ops.get(i));
+        }
+        List<BatchResult> results = scatter(n >= parallelThreshold, s -> shards[s].applyBatch(parts.get(s)));
+        BatchResult result = new BatchResult();
+        for (int s = 0; s < shards.length; s++) {
+            result.merge(results.get(s), indexes.get(s));
+        }
+        result.finish();
+        return result;
+    }
+
+    /**
+     * Filters products whose name contains the query (case-insensitive).
+     *
+     * @param query the name to filter by
+     * @return the matching products in display order, or null if the inventory is empty
+     */
+    public List<Product> filterByName(String query){
+        return filterByName(query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Filters products whose name contains the query (case-insensitive),
+     * returning at most {@code limit} of them in display order. Each shard
+     * returns its first matches and the lists are merged by position.
+     *
+     * @param query the text to look for in product names
+     * @param limit the maximum number of products to return
+     * @return the first matching products, or null if the inventory is empty
+     */
+    public List<Product> filterByName(String query, int limit){
+        if (limit < 0) throw new IllegalArgumentException("limit must not be negative: " + limit);
+        if (size() == 0) return null;
+        return merge(gather(shard -> shard.filterByName(query, limit)), BY_POSITION, limit);
+    }
+
+    /**
+     * Filters products whose name starts with the query (case-insensitive),
+     * returning at most {@code limit} of them in display order.
+     *
+     * @param prefix the start of the product name
+     * @param limit  the maximum number of products to return
+     * @return the first products whose name starts with the prefix
+     */
+    public List<Product> filterByNamePrefix(String prefix, int limit){
+        if (limit < 0) throw new IllegalArgumentException("limit must not be negative: " + limit);
+        return merge(gather(shard -> shard.filterByNamePrefix(prefix, limit)), BY_POSITION, limit);
+    }
+
+    /**
+     * Filters products based on matching category (case-insensitive).
+     *
+     * @param query the category to filter by
+     * @return the products in the category, in display order
+     */
+    public List<Product> filterByCategory(String query){
+        return merge(gather(shard -> shard.filterByCategory(query)), BY_POSITION, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Filters products that are in a category (case-insensitive) and within a
+     * price range.
+     *
+     * @param category the category to filter by
+     * @param min      minimum price, inclusive
+     * @param max      maximum price, inclusive
+     * @return the matching products, in ascending price order
+     */
+    public List<Product> filterByCategoryAndPriceRange(String category, double min, double max){
+        return merge(gather(shard -> shard.filterByCategoryAndPriceRange(category, min, max)),
+                BY_PRICE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Filters products priced at exactly the given amount, compared in whole cents.
+     *
+     * @param query the exact price to filter by
+     * @return the products with that price
+     */
+    public List<Product> filterByExactPrice(Double query){
+        return merge(gather(shard -> shard.filterByExactPrice(query)), BY_PRICE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Filters products within a price range.
+     *
+     * @param min minimum price, inclusive
+     * @param max maximum price, inclusive
+     * @return the matching products, in ascending price order
+     */
+    public List<Product> filterByPriceRange(double min, double max){
+        return merge(gather(shard -> shard.filterByPriceRange(min, max)),
+                BY_PRICE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Filters products within a quantity range.
+     *
+     * @param min minimum quantity, inclusive
+     * @param max maximum quantity, inclusive
+     * @return the matching products, in ascending quantity order
+     */
+    public List<Product> filterByQuantityRange(int min, int max){
+        return merge(gather(shard -> shard.filterByQuantityRange(min, max)), BY_QUANTITY, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the products sorted by name in ascending or descending order.
+     *
+     * @param ascending if true, sorts in ascending (A–Z) order; if false, in descending (Z–A)
+     * @return an unmodifiable sorted list of the products
+     */
+    public List<Product> sortByName(boolean ascending){
+        return sorted(SortOrder.by(SortOrder.Key.NAME, ascending));
+    }
+
+    /**
+     * Returns the products sorted by price in ascending or descending order.
+     *
+     * @param ascending if true, sorts in ascending price order; if false, in descending price
+     * @return an unmodifiable sorted list of the products
+     */
+    public List<Product> sortByPrice(boolean ascending){
+        return sorted(SortOrder.by(SortOrder.Key.PRICE, ascending));
+    }
+
+    /**
+     * Returns the products sorted by category in ascending or descending order.
+     *
+     * @param ascending if true, sorts in ascending (A–Z) order; if false, in descending (Z–A)
+     * @return an unmodifiable sorted list of the products
+     */
+    public List<Product> sortByCategory(boolean ascending){
+        return sorted(SortOrder.by(SortOrder.Key.CATEGORY, ascending));
+    }
+
+    /**
+     * Returns the products sorted by quantity in ascending or descending order.
+     *
+     * @param ascending if true, sorts in ascending quantity order; if false, in descending quantity
+     * @return an unmodifiable sorted list of the products
+     */
+    public List<Product> sortByQuantity(boolean ascending){
+        return sorted(SortOrder.by(SortOrder.Key.QUANTITY, ascending));
+    }
+
+    /**
+     * Returns the products sorted by the given keys. Each shard sorts its own
+     * products, reusing its cached view when it has not changed, and the
+     * sorted shards are merged. Products that tie on every key stay in
+     * display order.
+     *
+     * @param order the keys to sort by
+     * @return an unmodifiable sorted list of the products
+     */
+    public List<Product> sorted(SortOrder order){
+        return Collections.unmodifiableList(merge(gather(shard -> shard.sorted(order)), order.entryComparator(),
+                Integer.MAX_VALUE));
+    }
+
+    /**
+     * Returns the number of products in all shards.
+     *
+     * @return the product count
+     */
+    public int size(){
+        int size = 0;
+        for (InventoryManager shard : shards) size += shard.size();
+        return size;
+    }
+
+    /**
+     * Counts the products in a category (case-insensitive).
+     *
+     * @param category the category to count
+     * @return the number of products in the category
+     */
+    public int countByCategory(String category){
+        int count = 0;
+        for (InventoryManager shard : shards) count += shard.countByCategory(category);
+        return count;
+    }
+
+    /**
+     * Returns the total number of units in stock.
+     *
+     * @return the sum of every product's quantity
+     */
+    public long totalUnits(){
+        long units = 0;
+        for (InventoryManager shard : shards) units += shard.totalUnits();
+        return units;
+    }
+
+    /**
+     * Returns the value of all stock, exact to the cent.
+     *
+     * @return the sum of price times quantity over every product
+     */
+    public BigDecimal totalValue(){
+        BigDecimal value = BigDecimal.ZERO.setScale(2);
+        for (InventoryManager shard : shards) value = value.add(shard.totalValue());
+        return value;
+    }
+
+    /**
+     * Returns the number of units in a category (case-insensitive).
+     *
+     * @param category the category
+     * @return the sum of the quantities of its products
+     */
+    public long unitsByCategory(String category){
+        long units = 0;
+        for (InventoryManager shard : shards) units += shard.unitsByCategory(category);
+        return units;
+    }
+
+    /**
+     * Returns the value of the stock in a category (case-insensitive).
+     *
+     * @param category the category
+     * @return the sum of price times quantity over its products
+     */
+    public BigDecimal valueByCategory(String category){
+        BigDecimal value = BigDecimal.ZERO.setScale(2);
+        for (InventoryManager shard : shards) value = value.add(shard.valueByCategory(category));
+        return value;
+    }
+
+    /**
+     * Returns the number of units held in each category that has stock.
+     *
+     * @return units per category, keyed by the first spelling found of each category
+     */
+    public Map<String, Long> unitsPerCategory(){
+        Map<String, String> spellings = new LinkedHashMap<>();
+        Map<String, Long> units = new LinkedHashMap<>();
+        for (InventoryManager shard : shards) {
+            for (Map.Entry<String, Long> entry : shard.unitsPerCategory().entrySet()) {
+                String spelling = spellings.computeIfAbsent(CategoryIndex.key(entry.getKey()), k -> entry.getKey());
+                units.merge(spelling, entry.getValue(), Long::sum);
+            }
+        }
+        return units;
+    }
+
+    /**
+     * Sets the reorder threshold used for products whose category has none of its own.
+     *
+     * @param threshold the reorder threshold; 0 reports nothing
+     */
+    public void setLowStockThreshold(int threshold){
+        for (InventoryManager shard : shards) shard.setLowStockThreshold(threshold);
+    }
+
+    /**
+     * Sets the reorder threshold for a category (case-insensitive).
+     *
+     * @param category  the category
+     * @param threshold the reorder threshold for its products
+     */
+    public void setLowStockThreshold(String category, int threshold){
+        for (InventoryManager shard : shards) shard.setLowStockThreshold(category, threshold);
+    }
+
+    /**
+     * Returns products below their reorder threshold, lowest quantity first.
+     * Each shard supplies its lowest limit products.
+     *
+     * @param limit the maximum number of products to return
+     * @return up to limit low-stock products
+     */
+    public List<Product> lowStock(int limit){
+        if (limit < 0) throw new IllegalArgumentException("limit must not be negative: " + limit);
+        List<List<Product>> lowest = new ArrayList<>(shards.length);
+        for (InventoryManager shard : shards) lowest.add(shard.lowStock(limit));
+        return merge(lowest, BY_QUANTITY, limit);
+    }
+
+    /**
+     * Returns the number of products below their reorder threshold.
+     *
+     * @return the low-stock product count
+     */
+    public int lowStockCount(){
+        int count = 0;
+        for (InventoryManager shard : shards) count += shard.lowStockCount();
+        return count;
+    }
+
+    /**
+     * Clears every shard.
+     */
+    public void clearInventory(){
+        for (InventoryManager shard : shards) shard.clearInventory();
+    }
+
+    /**
+     * Prints all Products in display order.
+     */
+    public void printAllProducts(){
+        for (Product p : orderedProducts()) {
+            System.out.println(p);
+        }
+    }
+
+    /**
+     * Saves every shard's products, in display order, to one text file in the
+     * same CSV format as InventoryManager.saveToFile.
+     *
+     * @param fileName the file to write
+     */
+    public void saveToFile(String fileName){
+        try (PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
+            for (Product product : orderedProducts()) {
+                InventoryManager.writeLine(writer, product.getSku(), product.getName(), product.getQuantity(),
+                        product.getPrice(), product.getCategory());
+            }
+            System.out.println("Inventory saved successfully.");
+        } catch (IOException e) {
+            System.out.println("Error saving inventory: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads inventory data in CSV format from the given file, sending each
+     * product to its shard.
+     *
+     * @param fileName the file to read
+     * @return the load report, or null if the file could not be read
+     */
+    public LoadReport loadFromFile(String fileName){
+        try {
+            LoadReport report = new CsvInventoryLoader().load(fileName, p -> shardFor(p.getSku()).insert(p));
+            System.out.println("Inventory loaded successfully");
+            if (report.getErrorCount() > 0) {
+                System.out.println(report);
+            }
+            return report;
+        } catch (IOException e) {
+            System.out.println("Error loading inventory" + e.getMessage());
+            return null;
+        }
+    }
+
+    private List<Product> orderedProducts() {
+        return merge(gather(InventoryManager::orderedProducts), BY_POSITION, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Runs a query on every shard, in parallel for large inventories.
+     */
+    private List<List<Product>> gather(Function<InventoryManager, List<Product>> query) {
+        return scatter(size() >= parallelThreshold, s -> query.apply(shards[s]));
+    }
+
+    /**
+     * Runs a task for every shard number and returns the results in shard
+     * order. In parallel, shard 0 runs on the calling thread and the others
+     * on the common fork/join pool.
+     */
+    private <T> List<T> scatter(boolean parallel, IntFunction<T> task) {
+        List<T> results = new ArrayList<>(shards.length);
+        if (!parallel || shards.length == 1) {
+            for (int s = 0; s < shards.length; s++) results.add(task.apply(s));
+            return results;
+        }
+        List<CompletableFuture<T>> pending = new ArrayList<>(shards.length - 1);
+        for (int s = 1; s < shards.length; s++) {
+            int shard = s;
+            pending.add(CompletableFuture.supplyAsync(() -> task.apply(shard)));
+        }
+        results.add(task.apply(0));
+        for (CompletableFuture<T> future : pending) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Merges lists that are each sorted by the given order into one sorted
+     * list of at most limit products. A heap holds the next product of each
+     * list with its keys copied, so products changing during the merge keep
+     * their place in the heap; ties go to the product added first. Null
+     * lists count as empty.
+     */
+    static List<Product> merge(List<List<Product>> lists, Comparator<SortOrder.Entry> order, int limit) {
+        int total = 0;
+        for (List<Product> list : lists) {
+            if (list != null) total += list.size();
+        }
+        List<Product> merged = new ArrayList<>(Math.min(total, limit));
+        Comparator<SortOrder.Entry> byOrderThenPosition = order.thenComparing(BY_POSITION);
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(Math.max(1, lists.size()),
+                (a, b) -> byOrderThenPosition.compare(a.head, b.head));
+        for (List<Product> list : lists) {
+            if (list == null) continue;
+            Cursor cursor = new Cursor(list.iterator());
+            if (cursor.advance()) heap.add(cursor);
+        }
+        while (merged.size() < limit && !heap.isEmpty()) {
+            Cursor cursor = heap.poll();
+            merged.add(cursor.head.product);
+            if (cursor.advance()) heap.add(cursor);
+        }
+        return merged;
+    }
+
+    /**
+     * The next unmerged product of one shard's list.
+     */
+    private static final class Cursor {
+        private final Iterator<Product> rest;
+        SortOrder.Entry head;
+
+        Cursor(Iterator<Product> rest) {
+            this.rest = rest;
+        }
+
+        boolean advance() {
+            if (!rest.hasNext()) return false;
+            head = SortOrder.entry(rest.next());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests ShardedInventoryManager by running the same changes against it and
+ * against a single InventoryManager and comparing every query's answer.
+ */
+public class ShardedInventoryManagerTest {
+
+    private static final int PRODUCTS = 20_000;
+    private static final Comparator<Product> BY_PRICE = Comparator.comparingDouble(Product::getPrice);
+    private static final Comparator<Product> BY_QUANTITY = Comparator.comparingInt(Product::getQuantity);
+
+    public static void main(String[] args) throws Exception {
+        checkRouting();
+        ShardedInventoryManager sharded = new ShardedInventoryManager(8);
+        InventoryManager single = new InventoryManager();
+        sharded.setEventSink(InventoryEventSink.NONE);
+        single.setEventSink(InventoryEventSink.NONE);
+        populate(sharded, single);
+        checkSameAnswers(sharded, single);
+        // Again with every query scattered across the fork/join pool.
+        sharded.setParallelThreshold(1);
+        checkSameAnswers(sharded, single);
+        checkBatch(sharded, single);
+        checkSaveAndLoad(sharded);
+        System.out.println("Sharded inventory test passed.");
+    }
+
+    private static void checkRouting() {
+        ShardedInventoryManager sharded = new ShardedInventoryManager(4);
+        sharded.setEventSink(InventoryEventSink.NONE);
+        for (int i = 0; i < 40_000; i++) {
+            sharded.addProduct(new Product("SKU" + i, "Item " + i, 1, 1.0, "Parts"));
+        }
+        for (int s = 0; s < 4; s++) {
+            int size = sharded.shard(s).size();
+            check(size > 9_000 && size < 11_000, "shard " + s + " holds " + size + " of 40000");
+        }
+        Product product = sharded.searchBySku("sku123");
+        check(product != null && sharded.shardFor("SKU123").findBySku("SKU123") == product, "lookup routed to owner");
+        sharded.updateQuantity("SKU123", 7);
+        check(product.getQuantity() == 7, "update routed to owner");
+        check(!sharded.adjustQuantity("SKU123", -8) && sharded.adjustQuantity("SKU123", -7), "adjust routed to owner");
+        sharded.removeProduct("SKU123");
+        check(sharded.searchBySku("SKU123") == null && sharded.size() == 39_999, "remove routed to owner");
+
+        // Adds and removes on one shard leave the other shards' cached views in place.
+        InventoryManager other = sharded.shardFor("SKU7") == sharded.shard(0) ? sharded.shard(1) : sharded.shard(0);
+        List<Product> cached = other.orderedProducts();
+        sharded.removeProduct("SKU7");
+        sharded.addProduct(new Product("SKU7", "Item 7", 1, 1.0, "Parts"));
+        check(other.orderedProducts() == cached, "another shard's change dropped this shard's view");
+        check(sharded.shardFor("SKU7").orderedProducts().contains(sharded.searchBySku("SKU7")), "owner's view rebuilt");
+    }
+
+    private static void populate(ShardedInventoryManager sharded, InventoryManager single) {
+        Random random = new Random(22);
+        for (int i = 0; i < PRODUCTS; i++) {
+            String sku = "P" + i;
+            String name = (i % 7 == 0 ? "Widget " : "Gadget ") + random.nextInt(1_000);
+            int quantity = random.nextInt(50);
+            double price = random.nextInt(2_000) / 4.0;
+            String category = "Category " + random.nextInt(12);
+            sharded.addProduct(new Product(sku, name, quantity, price, category));
+            single.addProduct(new Product(sku, name, quantity, price, category));
+        }
+        for (int i = 0; i < PRODUCTS; i += 13) {
+            sharded.removeProduct("P" + i);
+            single.removeProduct("P" + i);
+        }
+        for (int i = 1; i < PRODUCTS; i += 17) {
+            if (i % 13 == 0) continue;
+            sharded.searchBySku("P" + i).setPrice(i % 300);
+            single.searchBySku("P" + i).setPrice(i % 300);
+        }
+        sharded.setLowStockThreshold(5);
+        single.setLowStockThreshold(5);
+    }
+
+    private static void checkSameAnswers(ShardedInventoryManager sharded, InventoryManager single) {
+        check(sharded.size() == single.size(), "size");
+        same(sharded.filterByName("widget 1"), single.filterByName("widget 1"), "filterByName");
+        same(sharded.filterByName("gadget", 25), single.filterByName("gadget", 25), "filterByName with limit");
+        same(sharded.filterByNamePrefix("Wid", 40), single.filterByNamePrefix("Wid", 40), "filterByNamePrefix");
+        same(sharded.filterByCategory("category 3"), single.filterByCategory("category 3"), "filterByCategory");
+        sameSorted(sharded.filterByPriceRange(10, 60), single.filterByPriceRange(10, 60), BY_PRICE, "filterByPriceRange");
+        sameSorted(sharded.filterByExactPrice(42.0), single.filterByExactPrice(42.0), BY_PRICE, "filterByExactPrice");
+        sameSorted(sharded.filterByQuantityRange(3, 9), single.filterByQuantityRange(3, 9), BY_QUANTITY,
+                "filterByQuantityRange");
+        sameSorted(sharded.filterByCategoryAndPriceRange("Category 5", 0, 200),
+                single.filterByCategoryAndPriceRange("Category 5", 0, 200), BY_PRICE, "filterByCategoryAndPriceRange");
+        // Sorts break ties by display order in both, so the orders match exactly.
+        same(sharded.sortByPrice(false), single.sortByPrice(false), "sortByPrice");
+        same(sharded.sortByName(true), single.sortByName(true), "sortByName");
+        SortOrder order = SortOrder.by(SortOrder.Key.CATEGORY).thenDescending(SortOrder.Key.QUANTITY);
+        same(sharded.sorted(order), single.sorted(order), "sorted by category, quantity desc");
+
+        check(sharded.totalUnits() == single.totalUnits(), "totalUnits");
+        check(sharded.totalValue().equals(single.totalValue()), "totalValue");
+        check(sharded.unitsByCategory("category 4") == single.unitsByCategory("category 4"), "unitsByCategory");
+        check(sharded.valueByCategory("Category 4").equals(single.valueByCategory("Category 4")), "valueByCategory");
+        check(sharded.countByCategory("Category 9") == single.countByCategory("Category 9"), "countByCategory");
+        check(sharded.unitsPerCategory().equals(single.unitsPerCategory()), "unitsPerCategory");
+        check(sharded.lowStockCount() == single.lowStockCount(), "lowStockCount");
+        List<Product> low = sharded.lowStock(50);
+        check(low.size() == 50, "lowStock size");
+        for (int i = 1; i < low.size(); i++) {
+            check(low.get(i - 1).getQuantity() <= low.get(i).getQuantity(), "lowStock order");
+        }
+        check(low.get(49).getQuantity() == single.lowStock(50).get(49).getQuantity(), "lowStock cut-off");
+    }
+
+    private static void checkBatch(ShardedInventoryManager sharded, InventoryManager single) {
+        List<InventoryOp> ops = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            String sku = "P" + random.nextInt(PRODUCTS + 100);
+            switch (random.nextInt(4)) {
+                case 0: ops.add(InventoryOp.adjustQuantity(sku, random.nextInt(40) - 30)); break;
+                case 1: ops.add(InventoryOp.setQuantity(sku, random.nextInt(60) - 5)); break;
+                case 2: ops.add(InventoryOp.remove(sku)); break;
+                default: ops.add(InventoryOp.add(new Product(sku, "Batch " + i, 3, 9.5, "Batch"))); break;
+            }
+        }
+        List<InventoryOp> copies = new ArrayList<>();
+        for (InventoryOp op : ops) {
+            copies.add(op.getType() == InventoryOp.Type.ADD
+                    ? InventoryOp.add(new Product(op.getSku(), op.getProduct().getName(), 3, 9.5, "Batch")) : op);
+        }
+        BatchResult expected = single.applyBatch(copies);
+        BatchResult result = sharded.applyBatch(ops);
+        check(result.toString().equals(expected.toString()), "batch counts " + result + " vs " + expected);
+        check(result.getFailures().size() == expected.getFailures().size(), "recorded failures");
+        for (int i = 0; i < result.getFailures().size(); i++) {
+            BatchResult.Failure got = result.getFailures().get(i);
+            BatchResult.Failure want = expected.getFailures().get(i);
+            check(got.getIndex() == want.getIndex() && got.getReason() == want.getReason(), "failure " + i);
+        }
+        // Batch adds are positioned shard by shard, so only order-free answers are compared.
+        check(sharded.size() == single.size() && sharded.totalUnits() == single.totalUnits()
+                && sharded.totalValue().equals(single.totalValue()), "totals after batch");
+        sameSorted(sharded.sortByQuantity(true), single.sortByQuantity(true), BY_QUANTITY, "sortByQuantity after batch");
+    }
+
+    private static void checkSaveAndLoad(ShardedInventoryManager sharded) throws IOException {
+        File file = File.createTempFile("sharded-inventory", ".txt");
+        file.deleteOnExit();
+        sharded.saveToFile(file.getPath());
+        ShardedInventoryManager loaded = new ShardedInventoryManager(3);
+        loaded.setEventSink(InventoryEventSink.NONE);
+        LoadReport report = loaded.loadFromFile(file.getPath());
+        check(report.getErrorCount() == 0 && loaded.size() == sharded.size(), "reloaded product count");
+        same(loaded.sortByQuantity(true), sharded.sortByQuantity(true), "reloaded products");
+    }
+
+    private static void same(List<Product> sharded, List<Product> single, String what) {
+        check(skus(sharded).equals(skus(single)), what + " differs");
+    }
+
+    // Index buckets keep products with equal values in insertion order, which shards interleave
+    // differently; compare the products as a set and the keys position by position.
+    private static void sameSorted(List<Product> sharded, List<Product> single, Comparator<Product> key, String what) {
+        check(sharded.size() == single.size(), what + " size " + sharded.size() + " vs " + single.size());
+        check(new HashSet<>(skus(sharded)).equals(new HashSet<>(skus(single))), what + " products differ");
+        for (int i = 0; i < sharded.size(); i++) {
+            check(key.compare(sharded.get(i), single.get(i)) == 0, what + " order at " + i);
+        }
+    }
+
+    private static List<String> skus(List<Product> products) {
+        List<String> skus = new ArrayList<>();
+        if (products != null) {
+            for (Product product : products) skus.add(product.getSku());
+        }
+        return skus;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
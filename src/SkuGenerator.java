@@ -0,0 +1,51 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Strategy for the SKUs InventoryManager.createProduct assigns.
+ *
+ * Implementations must be safe for concurrent callers and should not repeat
+ * a SKU. The manager still skips a generated SKU that is already in use, for
+ * example one entered by hand, but never scans the inventory.
+ */
+public interface SkuGenerator {
+
+    /**
+     * Returns the next SKU.
+     *
+     * @return a new SKU
+     */
+    String nextSku();
+
+    /**
+     * Returns a generator producing the prefix followed by a counter, padded
+     * to at least eight digits: PREFIX00000001, PREFIX00000002, and so on.
+     * The counter restarts at {@code start} with each new generator, so pick
+     * a start past the SKUs already issued when reopening an inventory.
+     *
+     * @param prefix the text before the counter; SKUs are matched in upper case
+     * @param start  the first counter value
+     * @return the generator
+     */
+    static SkuGenerator sequence(String prefix, long start) {
+        if (start < 0) throw new IllegalArgumentException("start must not be negative: " + start);
+        AtomicLong counter = new AtomicLong(start);
+        return () -> {
+            String digits = Long.toString(counter.getAndIncrement());
+            StringBuilder sku = new StringBuilder(prefix.length() + Math.max(8, digits.length()));
+            sku.append(prefix);
+            for (int i = digits.length(); i < 8; i++) sku.append('0');
+            return sku.append(digits).toString();
+        };
+    }
+
+    /**
+     * Returns a Snowflake-style generator for the given node, see
+     * SnowflakeSkuGenerator.
+     *
+     * @param node the node id, 0 to 1023, unique among processes issuing SKUs
+     * @return the generator
+     */
+    static SkuGenerator snowflake(int node) {
+        return new SnowflakeSkuGenerator(node);
+    }
+}
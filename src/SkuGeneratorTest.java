@@ -0,0 +1,91 @@
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tests for SkuGenerator implementations and InventoryManager.generateUniqueSku.
+ */
+public class SkuGeneratorTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        checkUniqueUnderConcurrency(SkuGenerator.snowflake(7), "snowflake");
+        checkUniqueUnderConcurrency(SkuGenerator.sequence("P", 1), "sequence");
+        checkSnowflakeOrder();
+        checkSequenceFormat();
+        checkManagerSkipsTakenSkus();
+        checkPastOldKeyspace();
+        System.out.println("SKU generator test passed.");
+    }
+
+    private static void checkUniqueUnderConcurrency(SkuGenerator generator, String what) throws InterruptedException {
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    check(seen.add(generator.nextSku()), what + " repeated a SKU");
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        check(seen.size() == 200_000, what + " generated " + seen.size() + " SKUs");
+    }
+
+    private static void checkSnowflakeOrder() {
+        SnowflakeSkuGenerator generator = new SnowflakeSkuGenerator(1023);
+        long previous = 0;
+        // Far more ids than fit in one millisecond, so the sequence overflows.
+        for (int i = 0; i < 100_000; i++) {
+            long id = generator.nextId();
+            check(id > previous, "snowflake ids must increase");
+            check(((id >>> 12) & 1023) == 1023, "node bits");
+            previous = id;
+        }
+        String sku = generator.nextSku();
+        check(sku.equals(sku.toUpperCase()), "snowflake SKU is upper case: " + sku);
+        try {
+            new SnowflakeSkuGenerator(1024);
+            check(false, "node 1024 accepted");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    private static void checkSequenceFormat() {
+        SkuGenerator generator = SkuGenerator.sequence("INV-", 99_999_999);
+        check(generator.nextSku().equals("INV-99999999"), "padded sequence");
+        check(generator.nextSku().equals("INV-100000000"), "sequence past eight digits");
+        check(SkuGenerator.sequence("A", 42).nextSku().equals("A00000042"), "small sequence");
+    }
+
+    private static void checkManagerSkipsTakenSkus() {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        manager.addProduct(new Product("S00000001", "Taken", 1, 1.0, "Toys"));
+        manager.addProduct(new Product("S00000002", "Taken", 1, 1.0, "Toys"));
+        manager.setSkuGenerator(SkuGenerator.sequence("S", 1));
+        check(manager.createProduct("New", 1, 1.0, "Toys").getSku().equals("S00000003"), "taken SKUs skipped");
+    }
+
+    private static void checkPastOldKeyspace() {
+        InventoryManager manager = new InventoryManager();
+        manager.setEventSink(InventoryEventSink.NONE);
+        for (int i = 0; i < 60_000; i++) {
+            manager.addProduct(manager.createProduct("Item " + i, 1, 1.0, "Toys"));
+        }
+        check(manager.size() == 60_000, "60,000 generated products, got " + manager.size());
+        Set<String> skus = new HashSet<>();
+        List<Product> products = manager.orderedProducts();
+        for (Product product : products) {
+            check(manager.searchBySku(product.getSku().toLowerCase()) == product, "lookup by generated SKU");
+            skus.add(product.getSku());
+        }
+        check(skus.size() == 60_000, "distinct SKUs");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
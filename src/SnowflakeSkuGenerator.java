@@ -0,0 +1,63 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-based SKU generator in the style of Twitter's Snowflake ids.
+ *
+ * Each id packs 41 bits of milliseconds since 2024-01-01 UTC, a 10-bit node
+ * id and a 12-bit per-millisecond sequence, and is written in upper-case
+ * base 36 (about 12 characters). Ids from one generator increase
+ * strictly, so they stay unique across restarts as long as the clock does
+ * not go back past the last id issued, and across processes given distinct
+ * node ids.
+ *
+ * The last timestamp and sequence share one AtomicLong, so a call is a
+ * single compare-and-set. If the clock steps backwards, or more than 4096
+ * ids are drawn in one millisecond, the generator runs slightly ahead of
+ * the clock instead of waiting.
+ */
+public class SnowflakeSkuGenerator implements SkuGenerator {
+
+    static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    private final long node;
+    // (milliseconds since EPOCH_MILLIS << SEQUENCE_BITS) | sequence of the last id issued.
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * Creates a generator for the given node.
+     *
+     * @param node the node id, 0 to 1023
+     */
+    public SnowflakeSkuGenerator(int node) {
+        if (node < 0 || node >= 1 << NODE_BITS) {
+            throw new IllegalArgumentException("node must be between 0 and 1023: " + node);
+        }
+        this.node = node;
+    }
+
+    /**
+     * Returns the next id as a number.
+     *
+     * @return a positive id, greater than every id returned before
+     */
+    public long nextId() {
+        while (true) {
+            long previous = last.get();
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            // Overflowing the sequence carries into the millisecond field.
+            long next = now > previous >>> SEQUENCE_BITS ? now << SEQUENCE_BITS : previous + 1;
+            if (last.compareAndSet(previous, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    @Override
+    public String nextSku() {
+        return Long.toString(nextId(), 36).toUpperCase();
+    }
+}
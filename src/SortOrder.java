@@ -0,0 +1,243 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An ordering of products by one or more keys, each ascending or descending,
+ * for InventoryManager.sorted. Build one with the static factories and the
+ * then methods:
+ *
+ * <pre>
+ *     SortOrder.by(SortOrder.Key.CATEGORY).thenDescending(SortOrder.Key.PRICE)
+ * </pre>
+ *
+ * Orders are immutable and compare equal when they have the same keys and
+ * directions, so the manager can cache one sorted view per order. Names and
+ * categories compare ignoring case, and nulls sort before every value in
+ * ascending keys and after them in descending ones. Products that tie on
+ * every key keep their display order.
+ *
+ * Products can change while they are being sorted, so the manager sorts
+ * Entry copies of their keys rather than the products themselves: a
+ * comparator over live fields may see one product's price change between
+ * two comparisons, which breaks the sort's contract.
+ */
+public final class SortOrder {
+
+    /**
+     * A product attribute to sort by.
+     */
+    public enum Key {
+        /** The product name, ignoring case. */
+        NAME(Comparator.comparing(Product::nameKey, Comparator.nullsFirst(Comparator.naturalOrder())),
+                Comparator.comparing((Entry e) -> e.name, Comparator.nullsFirst(Comparator.naturalOrder()))),
+        /** The category, ignoring case. */
+        CATEGORY(Comparator.comparing(Product::getCategory, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)),
+                Comparator.comparing((Entry e) -> e.category, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))),
+        /** The price. */
+        PRICE(Comparator.comparingDouble(Product::getPrice), Comparator.comparingDouble((Entry e) -> e.price)),
+        /** The quantity in stock. */
+        QUANTITY(Comparator.comparingInt(Product::getQuantity), Comparator.comparingInt((Entry e) -> e.quantity)),
+        /** The SKU. */
+        SKU(Comparator.comparing(Product::getSku), Comparator.comparing((Entry e) -> e.product.getSku()));
+
+        private final Comparator<Product> ascending;
+        private final Comparator<Entry> ascendingEntries;
+
+        Key(Comparator<Product> ascending, Comparator<Entry> ascendingEntries) {
+            this.ascending = ascending;
+            this.ascendingEntries = ascendingEntries;
+        }
+    }
+
+    /** Orders entries by their products' positions alone, i.e. in display order. */
+    static final Comparator<Entry> DISPLAY_ORDER = Comparator.comparingLong(e -> e.position);
+
+    private final List<Key> keys;
+    private final List<Boolean> descending;
+    private final Comparator<Product> comparator;
+    private final Comparator<Entry> entryComparator;
+
+    private SortOrder(List<Key> keys, List<Boolean> descending) {
+        this.keys = keys;
+        this.descending = descending;
+        Comparator<Product> combined = null;
+        Comparator<Entry> combinedEntries = null;
+        for (int i = 0; i < keys.size(); i++) {
+            Key key = keys.get(i);
+            Comparator<Product> next = descending.get(i) ? key.ascending.reversed() : key.ascending;
+            Comparator<Entry> nextEntries = descending.get(i) ? key.ascendingEntries.reversed() : key.ascendingEntries;
+            combined = combined == null ? next : combined.thenComparing(next);
+            combinedEntries = combinedEntries == null ? nextEntries : combinedEntries.thenComparing(nextEntries);
+        }
+        this.comparator = combined;
+        this.entryComparator = combinedEntries.thenComparing(DISPLAY_ORDER);
+    }
+
+    /**
+     * Creates an ascending order by one key.
+     *
+     * @param key the key to sort by
+     * @return the order
+     */
+    public static SortOrder by(Key key) {
+        return new SortOrder(List.of(key), List.of(false));
+    }
+
+    /**
+     * Creates a descending order by one key.
+     *
+     * @param key the key to sort by
+     * @return the order
+     */
+    public static SortOrder byDescending(Key key) {
+        return new SortOrder(List.of(key), List.of(true));
+    }
+
+    /**
+     * Creates an order by one key in the given direction.
+     *
+     * @param key       the key to sort by
+     * @param ascending true for ascending order
+     * @return the order
+     */
+    public static SortOrder by(Key key, boolean ascending) {
+        return ascending ? by(key) : byDescending(key);
+    }
+
+    /**
+     * Returns this order with an ascending tie-breaking key appended.
+     *
+     * @param key the key used when all earlier keys tie
+     * @return the extended order
+     * @throws IllegalArgumentException if the order already uses the key
+     */
+    public SortOrder then(Key key) {
+        return append(key, false);
+    }
+
+    /**
+     * Returns this order with a descending tie-breaking key appended.
+     *
+     * @param key the key used when all earlier keys tie
+     * @return the extended order
+     * @throws IllegalArgumentException if the order already uses the key
+     */
+    public SortOrder thenDescending(Key key) {
+        return append(key, true);
+    }
+
+    private SortOrder append(Key key, boolean descendingKey) {
+        if (keys.contains(key)) {
+            // A repeated key can never break a tie left by its first use.
+            throw new IllegalArgumentException("Key " + key + " is already part of the order " + this);
+        }
+        List<Key> moreKeys = new ArrayList<>(keys);
+        List<Boolean> moreDirections = new ArrayList<>(descending);
+        moreKeys.add(key);
+        moreDirections.add(descendingKey);
+        return new SortOrder(Collections.unmodifiableList(moreKeys), Collections.unmodifiableList(moreDirections));
+    }
+
+    /**
+     * Returns the comparator for this order. It reads the products' current
+     * fields, so it must not be used to sort products that may change
+     * meanwhile; sort() and entryComparator() are safe for that.
+     *
+     * @return a comparator applying the keys in turn
+     */
+    public Comparator<Product> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Returns the comparator of entries for this order: the keys in turn and
+     * then display order, so no two entries of different products tie.
+     *
+     * @return a comparator of entries made by entry
+     */
+    Comparator<Entry> entryComparator() {
+        return entryComparator;
+    }
+
+    /**
+     * Sorts products in place by this order. Each product's keys are read
+     * once before sorting, so products changed by other threads meanwhile
+     * are placed by the values they had when they were read.
+     *
+     * @param products the products to sort
+     * @param parallel true to sort with Arrays.parallelSort
+     */
+    void sort(Product[] products, boolean parallel) {
+        Entry[] entries = new Entry[products.length];
+        for (int i = 0; i < products.length; i++) {
+            entries[i] = entry(products[i]);
+        }
+        if (parallel) {
+            Arrays.parallelSort(entries, entryComparator);
+        } else {
+            Arrays.sort(entries, entryComparator);
+        }
+        for (int i = 0; i < entries.length; i++) {
+            products[i] = entries[i].product;
+        }
+    }
+
+    /**
+     * Reads a product's sort keys once.
+     *
+     * @param product the product
+     * @return an entry holding the product and its current keys
+     */
+    static Entry entry(Product product) {
+        return new Entry(product);
+    }
+
+    /**
+     * A product together with the values of its sort keys at one moment.
+     * Comparing entries gives the same answer every time, however the
+     * product changes afterwards.
+     */
+    static final class Entry {
+        final Product product;
+        final long position;
+        final String name;
+        final String category;
+        final double price;
+        final int quantity;
+
+        private Entry(Product product) {
+            this.product = product;
+            this.position = product.position;
+            this.name = product.nameKey();
+            this.category = product.getCategory();
+            this.price = product.getPrice();
+            this.quantity = product.getQuantity();
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof SortOrder)) return false;
+        SortOrder order = (SortOrder) other;
+        return keys.equals(order.keys) && descending.equals(order.descending);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * keys.hashCode() + descending.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) text.append(", ");
+            text.append(keys.get(i)).append(descending.get(i) ? " desc" : " asc");
+        }
+        return text.toString();
+    }
+}